@@ -0,0 +1,66 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Constructor calls through static proxies ({@code new Counter(int)}).
+ * Proxies wrap the new object, so they allocate one more object than the baselines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ConstructorBenchmark {
+    private Constructor<Counter> mConstructor;
+    private CounterProxy mProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+    private int mValue;
+
+    @Setup
+    public void setup() throws Exception {
+        mConstructor = Counter.getConstructor();
+        mProxy = ProxyFactory.createStaticProxy(CounterProxy.class);
+        mGeneratedProxy = ProxyFactory.createStaticProxy(GeneratedCounterProxy.class);
+        mValue = 42;
+    }
+
+    @Benchmark
+    public Object direct() {
+        return new Counter(mValue);
+    }
+
+    @Benchmark
+    public Object reflectionCached() throws Exception {
+        return mConstructor.newInstance(mValue);
+    }
+
+    @Benchmark
+    public Object reflectionNaive() throws Exception {
+        return Counter.getConstructor().newInstance(mValue);
+    }
+
+    @Benchmark
+    public Object proxy() {
+        return mProxy.newInstance(mValue);
+    }
+
+    @Benchmark
+    public Object generatedProxy() {
+        return mGeneratedProxy.newInstance(mValue);
+    }
+}
@@ -0,0 +1,62 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Benchmark target. Members are package-private so that they can be
+ * called directly by the baseline benchmarks.
+ */
+/* package */ class Counter {
+    static int sCount = 0;
+
+    int mValue;
+
+    Counter(int value) {
+        mValue = value;
+    }
+
+    static int next() {
+        return ++sCount;
+    }
+
+    int add(int delta) {
+        mValue += delta;
+        return mValue;
+    }
+
+    Counter self() {
+        return this;
+    }
+
+    Counter copy() {
+        return new Counter(mValue);
+    }
+
+    int compare(Counter other) {
+        return mValue - other.mValue;
+    }
+
+    /**
+     * Looks up a method for the reflection baselines. The naive
+     * baselines call this (and the other lookups) on every operation.
+     */
+    static Method getMethod(String name, Class<?>... parameterTypes) throws Exception {
+        Method method = Counter.class.getDeclaredMethod(name, parameterTypes);
+        method.setAccessible(true);
+        return method;
+    }
+
+    static Field getField(String name) throws Exception {
+        Field field = Counter.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+
+    static Constructor<Counter> getConstructor() throws Exception {
+        Constructor<Counter> constructor = Counter.class.getDeclaredConstructor(int.class);
+        constructor.setAccessible(true);
+        return constructor;
+    }
+}
@@ -0,0 +1,19 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyBase;
+import com.crossbowffs.reflectionproxy.ProxyConstructor;
+import com.crossbowffs.reflectionproxy.ProxyField;
+import com.crossbowffs.reflectionproxy.ProxyStatic;
+import com.crossbowffs.reflectionproxy.ProxyTarget;
+
+@ProxyTarget(Counter.class)
+/* package */ interface CounterProxy extends ProxyBase {
+    @ProxyConstructor CounterProxy newInstance(int value);
+    @ProxyStatic int next();
+    @ProxyField int get_mValue();
+    @ProxyField void set_mValue(int value);
+    int add(int delta);
+    CounterProxy self();
+    CounterProxy copy();
+    int compare(CounterProxy other);
+}
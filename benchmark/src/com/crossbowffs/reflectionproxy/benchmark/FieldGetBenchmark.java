@@ -0,0 +1,65 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instance field reads ({@code int mValue}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FieldGetBenchmark {
+    private Counter mCounter;
+    private Field mField;
+    private CounterProxy mProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+
+    @Setup
+    public void setup() throws Exception {
+        mCounter = new Counter(42);
+        mField = Counter.getField("mValue");
+        mProxy = ProxyFactory.createProxy(CounterProxy.class, mCounter);
+        mGeneratedProxy = ProxyFactory.createProxy(GeneratedCounterProxy.class, mCounter);
+    }
+
+    @Benchmark
+    public int direct() {
+        return mCounter.mValue;
+    }
+
+    @Benchmark
+    public int reflectionCached() throws Exception {
+        return mField.getInt(mCounter);
+    }
+
+    @Benchmark
+    public int reflectionNaive() throws Exception {
+        return Counter.getField("mValue").getInt(mCounter);
+    }
+
+    @Benchmark
+    public int proxy() {
+        return mProxy.get_mValue();
+    }
+
+    @Benchmark
+    public int generatedProxy() {
+        return mGeneratedProxy.get_mValue();
+    }
+}
@@ -0,0 +1,73 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instance field writes ({@code int mValue}). Each benchmark reads the
+ * field back, so that the write cannot be eliminated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FieldSetBenchmark {
+    private Counter mCounter;
+    private Field mField;
+    private CounterProxy mProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+    private int mValue;
+
+    @Setup
+    public void setup() throws Exception {
+        mCounter = new Counter(0);
+        mField = Counter.getField("mValue");
+        mProxy = ProxyFactory.createProxy(CounterProxy.class, mCounter);
+        mGeneratedProxy = ProxyFactory.createProxy(GeneratedCounterProxy.class, mCounter);
+        mValue = 42;
+    }
+
+    @Benchmark
+    public int direct() {
+        mCounter.mValue = mValue;
+        return mCounter.mValue;
+    }
+
+    @Benchmark
+    public int reflectionCached() throws Exception {
+        mField.setInt(mCounter, mValue);
+        return mCounter.mValue;
+    }
+
+    @Benchmark
+    public int reflectionNaive() throws Exception {
+        Counter.getField("mValue").setInt(mCounter, mValue);
+        return mCounter.mValue;
+    }
+
+    @Benchmark
+    public int proxy() {
+        mProxy.set_mValue(mValue);
+        return mCounter.mValue;
+    }
+
+    @Benchmark
+    public int generatedProxy() {
+        mGeneratedProxy.set_mValue(mValue);
+        return mCounter.mValue;
+    }
+}
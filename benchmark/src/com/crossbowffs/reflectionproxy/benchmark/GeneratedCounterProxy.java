@@ -0,0 +1,21 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyBase;
+import com.crossbowffs.reflectionproxy.ProxyConstructor;
+import com.crossbowffs.reflectionproxy.ProxyField;
+import com.crossbowffs.reflectionproxy.ProxyGenerated;
+import com.crossbowffs.reflectionproxy.ProxyStatic;
+import com.crossbowffs.reflectionproxy.ProxyTarget;
+
+@ProxyGenerated
+@ProxyTarget(Counter.class)
+/* package */ interface GeneratedCounterProxy extends ProxyBase {
+    @ProxyConstructor GeneratedCounterProxy newInstance(int value);
+    @ProxyStatic int next();
+    @ProxyField int get_mValue();
+    @ProxyField void set_mValue(int value);
+    int add(int delta);
+    GeneratedCounterProxy self();
+    GeneratedCounterProxy copy();
+    int compare(GeneratedCounterProxy other);
+}
@@ -0,0 +1,76 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instance method calls ({@code int add(int)}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MethodBenchmark {
+    // Must be static final for the JIT to inline through it
+    private static final MethodHandle ADD_HANDLE = ProxyFactory.getHandle(CounterProxy.class, "add", int.class);
+
+    private Counter mCounter;
+    private Method mMethod;
+    private CounterProxy mProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+    private int mDelta;
+
+    @Setup
+    public void setup() throws Exception {
+        mCounter = new Counter(0);
+        mMethod = Counter.getMethod("add", int.class);
+        mProxy = ProxyFactory.createProxy(CounterProxy.class, mCounter);
+        mGeneratedProxy = ProxyFactory.createProxy(GeneratedCounterProxy.class, mCounter);
+        mDelta = 1;
+    }
+
+    @Benchmark
+    public int direct() {
+        return mCounter.add(mDelta);
+    }
+
+    @Benchmark
+    public Object reflectionCached() throws Exception {
+        return mMethod.invoke(mCounter, mDelta);
+    }
+
+    @Benchmark
+    public Object reflectionNaive() throws Exception {
+        return Counter.getMethod("add", int.class).invoke(mCounter, mDelta);
+    }
+
+    @Benchmark
+    public int proxy() {
+        return mProxy.add(mDelta);
+    }
+
+    @Benchmark
+    public int generatedProxy() {
+        return mGeneratedProxy.add(mDelta);
+    }
+
+    @Benchmark
+    public int handle() throws Throwable {
+        return (int)ADD_HANDLE.invokeExact((Object)mCounter, mDelta);
+    }
+}
@@ -0,0 +1,72 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls that take a proxy-typed argument ({@code int compare(Counter)}),
+ * which the proxy unwraps to its target.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ProxyArgumentBenchmark {
+    private Counter mCounter;
+    private Counter mOther;
+    private Method mMethod;
+    private CounterProxy mProxy;
+    private CounterProxy mOtherProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+    private GeneratedCounterProxy mOtherGeneratedProxy;
+
+    @Setup
+    public void setup() throws Exception {
+        mCounter = new Counter(1);
+        mOther = new Counter(2);
+        mMethod = Counter.getMethod("compare", Counter.class);
+        mProxy = ProxyFactory.createProxy(CounterProxy.class, mCounter);
+        mOtherProxy = ProxyFactory.createProxy(CounterProxy.class, mOther);
+        mGeneratedProxy = ProxyFactory.createProxy(GeneratedCounterProxy.class, mCounter);
+        mOtherGeneratedProxy = ProxyFactory.createProxy(GeneratedCounterProxy.class, mOther);
+    }
+
+    @Benchmark
+    public int direct() {
+        return mCounter.compare(mOther);
+    }
+
+    @Benchmark
+    public Object reflectionCached() throws Exception {
+        return mMethod.invoke(mCounter, mOther);
+    }
+
+    @Benchmark
+    public Object reflectionNaive() throws Exception {
+        return Counter.getMethod("compare", Counter.class).invoke(mCounter, mOther);
+    }
+
+    @Benchmark
+    public int proxy() {
+        return mProxy.compare(mOtherProxy);
+    }
+
+    @Benchmark
+    public int generatedProxy() {
+        return mGeneratedProxy.compare(mOtherGeneratedProxy);
+    }
+}
@@ -0,0 +1,66 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder-style calls that return their receiver ({@code Counter self()}),
+ * for which the proxy returns itself instead of a new proxy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ReturnThisBenchmark {
+    private Counter mCounter;
+    private Method mMethod;
+    private CounterProxy mProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+
+    @Setup
+    public void setup() throws Exception {
+        mCounter = new Counter(1);
+        mMethod = Counter.getMethod("self");
+        mProxy = ProxyFactory.createProxy(CounterProxy.class, mCounter);
+        mGeneratedProxy = ProxyFactory.createProxy(GeneratedCounterProxy.class, mCounter);
+    }
+
+    @Benchmark
+    public Object direct() {
+        return mCounter.self();
+    }
+
+    @Benchmark
+    public Object reflectionCached() throws Exception {
+        return mMethod.invoke(mCounter);
+    }
+
+    @Benchmark
+    public Object reflectionNaive() throws Exception {
+        return Counter.getMethod("self").invoke(mCounter);
+    }
+
+    @Benchmark
+    public Object proxy() {
+        return mProxy.self();
+    }
+
+    @Benchmark
+    public Object generatedProxy() {
+        return mGeneratedProxy.self();
+    }
+}
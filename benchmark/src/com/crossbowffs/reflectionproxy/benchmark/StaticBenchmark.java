@@ -0,0 +1,63 @@
+package com.crossbowffs.reflectionproxy.benchmark;
+
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static method calls through static proxies ({@code static int next()}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class StaticBenchmark {
+    private Method mMethod;
+    private CounterProxy mProxy;
+    private GeneratedCounterProxy mGeneratedProxy;
+
+    @Setup
+    public void setup() throws Exception {
+        mMethod = Counter.getMethod("next");
+        mProxy = ProxyFactory.createStaticProxy(CounterProxy.class);
+        mGeneratedProxy = ProxyFactory.createStaticProxy(GeneratedCounterProxy.class);
+    }
+
+    @Benchmark
+    public int direct() {
+        return Counter.next();
+    }
+
+    @Benchmark
+    public Object reflectionCached() throws Exception {
+        return mMethod.invoke(null);
+    }
+
+    @Benchmark
+    public Object reflectionNaive() throws Exception {
+        return Counter.getMethod("next").invoke(null);
+    }
+
+    @Benchmark
+    public int proxy() {
+        return mProxy.next();
+    }
+
+    @Benchmark
+    public int generatedProxy() {
+        return mGeneratedProxy.next();
+    }
+}
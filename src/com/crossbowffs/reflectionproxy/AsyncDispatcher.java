@@ -0,0 +1,178 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatcher for proxy methods that return {@code CompletableFuture<T>}
+ * when the target method returns a plain {@code T}. The target method is
+ * called through a synchronous dispatcher on the async executor, and its
+ * converted return value completes the future.
+ */
+/* package */ class AsyncDispatcher extends ProxyDispatcherBase {
+    private static volatile Executor sExecutor;
+
+    private final ProxyDispatcherBase mDispatcher;
+    private final ProxyDispatcherBase mDelegate;
+    private final boolean mIsStatic;
+
+    private AsyncDispatcher(ProxyDispatcherBase dispatcher, ProxyDispatcherBase delegate, boolean isStatic) {
+        mDispatcher = dispatcher;
+        mDelegate = delegate;
+        mIsStatic = isStatic;
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mDispatcher.getTargetMember();
+    }
+
+    @Override
+    public void prepare() {
+        mDelegate.prepare();
+    }
+
+    /**
+     * Holds the default executor, so that it is only created when
+     * it is used for the first time.
+     */
+    private static final class DefaultExecutor {
+        private static final Executor INSTANCE = createDefaultExecutor();
+    }
+
+    private static Executor createDefaultExecutor() {
+        try {
+            return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // Virtual threads are not supported (or not enabled) on this runtime
+        }
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ReflectionProxy-async-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public static Executor getExecutor() {
+        Executor executor = sExecutor;
+        if (executor == null) {
+            executor = DefaultExecutor.INSTANCE;
+        }
+        return executor;
+    }
+
+    public static void setExecutor(Executor executor) {
+        sExecutor = executor;
+    }
+
+    @Override
+    protected void coerceArguments(Object[] args) {
+        // Convert on the calling thread, so that interceptors
+        // see the converted arguments
+        mDispatcher.coerceArguments(args);
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        return submit(proxy, target, args, false);
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        return submit(proxy, target, args, true);
+    }
+
+    /**
+     * Calls the target method on the async executor.
+     *
+     * @param isCoerced Whether the arguments have already been converted
+     *                  by {@link #coerceArguments(Object[])}.
+     */
+    private Object submit(final ProxyBase proxy, final Object target, final Object[] args, final boolean isCoerced) {
+        // Report misuse on the calling thread, like synchronous methods
+        if (target == null && !mIsStatic) {
+            throw new ProxyException("Attempted to call instance method on static proxy", new NullPointerException());
+        }
+        final CompletableFuture<Object> future = new CompletableFuture<Object>();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (isCoerced) {
+                        future.complete(mDispatcher.invoke(proxy, target, args));
+                    } else {
+                        future.complete(mDelegate.handle(proxy, target, args));
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        try {
+            getExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new ProxyException("Async executor rejected the call", e));
+        }
+        return future;
+    }
+
+    /**
+     * Returns whether a proxy method with the specified return type
+     * calls a target method with the specified return type asynchronously.
+     */
+    public static boolean isAsync(Class<?> proxyReturnType, Class<?> actualReturnType) {
+        return proxyReturnType == CompletableFuture.class && !CompletableFuture.class.isAssignableFrom(actualReturnType);
+    }
+
+    /**
+     * Gets the type of the values of a {@code CompletableFuture<T>},
+     * which is {@code T}.
+     */
+    public static Type getValueType(Type genericReturnType) {
+        if (!(genericReturnType instanceof ParameterizedType)) {
+            return Object.class;
+        }
+        Type valueType = ((ParameterizedType)genericReturnType).getActualTypeArguments()[0];
+        if (valueType instanceof WildcardType) {
+            valueType = ((WildcardType)valueType).getUpperBounds()[0];
+        }
+        return valueType;
+    }
+
+    /**
+     * Gets the type a target return value has when it completes a
+     * future: primitives are boxed, and void becomes {@link Void}.
+     */
+    public static Class<?> getBoxedType(Class<?> actualReturnType) {
+        return MethodType.methodType(actualReturnType).wrap().returnType();
+    }
+
+    /**
+     * Creates an async dispatcher.
+     *
+     * @param dispatcher The dispatcher that calls the target method synchronously,
+     *                   converting its return value to the future value type.
+     * @param proxyMethod The proxy method.
+     * @param valueType The raw future value type.
+     * @param isStatic Whether the target method is static.
+     */
+    public static AsyncDispatcher create(ProxyDispatcherBase dispatcher, Method proxyMethod,
+                                         Class<?> valueType, boolean isStatic) {
+        MethodType type = ProxyHandles.dispatchType(proxyMethod).changeReturnType(valueType);
+        return new AsyncDispatcher(dispatcher, MethodHandleDispatcher.wrap(dispatcher, type), isStatic);
+    }
+}
@@ -0,0 +1,124 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation counters for a single proxy method binding. All counters
+ * are striped, so recording a call from many threads does not contend.
+ *
+ * <p>
+ * Latencies are recorded in a histogram with power-of-two buckets:
+ * bucket {@code i} counts calls that took less than {@code 2^i} nanoseconds
+ * (and at least {@code 2^(i-1)} nanoseconds).
+ */
+/* package */ final class BindingMetrics {
+    public static final int BUCKET_COUNT = 40;
+
+    private final Class<?> mProxyClass;
+    private final Method mProxyMethod;
+    private final Counters mCounters;
+
+    /**
+     * The counters themselves, kept apart from the proxy method so that
+     * they can outlive the binding (see {@link ProxyMetrics}) without
+     * keeping its proxy interface alive.
+     */
+    public static final class Counters {
+        private final LongAdder mCallCount;
+        private final LongAdder mErrorCount;
+        private final LongAdder mTotalNanos;
+        private final LongAdder[] mLatencyBuckets;
+
+        public Counters() {
+            mCallCount = new LongAdder();
+            mErrorCount = new LongAdder();
+            mTotalNanos = new LongAdder();
+            mLatencyBuckets = new LongAdder[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                mLatencyBuckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos, boolean isError) {
+            mCallCount.increment();
+            if (isError) {
+                mErrorCount.increment();
+            }
+            mTotalNanos.add(nanos);
+            int bucket = 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+            mLatencyBuckets[Math.min(bucket, BUCKET_COUNT - 1)].increment();
+        }
+
+        /**
+         * Adds the current value of every counter to the other counters.
+         */
+        public void addTo(Counters other) {
+            other.mCallCount.add(mCallCount.sum());
+            other.mErrorCount.add(mErrorCount.sum());
+            other.mTotalNanos.add(mTotalNanos.sum());
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                other.mLatencyBuckets[i].add(mLatencyBuckets[i].sum());
+            }
+        }
+
+        public void reset() {
+            mCallCount.reset();
+            mErrorCount.reset();
+            mTotalNanos.reset();
+            for (LongAdder bucket : mLatencyBuckets) {
+                bucket.reset();
+            }
+        }
+
+        /**
+         * Reads the current value of every counter. Calls recorded
+         * concurrently may or may not be included.
+         */
+        public ProxyMetricsSnapshot snapshot(Class<?> proxyClass, Method proxyMethod) {
+            long[] buckets = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; ++i) {
+                buckets[i] = mLatencyBuckets[i].sum();
+            }
+            return new ProxyMetricsSnapshot(proxyClass, proxyMethod,
+                mCallCount.sum(), mErrorCount.sum(), mTotalNanos.sum(), buckets);
+        }
+    }
+
+    public BindingMetrics(Class<?> proxyClass, Method proxyMethod) {
+        mProxyClass = proxyClass;
+        mProxyMethod = proxyMethod;
+        mCounters = new Counters();
+    }
+
+    public Class<?> getProxyClass() {
+        return mProxyClass;
+    }
+
+    public Method getProxyMethod() {
+        return mProxyMethod;
+    }
+
+    public Counters getCounters() {
+        return mCounters;
+    }
+
+    public void record(long nanos, boolean isError) {
+        mCounters.record(nanos, isError);
+    }
+
+    /**
+     * Reads the current value of every counter, summed over all of the
+     * specified metrics, which must belong to the same proxy method.
+     * Calls recorded concurrently may or may not be included.
+     */
+    public static ProxyMetricsSnapshot snapshot(List<BindingMetrics> metricsList) {
+        Counters sum = new Counters();
+        for (BindingMetrics metrics : metricsList) {
+            metrics.mCounters.addTo(sum);
+        }
+        BindingMetrics first = metricsList.get(0);
+        return sum.snapshot(first.mProxyClass, first.mProxyMethod);
+    }
+}
@@ -0,0 +1,285 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Dispatcher for {@link ProxyCached} proxy methods, which memoizes the
+ * results of another dispatcher in a bounded LRU cache. The cache is
+ * keyed by the raw proxy method arguments, so results are cached after
+ * they have been converted to the proxy return type.
+ */
+/* package */ class CachedDispatcher extends ProxyDispatcherBase {
+    // Dispatchers are only weakly referenced here, so caches
+    // are discarded along with their binding
+    private static final Set<CachedDispatcher> sDispatchers =
+        Collections.newSetFromMap(new WeakHashMap<CachedDispatcher, Boolean>());
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final ProxyDispatcherBase mDispatcher;
+    private final Class<?> mProxyClass;
+    private final Method mProxyMethod;
+    private final int mMaxSize;
+    private final long mExpireNanos;
+    private final boolean mWeakTargets;
+    private final LinkedHashMap<Key, CacheEntry> mCache;
+    private final ReferenceQueue<Object> mQueue;
+    private final LongAdder mHitCount;
+    private final LongAdder mMissCount;
+    private final LongAdder mEvictionCount;
+
+    private CachedDispatcher(ProxyDispatcherBase dispatcher, Class<?> proxyClass, Method proxyMethod, ProxyCached annotation) {
+        mDispatcher = dispatcher;
+        mProxyClass = proxyClass;
+        mProxyMethod = proxyMethod;
+        mMaxSize = annotation.maxSize();
+        mExpireNanos = TimeUnit.MILLISECONDS.toNanos(annotation.expireAfterMillis());
+        mWeakTargets = annotation.weakTargets();
+        mCache = new LinkedHashMap<Key, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CacheEntry> eldest) {
+                if (size() > mMaxSize) {
+                    mEvictionCount.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        mQueue = new ReferenceQueue<Object>();
+        mHitCount = new LongAdder();
+        mMissCount = new LongAdder();
+        mEvictionCount = new LongAdder();
+    }
+
+    /**
+     * Cache key: the target object (or a weak reference to it) and the
+     * arguments of the call. Targets are compared by identity.
+     */
+    private static final class Key {
+        private final Object mTarget;
+        private final TargetReference mTargetRef;
+        private final Object[] mArgs;
+        private final int mHash;
+
+        private Key(Object target, TargetReference targetRef, Object[] args) {
+            mTarget = target;
+            mTargetRef = targetRef;
+            mArgs = args;
+            mHash = 31 * System.identityHashCode(targetRef != null ? targetRef.get() : target) + Arrays.deepHashCode(args);
+        }
+
+        private boolean isStale() {
+            return mTargetRef != null && mTargetRef.get() == null;
+        }
+
+        private Object getTarget() {
+            return mTargetRef != null ? mTargetRef.get() : mTarget;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)o;
+            if (isStale() || other.isStale()) {
+                return false;
+            }
+            return getTarget() == other.getTarget() && Arrays.deepEquals(mArgs, other.mArgs);
+        }
+    }
+
+    /**
+     * Weak reference to a target, which remembers the key it belongs
+     * to so that the key can be removed once the target is collected.
+     */
+    private static final class TargetReference extends WeakReference<Object> {
+        private Key mKey;
+
+        private TargetReference(Object target, ReferenceQueue<Object> queue) {
+            super(target, queue);
+        }
+    }
+
+    private static final class CacheEntry {
+        private final Object mValue;
+        private final long mExpireTime;
+
+        private CacheEntry(Object value, long expireTime) {
+            mValue = value;
+            mExpireTime = expireTime;
+        }
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mDispatcher.getTargetMember();
+    }
+
+    @Override
+    public void prepare() {
+        mDispatcher.prepare();
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        if (args == null) {
+            // java.lang.reflect.Proxy passes null for methods without parameters
+            args = NO_ARGS;
+        }
+        Key lookupKey = new Key(target, null, args);
+        synchronized (mCache) {
+            CacheEntry entry = mCache.get(lookupKey);
+            if (entry != null) {
+                if (mExpireNanos <= 0 || entry.mExpireTime - System.nanoTime() > 0) {
+                    mHitCount.increment();
+                    return entry.mValue;
+                }
+                mCache.remove(lookupKey);
+                mEvictionCount.increment();
+            }
+        }
+        mMissCount.increment();
+
+        // Reflective dispatchers convert the arguments in place,
+        // so the key needs its own copy
+        Object[] keyArgs = args.clone();
+        Object value = mDispatcher.handle(proxy, target, args);
+        long expireTime = mExpireNanos <= 0 ? 0 : System.nanoTime() + mExpireNanos;
+        Key key;
+        if (mWeakTargets && target != null) {
+            TargetReference targetRef = new TargetReference(target, mQueue);
+            key = new Key(null, targetRef, keyArgs);
+            targetRef.mKey = key;
+        } else {
+            key = new Key(target, null, keyArgs);
+        }
+        CacheEntry entry = new CacheEntry(value, expireTime);
+        synchronized (mCache) {
+            purgeStaleKeys();
+            mCache.put(key, entry);
+        }
+        if (value instanceof CompletableFuture) {
+            removeOnFailure(key, entry, (CompletableFuture<?>)value);
+        }
+        return value;
+    }
+
+    /**
+     * Async calls return before they fail, so their futures are cached
+     * right away, and removed again if they complete exceptionally.
+     * The entry is only removed if it has not been replaced since.
+     */
+    private void removeOnFailure(final Key key, final CacheEntry entry, CompletableFuture<?> future) {
+        future.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object result, Throwable failure) {
+                if (failure != null) {
+                    synchronized (mCache) {
+                        mCache.remove(key, entry);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the results of targets that have been garbage collected.
+     * Must be called while holding the cache lock.
+     */
+    private void purgeStaleKeys() {
+        Object ref;
+        while ((ref = mQueue.poll()) != null) {
+            if (mCache.remove(((TargetReference)ref).mKey) != null) {
+                mEvictionCount.increment();
+            }
+        }
+    }
+
+    private ProxyCacheStats getStats() {
+        int size;
+        synchronized (mCache) {
+            purgeStaleKeys();
+            size = mCache.size();
+        }
+        return new ProxyCacheStats(mProxyClass, mProxyMethod,
+            mHitCount.sum(), mMissCount.sum(), mEvictionCount.sum(), size);
+    }
+
+    private void clear() {
+        synchronized (mCache) {
+            mCache.clear();
+            while (mQueue.poll() != null) { }
+        }
+    }
+
+    private static List<CachedDispatcher> getAllDispatchers() {
+        synchronized (sDispatchers) {
+            return new ArrayList<CachedDispatcher>(sDispatchers);
+        }
+    }
+
+    /**
+     * Gets the counters of the cache of every bound {@link ProxyCached} method.
+     */
+    public static List<ProxyCacheStats> getAllStats() {
+        List<ProxyCacheStats> stats = new ArrayList<ProxyCacheStats>();
+        for (CachedDispatcher dispatcher : getAllDispatchers()) {
+            stats.add(dispatcher.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Discards the cached results of every bound {@link ProxyCached} method.
+     * The counters are not reset.
+     */
+    public static void clearAll() {
+        for (CachedDispatcher dispatcher : getAllDispatchers()) {
+            dispatcher.clear();
+        }
+    }
+
+    /**
+     * Wraps a newly bound dispatcher in a cache.
+     */
+    public static CachedDispatcher create(ProxyDispatcherBase dispatcher, Class<?> proxyClass,
+                                          Method proxyMethod, ProxyCached annotation) {
+        if (proxyMethod.getReturnType() == void.class) {
+            throw new ProxyException("Cached proxy method cannot return void: " + proxyMethod);
+        }
+        if (annotation.maxSize() <= 0) {
+            throw new ProxyException("Cache size must be positive: " + proxyMethod);
+        }
+        if (annotation.expireAfterMillis() < 0) {
+            throw new ProxyException("Cache expiration time cannot be negative: " + proxyMethod);
+        }
+        CachedDispatcher cachedDispatcher = new CachedDispatcher(dispatcher, proxyClass, proxyMethod, annotation);
+        synchronized (sDispatchers) {
+            sDispatchers.add(cachedDispatcher);
+        }
+        return cachedDispatcher;
+    }
+}
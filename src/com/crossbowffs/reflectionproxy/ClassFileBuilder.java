@@ -0,0 +1,247 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal class file writer, just powerful enough to emit the
+ * straight-line code used by generated proxy classes. There is
+ * no support for branches, so no stack map frames are written.
+ */
+/* package */ final class ClassFileBuilder {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    public static final int ALOAD_0 = 0x2a;
+    public static final int ALOAD_1 = 0x2b;
+    public static final int ASTORE_0 = 0x4b;
+    public static final int ILOAD = 0x15;
+    public static final int LLOAD = 0x16;
+    public static final int FLOAD = 0x17;
+    public static final int DLOAD = 0x18;
+    public static final int ALOAD = 0x19;
+    public static final int IRETURN = 0xac;
+    public static final int LRETURN = 0xad;
+    public static final int FRETURN = 0xae;
+    public static final int DRETURN = 0xaf;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+    public static final int GETSTATIC = 0xb2;
+    public static final int PUTSTATIC = 0xb3;
+    public static final int GETFIELD = 0xb4;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int INVOKEINTERFACE = 0xb9;
+    public static final int CHECKCAST = 0xc0;
+
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int CLASS_VERSION = 52;
+
+    private final ByteArrayOutputStream mPoolBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream mPool = new DataOutputStream(mPoolBuffer);
+    private final Map<String, Integer> mPoolIndices = new HashMap<String, Integer>();
+    private int mPoolCount = 1;
+
+    private final ByteArrayOutputStream mFieldBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream mFields = new DataOutputStream(mFieldBuffer);
+    private final ByteArrayOutputStream mMethodBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream mMethods = new DataOutputStream(mMethodBuffer);
+    private int mFieldCount = 0;
+    private int mMethodCount = 0;
+
+    /**
+     * Bytecode of a single method. All instructions that reference
+     * the constant pool take the index returned by the owning builder.
+     */
+    public final class Code {
+        private final int mAccess;
+        private final int mName;
+        private final int mDescriptor;
+        private final ByteArrayOutputStream mBuffer = new ByteArrayOutputStream();
+        private final DataOutputStream mCode = new DataOutputStream(mBuffer);
+
+        private Code(int access, String name, String descriptor) {
+            mAccess = access;
+            mName = utf8(name);
+            mDescriptor = utf8(descriptor);
+        }
+
+        public Code op(int opcode) {
+            mBuffer.write(opcode);
+            return this;
+        }
+
+        public Code op(int opcode, int index) {
+            try {
+                mCode.writeByte(opcode);
+                mCode.writeShort(index);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            return this;
+        }
+
+        public Code local(int opcode, int slot) {
+            if (slot > 0xff) {
+                throw new ProxyException("Too many proxy method arguments");
+            }
+            mBuffer.write(opcode);
+            mBuffer.write(slot);
+            return this;
+        }
+
+        public Code pushInt(int value) {
+            return op(SIPUSH, value);
+        }
+
+        public Code ldc(int index) {
+            return op(LDC_W, index);
+        }
+
+        public Code invokeInterface(int index, int argSlots) {
+            op(INVOKEINTERFACE, index);
+            mBuffer.write(argSlots + 1);
+            mBuffer.write(0);
+            return this;
+        }
+
+        public void end(int maxStack, int maxLocals) {
+            byte[] code = mBuffer.toByteArray();
+            try {
+                mMethods.writeShort(mAccess);
+                mMethods.writeShort(mName);
+                mMethods.writeShort(mDescriptor);
+                mMethods.writeShort(1);
+                mMethods.writeShort(utf8("Code"));
+                mMethods.writeInt(12 + code.length);
+                mMethods.writeShort(maxStack);
+                mMethods.writeShort(maxLocals);
+                mMethods.writeInt(code.length);
+                mMethods.write(code);
+                mMethods.writeShort(0);
+                mMethods.writeShort(0);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            mMethodCount++;
+        }
+    }
+
+    private int constant(String key, int tag, int a, int b, String utf) {
+        Integer index = mPoolIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            mPool.writeByte(tag);
+            if (utf != null) {
+                mPool.writeUTF(utf);
+            } else if (b < 0) {
+                mPool.writeShort(a);
+            } else {
+                mPool.writeShort(a);
+                mPool.writeShort(b);
+            }
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        mPoolIndices.put(key, mPoolCount);
+        return mPoolCount++;
+    }
+
+    public int utf8(String value) {
+        return constant("U" + value, CONSTANT_UTF8, 0, 0, value);
+    }
+
+    public int classRef(String internalName) {
+        return constant("C" + internalName, CONSTANT_CLASS, utf8(internalName), -1, null);
+    }
+
+    public int string(String value) {
+        return constant("S" + value, CONSTANT_STRING, utf8(value), -1, null);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return constant("N" + name + ":" + descriptor, CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor), null);
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return constant("F" + owner + "." + name + ":" + descriptor,
+            CONSTANT_FIELDREF, classRef(owner), nameAndType(name, descriptor), null);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return constant("M" + owner + "." + name + ":" + descriptor,
+            CONSTANT_METHODREF, classRef(owner), nameAndType(name, descriptor), null);
+    }
+
+    public int interfaceMethodRef(String owner, String name, String descriptor) {
+        return constant("I" + owner + "." + name + ":" + descriptor,
+            CONSTANT_INTERFACE_METHODREF, classRef(owner), nameAndType(name, descriptor), null);
+    }
+
+    public void field(int access, String name, String descriptor) {
+        try {
+            mFields.writeShort(access);
+            mFields.writeShort(utf8(name));
+            mFields.writeShort(utf8(descriptor));
+            mFields.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        mFieldCount++;
+    }
+
+    public Code method(int access, String name, String descriptor) {
+        return new Code(access, name, descriptor);
+    }
+
+    public byte[] toByteArray(int access, String thisClass, String superClass, String[] interfaces) {
+        int thisIndex = classRef(thisClass);
+        int superIndex = classRef(superClass);
+        int[] interfaceIndices = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; ++i) {
+            interfaceIndices[i] = classRef(interfaces[i]);
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        try {
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            out.writeShort(mPoolCount);
+            mPoolBuffer.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisIndex);
+            out.writeShort(superIndex);
+            out.writeShort(interfaceIndices.length);
+            for (int index : interfaceIndices) {
+                out.writeShort(index);
+            }
+            out.writeShort(mFieldCount);
+            mFieldBuffer.writeTo(out);
+            out.writeShort(mMethodCount);
+            mMethodBuffer.writeTo(out);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return buffer.toByteArray();
+    }
+}
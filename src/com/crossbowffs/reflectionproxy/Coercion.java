@@ -0,0 +1,296 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+
+/**
+ * A conversion between a value of a proxy method signature type and
+ * the corresponding target member type, chosen once at bind time.
+ * Dispatchers keep one coercion per argument and return value, so
+ * no type checks need to be made for slots that need no conversion.
+ */
+/* package */ abstract class Coercion {
+    /**
+     * Passes the value through unchanged.
+     */
+    public static final Coercion IDENTITY = new Coercion() {
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            return value;
+        }
+
+        @Override
+        public boolean requiresFilter() {
+            return false;
+        }
+    };
+
+    /**
+     * Unwraps any proxy into its target object, and passes all other
+     * values through unchanged. Used for {@link Object#equals(Object)},
+     * so that proxies compare equal to other proxies of equal targets.
+     */
+    public static final Coercion UNWRAP_ANY = new Coercion() {
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            if (value instanceof ProxyBase) {
+                return ProxyUtils.getProxyTarget((ProxyBase)value);
+            }
+            return value;
+        }
+    };
+
+    /**
+     * Converts the value.
+     *
+     * @param value The value to convert.
+     * @param inputProxy The proxy the method was called on, which is returned
+     *                   if the value is its target. May be null.
+     */
+    public abstract Object coerce(Object value, ProxyBase inputProxy);
+
+    /**
+     * Returns whether this conversion needs to be applied explicitly
+     * by method handle dispatchers. Conversions that are already
+     * performed by {@link java.lang.invoke.MethodHandle#asType} return false.
+     */
+    public boolean requiresFilter() {
+        return true;
+    }
+
+    /**
+     * Unwraps proxy arguments into their target objects.
+     */
+    private static final class UnwrapProxy extends Coercion {
+        private final Class<?> mActualType;
+
+        private UnwrapProxy(Class<?> actualType) {
+            mActualType = actualType;
+        }
+
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            if (value == null || mActualType.isInstance(value)) {
+                return value;
+            } else if (value instanceof ProxyBase) {
+                Object rawValue = ProxyUtils.getProxyTarget((ProxyBase)value);
+                if (mActualType.isInstance(rawValue)) {
+                    return rawValue;
+                }
+            }
+            throw new ProxyException(value.getClass().getName() +
+                " cannot be converted to " + mActualType.getName());
+        }
+    }
+
+    /**
+     * Wraps return values into proxies.
+     */
+    private static final class WrapProxy extends Coercion {
+        private final Class<?> mProxyType;
+        private final ProxyClassInfo mProxyInfo;
+        private final Class<?> mTargetType;
+
+        private WrapProxy(Class<?> proxyType) {
+            mProxyType = proxyType;
+            mProxyInfo = ProxyClassInfo.get(proxyType);
+            mTargetType = mProxyInfo.getTargetClass();
+        }
+
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            if (value == null || mProxyType.isInstance(value)) {
+                return value;
+            }
+            // Reuse the current proxy object if the target method uses `return this;`
+            // This reduces object allocations when performing method cascading (builder pattern)
+            if (inputProxy != null && mProxyType.isInstance(inputProxy) && value == ProxyUtils.getProxyTarget(inputProxy)) {
+                return inputProxy;
+            }
+            // Views of raw or erased types may contain anything
+            if (!mTargetType.isInstance(value)) {
+                throw new ProxyException(value.getClass().getName() +
+                    " cannot be converted to " + mProxyType.getName());
+            }
+            return mProxyInfo.newProxy(value);
+        }
+    }
+
+    /**
+     * Applies a widening primitive conversion to a boxed value.
+     */
+    private static final class WidenPrimitive extends Coercion {
+        private final Class<?> mToType;
+
+        private WidenPrimitive(Class<?> toType) {
+            mToType = toType;
+        }
+
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            if (value == null) {
+                return null;
+            }
+            Number number;
+            if (value instanceof Character) {
+                number = (int)(Character)value;
+            } else {
+                number = (Number)value;
+            }
+            if (mToType == long.class) {
+                return number.longValue();
+            } else if (mToType == double.class) {
+                return number.doubleValue();
+            } else if (mToType == float.class) {
+                return number.floatValue();
+            } else if (mToType == int.class) {
+                return number.intValue();
+            } else if (mToType == short.class) {
+                return number.shortValue();
+            }
+            throw new AssertionError(mToType);
+        }
+
+        @Override
+        public boolean requiresFilter() {
+            return false;
+        }
+    }
+
+    /**
+     * Converts lists, collections, maps and arrays into lazy views
+     * that convert their elements when they are accessed.
+     */
+    private static final class View extends Coercion {
+        private final Class<?> mViewType;
+        private final ProxyViews.Codec mCodec;
+
+        private View(Class<?> viewType, ProxyViews.Codec codec) {
+            mViewType = viewType;
+            mCodec = codec;
+        }
+
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            return ProxyViews.create(value, mViewType, mCodec);
+        }
+    }
+
+    /**
+     * Converts arrays by copying them and converting each element.
+     * Unlike collections, arrays cannot be viewed lazily, since the
+     * proxy array type is different from the target array type.
+     */
+    private static final class CopyArray extends Coercion {
+        private final Class<?> mComponentType;
+        private final Coercion mElementCoercion;
+
+        private CopyArray(Class<?> componentType, Coercion elementCoercion) {
+            mComponentType = componentType;
+            mElementCoercion = elementCoercion;
+        }
+
+        @Override
+        public Object coerce(Object value, ProxyBase inputProxy) {
+            if (value == null || mComponentType.isAssignableFrom(value.getClass().getComponentType())) {
+                return value;
+            }
+            int length = Array.getLength(value);
+            Object array = Array.newInstance(mComponentType, length);
+            for (int i = 0; i < length; ++i) {
+                Array.set(array, i, mElementCoercion.coerce(Array.get(value, i), null));
+            }
+            return array;
+        }
+    }
+
+    /**
+     * Returns whether {@code from} can be converted to {@code to} with
+     * a widening primitive conversion (JLS 5.1.2).
+     */
+    public static boolean isWideningPrimitive(Class<?> from, Class<?> to) {
+        if (from == byte.class) {
+            return to == short.class || to == int.class || to == long.class || to == float.class || to == double.class;
+        } else if (from == short.class || from == char.class) {
+            return to == int.class || to == long.class || to == float.class || to == double.class;
+        } else if (from == int.class) {
+            return to == long.class || to == float.class || to == double.class;
+        } else if (from == long.class) {
+            return to == float.class || to == double.class;
+        } else if (from == float.class) {
+            return to == double.class;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the coercion from a proxy argument type to the target argument
+     * type. The types must be compatible according to
+     * {@link ProxyUtils#isCoercibleInput(Type, Type)}.
+     */
+    public static Coercion forInput(Type genericProxyType, Class<?> actualType) {
+        Class<?> proxyType = ProxyUtils.getRawType(genericProxyType);
+        Class<?> elementType = ProxyUtils.getViewElementType(genericProxyType);
+        if (elementType != null) {
+            return new View(proxyType, ProxyViews.Codec.forInput(elementType));
+        } else if (actualType.isAssignableFrom(proxyType)) {
+            return IDENTITY;
+        } else if (proxyType.isPrimitive()) {
+            return new WidenPrimitive(actualType);
+        } else if (ProxyUtils.isProxyArray(proxyType)) {
+            Class<?> componentType = actualType.getComponentType();
+            return new CopyArray(componentType, forInput(proxyType.getComponentType(), componentType));
+        } else {
+            return new UnwrapProxy(actualType);
+        }
+    }
+
+    /**
+     * Creates the coercion from a target return type to the proxy return
+     * type. The types must be compatible according to
+     * {@link ProxyUtils#isCoercibleOutput(Type, Type)}.
+     */
+    public static Coercion forOutput(Type genericProxyType, Class<?> actualType) {
+        Class<?> proxyType = ProxyUtils.getRawType(genericProxyType);
+        Class<?> elementType = ProxyUtils.getViewElementType(genericProxyType);
+        if (elementType != null) {
+            return new View(proxyType, ProxyViews.Codec.forOutput(elementType));
+        } else if (proxyType.isAssignableFrom(actualType)) {
+            return IDENTITY;
+        } else if (proxyType.isPrimitive()) {
+            return new WidenPrimitive(proxyType);
+        } else if (ProxyUtils.isProxyArray(proxyType)) {
+            Class<?> componentType = proxyType.getComponentType();
+            return new CopyArray(componentType, forOutput(componentType, actualType.getComponentType()));
+        } else {
+            return new WrapProxy(proxyType);
+        }
+    }
+
+    /**
+     * Creates the coercions for a list of arguments. Returns null if
+     * none of the arguments need to be converted.
+     */
+    public static Coercion[] forInputs(Type[] proxyTypes, Class<?>[] actualTypes) {
+        Coercion[] coercions = new Coercion[proxyTypes.length];
+        boolean isIdentity = true;
+        for (int i = 0; i < proxyTypes.length; ++i) {
+            coercions[i] = forInput(proxyTypes[i], actualTypes[i]);
+            isIdentity &= coercions[i] == IDENTITY;
+        }
+        return isIdentity ? null : coercions;
+    }
+
+    /**
+     * Converts the arguments in place. {@code coercions} may be null,
+     * in which case the arguments are left unchanged.
+     */
+    public static void coerceArgs(Coercion[] coercions, Object[] args) {
+        if (coercions == null) {
+            return;
+        }
+        for (int i = 0; i < coercions.length; ++i) {
+            args[i] = coercions[i].coerce(args[i], null);
+        }
+    }
+}
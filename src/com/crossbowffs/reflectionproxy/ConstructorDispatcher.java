@@ -1,23 +1,46 @@
 package com.crossbowffs.reflectionproxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /* package */ class ConstructorDispatcher extends ProxyDispatcherBase {
     private final Constructor<?> mConstructor;
-    private final Class<?>[] mArgTypes;
-    private final Class<?> mExpectedType;
+    private final Coercion[] mArgCoercions;
+    private final Coercion mReturnCoercion;
+    private final ExceptionPolicy mExceptionPolicy;
 
-    private ConstructorDispatcher(Constructor<?> constructor, Class<?> expectedType) {
+    private ConstructorDispatcher(Constructor<?> constructor, Coercion[] argCoercions,
+                                  Coercion returnCoercion, ExceptionPolicy exceptionPolicy) {
         mConstructor = constructor;
-        mArgTypes = constructor.getParameterTypes();
-        mExpectedType = expectedType;
+        mArgCoercions = argCoercions;
+        mReturnCoercion = returnCoercion;
+        mExceptionPolicy = exceptionPolicy;
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mConstructor;
+    }
+
+    @Override
+    protected void coerceArguments(Object[] args) {
+        Coercion.coerceArgs(mArgCoercions, args);
     }
 
     @Override
     public Object handle(ProxyBase proxy, Object target, Object[] args) {
-        ProxyUtils.coerceArgs(mArgTypes, args);
+        coerceArguments(args);
+        return invoke(proxy, target, args);
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
         Object newObject;
         try {
             newObject = mConstructor.newInstance(args);
@@ -28,25 +51,43 @@ import java.lang.reflect.Method;
         } catch (InstantiationException e) {
             throw new ProxyException("Cannot instantiate an abstract class", e);
         } catch (InvocationTargetException e) {
-            throw new ProxyException("Target method threw an exception", e.getCause());
+            throw mExceptionPolicy.rethrow(e.getCause());
         }
-        return ProxyUtils.coerceOutput(mExpectedType, newObject, null);
+        return mReturnCoercion.coerce(newObject, null);
+    }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        // Abstract classes must fail when called, not when bound
+        if (Modifier.isAbstract(mConstructor.getDeclaringClass().getModifiers())) {
+            return null;
+        }
+        MethodHandle handle;
+        try {
+            handle = ProxyHandles.lookup().unreflectConstructor(mConstructor);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        handle = ProxyHandles.wrapTargetExceptions(handle, mExceptionPolicy);
+        handle = MethodHandles.dropArguments(handle, 0, ProxyBase.class, Object.class);
+        handle = ProxyHandles.coerceArguments(handle, type, mArgCoercions);
+        handle = ProxyHandles.coerceReturn(handle, type.returnType(), mReturnCoercion, false);
+        return handle.asType(type);
     }
 
     private static Constructor<?> findConstructor(Class<?> targetClass, Method proxyMethod) {
         Class<?>[] argTypes = proxyMethod.getParameterTypes();
         ProxyUtils.coerceArgTypes(argTypes);
+        Constructor<?> constructor;
         try {
-            return targetClass.getConstructor(argTypes);
-        } catch (NoSuchMethodException e1) {
-            try {
-                return targetClass.getDeclaredConstructor(argTypes);
-            } catch (NoSuchMethodException e2) {
-                throw new ProxyException("Could not find target constructor from signature: " + proxyMethod.toString(), e2);
-            }
+            constructor = MemberIndex.get(targetClass).findConstructor(argTypes);
         } catch (SecurityException e) {
             throw new ProxyException("Cannot access constructor of class " + targetClass.getName());
         }
+        if (constructor == null) {
+            throw new ProxyException("Could not find target constructor from signature: " + proxyMethod.toString());
+        }
+        return constructor;
     }
 
     public static ConstructorDispatcher create(Class<?> targetClass, Method proxyMethod, ProxyConstructor annotation) {
@@ -59,7 +100,11 @@ import java.lang.reflect.Method;
                 ") cannot be converted to proxy constructor return type (" + expectedType.getName() + ")");
         }
         Constructor<?> targetConstructor = findConstructor(targetClass, proxyMethod);
+        ProxyUtils.checkParameterTypes(proxyMethod, targetConstructor.getGenericParameterTypes());
         targetConstructor.setAccessible(true);
-        return new ConstructorDispatcher(targetConstructor, expectedType);
+        Coercion[] argCoercions = Coercion.forInputs(proxyMethod.getGenericParameterTypes(), targetConstructor.getParameterTypes());
+        Coercion returnCoercion = Coercion.forOutput(expectedType, targetClass);
+        return new ConstructorDispatcher(targetConstructor, argCoercions, returnCoercion,
+            ExceptionPolicy.forMethod(proxyMethod));
     }
 }
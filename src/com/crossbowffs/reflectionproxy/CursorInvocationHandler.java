@@ -0,0 +1,29 @@
+package com.crossbowffs.reflectionproxy;
+
+/**
+ * Invocation handler for cursor proxies, whose target can be changed
+ * after creation. Not thread-safe: a cursor proxy must only be used
+ * by one thread at a time.
+ */
+/* package */ class CursorInvocationHandler extends ReflectionInvocationHandler {
+    private final Class<?> mTargetClass;
+    private Object mCursorTarget;
+
+    public CursorInvocationHandler(DispatchTable dispatchTable) {
+        super(dispatchTable, null);
+        mTargetClass = dispatchTable.getTargetClass();
+    }
+
+    @Override
+    public Object getTarget() {
+        return mCursorTarget;
+    }
+
+    public void setTarget(Object target) {
+        if (target != null && !mTargetClass.isInstance(target)) {
+            throw new ProxyException("Proxy cannot be applied to target (expected " +
+                mTargetClass.getName() + ", got " + target.getClass().getName() + ")");
+        }
+        mCursorTarget = target;
+    }
+}
@@ -0,0 +1,226 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-interface table of dispatchers, indexed by method slot.
+ *
+ * <p>
+ * The slots are computed once from the methods of the proxy interface.
+ * Dispatchers are still created lazily on first use of each slot, so
+ * binding errors are only reported when the method is called. All reads
+ * are lock-free: dispatchers are published through an atomic array, and
+ * the {@link Method} objects passed to {@link java.lang.reflect.Proxy}
+ * invocation handlers are mapped to slots through an identity table
+ * that is copied on write, so the steady-state lookup never calls
+ * {@link Method#hashCode()} or {@link Method#equals(Object)}.
+ */
+/* package */ final class DispatchTable {
+    private final Class<?> mProxyClass;
+    private final Class<?> mTargetClass;
+    private final Method[] mMethods;
+    private final Map<String, Integer> mSlotsBySignature;
+    private final AtomicReferenceArray<ProxyDispatcherBase> mDispatchers;
+    private final AtomicReference<SlotIndex> mSlotIndex;
+
+    /**
+     * Open-addressed identity hash table from {@link Method} instances
+     * to slots. Instances are immutable; adding a key creates a new index.
+     */
+    private static final class SlotIndex {
+        private final Method[] mKeys;
+        private final int[] mSlots;
+        private final int mSize;
+
+        private SlotIndex(int capacity) {
+            mKeys = new Method[capacity];
+            mSlots = new int[capacity];
+            mSize = 0;
+        }
+
+        private SlotIndex(SlotIndex old, Method key, int slot) {
+            int capacity = old.mKeys.length;
+            if ((old.mSize + 1) * 2 > capacity) {
+                capacity *= 2;
+            }
+            mKeys = new Method[capacity];
+            mSlots = new int[capacity];
+            mSize = old.mSize + 1;
+            for (int i = 0; i < old.mKeys.length; ++i) {
+                if (old.mKeys[i] != null) {
+                    insert(old.mKeys[i], old.mSlots[i]);
+                }
+            }
+            insert(key, slot);
+        }
+
+        private void insert(Method key, int slot) {
+            int mask = mKeys.length - 1;
+            int i = System.identityHashCode(key) & mask;
+            while (mKeys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            mKeys[i] = key;
+            mSlots[i] = slot;
+        }
+
+        public int get(Method key) {
+            int mask = mKeys.length - 1;
+            int i = System.identityHashCode(key) & mask;
+            Method k;
+            while ((k = mKeys[i]) != null) {
+                if (k == key) {
+                    return mSlots[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return -1;
+        }
+    }
+
+    public DispatchTable(Class<?> proxyClass, Class<?> targetClass) {
+        mProxyClass = proxyClass;
+        mTargetClass = targetClass;
+        List<Method> methods = getProxyMethods(proxyClass);
+        mMethods = methods.toArray(new Method[methods.size()]);
+        mSlotsBySignature = new HashMap<String, Integer>();
+        for (int i = 0; i < mMethods.length; ++i) {
+            mSlotsBySignature.put(getSignature(mMethods[i]), i);
+        }
+        mDispatchers = new AtomicReferenceArray<ProxyDispatcherBase>(mMethods.length);
+        int capacity = Integer.highestOneBit(Math.max(mMethods.length, 1) * 2) * 2;
+        mSlotIndex = new AtomicReference<SlotIndex>(new SlotIndex(capacity));
+    }
+
+    private static String getSignature(Method method) {
+        return getSignature(method.getName(), MethodType.methodType(method.getReturnType(), method.getParameterTypes()));
+    }
+
+    private static String getSignature(String name, MethodType type) {
+        return name + type.toMethodDescriptorString();
+    }
+
+    private static List<Method> getProxyMethods(Class<?> proxyClass) {
+        List<Method> methods = new ArrayList<Method>();
+        try {
+            // Like java.lang.reflect.Proxy, these are always dispatched
+            // using the Method objects declared by Object
+            methods.add(Object.class.getMethod("hashCode"));
+            methods.add(Object.class.getMethod("equals", Object.class));
+            methods.add(Object.class.getMethod("toString"));
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+        Set<String> signatures = new HashSet<String>();
+        for (Method method : methods) {
+            signatures.add(getSignature(method));
+        }
+        for (Method method : proxyClass.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (signatures.add(getSignature(method))) {
+                methods.add(method);
+            }
+        }
+        return methods;
+    }
+
+    public Class<?> getTargetClass() {
+        return mTargetClass;
+    }
+
+    public int getSlotCount() {
+        return mMethods.length;
+    }
+
+    public Method getMethod(int slot) {
+        return mMethods[slot];
+    }
+
+    /**
+     * Gets the slot of the specified proxy method. The method does not
+     * need to be the same instance returned by {@link #getMethod(int)};
+     * any method with the same name and signature maps to the same slot.
+     */
+    public int getSlot(Method proxyMethod) {
+        int slot = mSlotIndex.get().get(proxyMethod);
+        if (slot < 0) {
+            slot = addSlot(proxyMethod);
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the slot of the proxy method with the specified name and type.
+     */
+    public int getSlot(String name, MethodType type) {
+        Integer slot = mSlotsBySignature.get(getSignature(name, type));
+        if (slot == null) {
+            throw new ProxyException("Method does not belong to proxy interface: " + name + type);
+        }
+        return slot;
+    }
+
+    /**
+     * Finds the slot of the proxy method with the specified name and
+     * parameter types. Returns -1 if there is no such method.
+     */
+    public int findSlot(String name, Class<?>[] parameterTypes) {
+        for (int i = 0; i < mMethods.length; ++i) {
+            Method method = mMethods[i];
+            if (method.getName().equals(name) && Arrays.equals(method.getParameterTypes(), parameterTypes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int addSlot(Method proxyMethod) {
+        Integer slot = mSlotsBySignature.get(getSignature(proxyMethod));
+        if (slot == null) {
+            throw new ProxyException("Method does not belong to proxy interface: " + proxyMethod.toString());
+        }
+        while (true) {
+            SlotIndex index = mSlotIndex.get();
+            if (index.get(proxyMethod) >= 0) {
+                return slot;
+            }
+            if (mSlotIndex.compareAndSet(index, new SlotIndex(index, proxyMethod, slot))) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Gets the dispatcher for the specified slot, creating it if necessary.
+     * If the binding is invalid, an exception is thrown and nothing is cached,
+     * so every call to an invalid binding fails the same way.
+     */
+    public ProxyDispatcherBase getDispatcher(int slot) {
+        ProxyDispatcherBase dispatcher = mDispatchers.get(slot);
+        if (dispatcher == null) {
+            dispatcher = ProxyDispatcherBase.create(mProxyClass, mTargetClass, mMethods[slot]);
+            dispatcher = ProxyMetrics.instrument(mProxyClass, mMethods[slot], dispatcher);
+            if (!mDispatchers.compareAndSet(slot, null, dispatcher)) {
+                dispatcher = mDispatchers.get(slot);
+            }
+        }
+        return dispatcher;
+    }
+
+    public ProxyDispatcherBase getDispatcher(Method proxyMethod) {
+        return getDispatcher(getSlot(proxyMethod));
+    }
+}
@@ -0,0 +1,92 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Method;
+
+/**
+ * Decides how exceptions thrown by a target member are reported by a
+ * proxy method. By default, every exception is wrapped in a
+ * {@link ProxyException}; see {@link ProxyTransparentExceptions} for
+ * the transparent mode. The policy of each proxy method is resolved
+ * once when it is bound.
+ */
+/* package */ final class ExceptionPolicy {
+    private static final String MESSAGE = "Target method threw an exception";
+    public static final ExceptionPolicy WRAP = new ExceptionPolicy(MESSAGE, null);
+
+    private final String mMessage;
+    // Checked exception types that are rethrown as-is, or null to wrap everything
+    private final Class<?>[] mDeclaredTypes;
+
+    private ExceptionPolicy(String message, Class<?>[] declaredTypes) {
+        mMessage = message;
+        mDeclaredTypes = declaredTypes;
+    }
+
+    /**
+     * Gets a policy that wraps every exception, like {@link #WRAP},
+     * but with a different message. For exceptions thrown by members
+     * other than the target member (e.g. snapshot constructors).
+     */
+    public static ExceptionPolicy wrap(String message) {
+        return new ExceptionPolicy(message, null);
+    }
+
+    /**
+     * Gets the policy for the specified proxy method, from the annotation
+     * on the method or on the interface declaring it.
+     */
+    public static ExceptionPolicy forMethod(Method proxyMethod) {
+        ProxyTransparentExceptions annotation = proxyMethod.getAnnotation(ProxyTransparentExceptions.class);
+        if (annotation == null) {
+            annotation = proxyMethod.getDeclaringClass().getAnnotation(ProxyTransparentExceptions.class);
+        }
+        if (annotation == null || !annotation.value()) {
+            return WRAP;
+        }
+        return new ExceptionPolicy(MESSAGE, proxyMethod.getExceptionTypes());
+    }
+
+    private boolean isTransparent(Throwable e) {
+        if (mDeclaredTypes == null) {
+            return false;
+        }
+        if (e instanceof RuntimeException || e instanceof Error) {
+            return true;
+        }
+        for (Class<?> declaredType : mDeclaredTypes) {
+            if (declaredType.isInstance(e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> RuntimeException throwAs(Throwable e) throws T {
+        throw (T)e;
+    }
+
+    /**
+     * Throws a checked exception without declaring it. Only for
+     * exceptions that the calling proxy method declares.
+     */
+    public static RuntimeException throwUnchecked(Throwable e) {
+        throw ExceptionPolicy.<RuntimeException>throwAs(e);
+    }
+
+    /**
+     * Throws the exception that the proxy method should throw when
+     * the target member throws the specified exception. Declared to
+     * return an exception so callers can write {@code throw rethrow(e)}.
+     */
+    public RuntimeException rethrow(Throwable e) {
+        if (mDeclaredTypes == null) {
+            throw new ProxyException(mMessage, e);
+        }
+        if (isTransparent(e)) {
+            // The proxy method declares it, so this does not break its contract
+            throw throwUnchecked(e);
+        }
+        throw new ProxyException(mMessage, e, false);
+    }
+}
@@ -1,15 +1,25 @@
 package com.crossbowffs.reflectionproxy;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
 
 /* package */ abstract class FieldDispatcher extends ProxyDispatcherBase {
     protected final Field mField;
-    protected final Class<?> mExpectedType;
+    protected final Coercion mCoercion;
+    protected final boolean mIsStatic;
 
-    protected FieldDispatcher(Field field, Class<?> expectedType) {
+    protected FieldDispatcher(Field field, Coercion coercion) {
         mField = field;
-        mExpectedType = expectedType;
+        mCoercion = coercion;
+        mIsStatic = Modifier.isStatic(field.getModifiers());
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mField;
     }
 
     private static String getFieldNameForMethod(Method proxyMethod, ProxyField annotation) {
@@ -27,15 +37,11 @@ import java.lang.reflect.Method;
     }
 
     private static Field findField(Class<?> targetClass, String fieldName) {
-        try {
-            return targetClass.getField(fieldName);
-        } catch (NoSuchFieldException e1) {
-            try {
-                return targetClass.getDeclaredField(fieldName);
-            } catch (NoSuchFieldException e2) {
-                throw new ProxyException("Could not find target field: " + fieldName, e2);
-            }
+        Field field = MemberIndex.get(targetClass).findField(fieldName);
+        if (field == null) {
+            throw new ProxyException("Could not find target field: " + fieldName);
         }
+        return field;
     }
 
     public static FieldDispatcher create(Class<?> targetClass, Method proxyMethod, ProxyField annotation) {
@@ -48,13 +54,15 @@ import java.lang.reflect.Method;
         Class<?> expectedFieldType;
         if (returnType == void.class && argTypes.length == 1) {
             expectedFieldType = argTypes[0];
-            if (ProxyUtils.isCoercibleInput(expectedFieldType, fieldType)) {
-                return new FieldSetterDispatcher(field, expectedFieldType);
+            Type genericType = proxyMethod.getGenericParameterTypes()[0];
+            if (ProxyUtils.isCoercibleInput(genericType, field.getGenericType())) {
+                return new FieldSetterDispatcher(field, Coercion.forInput(genericType, fieldType));
             }
         } else if (returnType != void.class && argTypes.length == 0) {
             expectedFieldType = returnType;
-            if (ProxyUtils.isCoercibleOutput(expectedFieldType, fieldType)) {
-                return new FieldGetterDispatcher(field, expectedFieldType);
+            Type genericType = proxyMethod.getGenericReturnType();
+            if (ProxyUtils.isCoercibleOutput(genericType, field.getGenericType())) {
+                return new FieldGetterDispatcher(field, Coercion.forOutput(genericType, fieldType));
             }
         } else {
             throw new ProxyException("Invalid field accessor signature: " + proxyMethod.toString());
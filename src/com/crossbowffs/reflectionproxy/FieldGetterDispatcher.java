@@ -1,22 +1,38 @@
 package com.crossbowffs.reflectionproxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 
 /* package */ class FieldGetterDispatcher extends FieldDispatcher {
-    public FieldGetterDispatcher(Field field, Class<?> expectedType) {
-        super(field, expectedType);
+    private static final String STATIC_PROXY_MESSAGE = "Attempted to get instance field on static proxy";
+
+    public FieldGetterDispatcher(Field field, Coercion coercion) {
+        super(field, coercion);
     }
 
     @Override
     public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        Object receiver = getReceiver(mIsStatic, target, STATIC_PROXY_MESSAGE);
         Object value;
         try {
-            value = mField.get(target);
+            value = mField.get(receiver);
         } catch (IllegalAccessException e) {
             throw new AssertionError(e);
-        } catch (NullPointerException e) {
-            throw new ProxyException("Attempted to get instance field on static proxy", e);
         }
-        return ProxyUtils.coerceOutput(mExpectedType, value, proxy);
+        return mCoercion.coerce(value, proxy);
+    }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        MethodHandle handle;
+        try {
+            handle = ProxyHandles.lookup().unreflectGetter(mField);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        handle = ProxyHandles.bindReceiver(handle, mIsStatic, STATIC_PROXY_MESSAGE);
+        handle = ProxyHandles.coerceReturn(handle, type.returnType(), mCoercion, true);
+        return handle.asType(type);
     }
 }
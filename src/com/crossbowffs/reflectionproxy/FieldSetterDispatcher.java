@@ -1,22 +1,48 @@
 package com.crossbowffs.reflectionproxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 
 /* package */ class FieldSetterDispatcher extends FieldDispatcher {
-    public FieldSetterDispatcher(Field field, Class<?> expectedType) {
-        super(field, expectedType);
+    private static final String STATIC_PROXY_MESSAGE = "Attempted to set instance field on static proxy";
+
+    public FieldSetterDispatcher(Field field, Coercion coercion) {
+        super(field, coercion);
+    }
+
+    @Override
+    protected void coerceArguments(Object[] args) {
+        args[0] = mCoercion.coerce(args[0], null);
     }
 
     @Override
     public Object handle(ProxyBase proxy, Object target, Object[] args) {
-        Object value = ProxyUtils.coerceInput(mField.getType(), args[0]);
+        coerceArguments(args);
+        return invoke(proxy, target, args);
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        Object receiver = getReceiver(mIsStatic, target, STATIC_PROXY_MESSAGE);
         try {
-            mField.set(target, value);
+            mField.set(receiver, args[0]);
         } catch (IllegalAccessException e) {
             throw new AssertionError(e);
-        } catch (NullPointerException e) {
-            throw new ProxyException("Attempted to set instance field on static proxy", e);
         }
         return null;
     }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        MethodHandle handle;
+        try {
+            handle = ProxyHandles.lookup().unreflectSetter(mField);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        handle = ProxyHandles.bindReceiver(handle, mIsStatic, STATIC_PROXY_MESSAGE);
+        handle = ProxyHandles.coerceArguments(handle, type, new Coercion[] {mCoercion});
+        return handle.asType(type);
+    }
 }
@@ -0,0 +1,35 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+/**
+ * Base class of all generated proxy classes, both those generated at
+ * runtime for interfaces annotated with {@link ProxyGenerated}, and those
+ * generated at compile time by the ReflectionProxy annotation processor.
+ * This class is an implementation detail; you should never need to
+ * reference it directly.
+ */
+public abstract class GeneratedProxy {
+    protected final Object mTarget;
+
+    protected GeneratedProxy(Object target) {
+        mTarget = target;
+    }
+
+    /**
+     * Binds a proxy method, returning a handle that takes
+     * {@code (ProxyBase proxy, Object target, <args>)} and calls the
+     * target member. Called from the static initializers of proxy classes
+     * generated at compile time. The handle goes through a call site that
+     * is reset when the proxy interface is evicted, so the method is bound
+     * again instead of keeping its old binding alive.
+     *
+     * @param proxyClass The proxy interface.
+     * @param name The name of the proxy method.
+     * @param type The type of the proxy method.
+     */
+    protected static MethodHandle bindHandle(Class<?> proxyClass, String name, MethodType type) {
+        return ProxyCallSite.create(proxyClass, name, type).dynamicInvoker();
+    }
+}
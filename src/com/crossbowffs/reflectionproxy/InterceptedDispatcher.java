@@ -0,0 +1,56 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Dispatcher that runs the interceptors of a proxy method around another
+ * dispatcher. The arguments are converted before the first interceptor
+ * is called, so interceptors see the same values as the target member.
+ */
+/* package */ class InterceptedDispatcher extends ProxyDispatcherBase {
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final ProxyDispatcherBase mDispatcher;
+    private final Method mProxyMethod;
+    private final ProxyInterceptor[] mInterceptors;
+
+    public InterceptedDispatcher(ProxyDispatcherBase dispatcher, Method proxyMethod, ProxyInterceptor[] interceptors) {
+        mDispatcher = dispatcher;
+        mProxyMethod = proxyMethod;
+        mInterceptors = interceptors;
+    }
+
+    public Method getProxyMethod() {
+        return mProxyMethod;
+    }
+
+    public ProxyInterceptor[] getInterceptors() {
+        return mInterceptors;
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mDispatcher.getTargetMember();
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        return mDispatcher.invoke(proxy, target, args);
+    }
+
+    @Override
+    public void prepare() {
+        mDispatcher.prepare();
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        if (args == null) {
+            // java.lang.reflect.Proxy passes null for methods without parameters
+            args = NO_ARGS;
+        }
+        mDispatcher.coerceArguments(args);
+        return new ProxyInvocation(this, proxy, target, args).proceed();
+    }
+}
@@ -0,0 +1,118 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of all members of a target class that proxies can bind to,
+ * keyed by name and erased parameter types. Includes the members declared
+ * by the class itself, and the members it inherits from its superclasses
+ * and interfaces, whatever their access modifiers are (so a private field
+ * declared by a superclass can be bound too). Declared members hide
+ * inherited members with the same name and parameter types.
+ *
+ * <p>
+ * Each index is built once per class, from the index of its superclass,
+ * and cached with a {@link ClassValue}, so it does not keep the class
+ * from being unloaded. Lookups never throw.
+ */
+/* package */ final class MemberIndex {
+    private static final ClassValue<MemberIndex> sIndexes = new ClassValue<MemberIndex>() {
+        @Override
+        protected MemberIndex computeValue(Class<?> cls) {
+            return new MemberIndex(cls);
+        }
+    };
+
+    private final Map<String, Method> mMethods;
+    private final Map<String, Field> mFields;
+    private final Map<String, Constructor<?>> mConstructors;
+
+    private MemberIndex(Class<?> cls) {
+        mMethods = new HashMap<String, Method>();
+        mFields = new HashMap<String, Field>();
+        mConstructors = new HashMap<String, Constructor<?>>();
+
+        for (Method method : cls.getDeclaredMethods()) {
+            String key = getKey(method.getName(), method.getParameterTypes());
+            Method existing = mMethods.get(key);
+            // Prefer the method with the most specific return type over its bridge methods
+            if (existing == null || (existing.isBridge() && !method.isBridge())) {
+                mMethods.put(key, method);
+            }
+        }
+        for (Field field : cls.getDeclaredFields()) {
+            mFields.put(field.getName(), field);
+        }
+        for (Constructor<?> constructor : cls.getDeclaredConstructors()) {
+            mConstructors.put(getKey("<init>", constructor.getParameterTypes()), constructor);
+        }
+
+        Class<?> superclass = cls.getSuperclass();
+        if (superclass != null) {
+            inherit(get(superclass));
+        }
+        for (Class<?> iface : cls.getInterfaces()) {
+            inherit(get(iface));
+        }
+        if (cls.isInterface()) {
+            // Every object implementing an interface is still an Object
+            inherit(get(Object.class));
+        }
+    }
+
+    private void inherit(MemberIndex parent) {
+        for (Map.Entry<String, Method> entry : parent.mMethods.entrySet()) {
+            if (!mMethods.containsKey(entry.getKey())) {
+                mMethods.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Field> entry : parent.mFields.entrySet()) {
+            if (!mFields.containsKey(entry.getKey())) {
+                mFields.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static String getKey(String name, Class<?>[] parameterTypes) {
+        StringBuilder sb = new StringBuilder(name).append('(');
+        for (Class<?> parameterType : parameterTypes) {
+            sb.append(parameterType.getName()).append(',');
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Gets the member index of the specified class, building it if necessary.
+     */
+    public static MemberIndex get(Class<?> cls) {
+        return sIndexes.get(cls);
+    }
+
+    /**
+     * Finds a method declared or inherited by the class.
+     * Returns null if there is no such method.
+     */
+    public Method findMethod(String name, Class<?>[] parameterTypes) {
+        return mMethods.get(getKey(name, parameterTypes));
+    }
+
+    /**
+     * Finds a field declared or inherited by the class.
+     * Returns null if there is no such field.
+     */
+    public Field findField(String name) {
+        return mFields.get(name);
+    }
+
+    /**
+     * Finds a constructor declared by the class.
+     * Returns null if there is no such constructor.
+     */
+    public Constructor<?> findConstructor(Class<?>[] parameterTypes) {
+        return mConstructors.get(getKey("<init>", parameterTypes));
+    }
+}
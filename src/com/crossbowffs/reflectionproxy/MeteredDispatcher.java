@@ -0,0 +1,34 @@
+package com.crossbowffs.reflectionproxy;
+
+/**
+ * Dispatcher that records every call to another dispatcher in a
+ * {@link BindingMetrics}. Only created for bindings that are resolved
+ * while metrics are enabled, so unmetered bindings pay nothing.
+ */
+/* package */ class MeteredDispatcher extends ProxyDispatcherBase {
+    private final ProxyDispatcherBase mDispatcher;
+    private final BindingMetrics mMetrics;
+
+    public MeteredDispatcher(ProxyDispatcherBase dispatcher, BindingMetrics metrics) {
+        mDispatcher = dispatcher;
+        mMetrics = metrics;
+    }
+
+    @Override
+    public void prepare() {
+        mDispatcher.prepare();
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        long start = System.nanoTime();
+        boolean isError = true;
+        try {
+            Object result = mDispatcher.handle(proxy, target, args);
+            isError = false;
+            return result;
+        } finally {
+            mMetrics.record(System.nanoTime() - start, isError);
+        }
+    }
+}
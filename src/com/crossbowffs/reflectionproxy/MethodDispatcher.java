@@ -1,50 +1,93 @@
 package com.crossbowffs.reflectionproxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
 
 /* package */ class MethodDispatcher extends ProxyDispatcherBase {
+    private static final String STATIC_PROXY_MESSAGE = "Attempted to call instance method on static proxy";
+
     private final Method mMethod;
-    private final Class<?>[] mArgTypes;
-    private final Class<?> mExpectedReturnType;
+    private final boolean mIsStatic;
+    private final Coercion[] mArgCoercions;
+    private final Coercion mReturnCoercion;
+    private final ExceptionPolicy mExceptionPolicy;
 
-    private MethodDispatcher(Method method, Class<?> expectedReturnType) {
+    private MethodDispatcher(Method method, Coercion[] argCoercions, Coercion returnCoercion, ExceptionPolicy exceptionPolicy) {
         mMethod = method;
-        mArgTypes = method.getParameterTypes();
-        mExpectedReturnType = expectedReturnType;
+        mIsStatic = Modifier.isStatic(method.getModifiers());
+        mArgCoercions = argCoercions;
+        mReturnCoercion = returnCoercion;
+        mExceptionPolicy = exceptionPolicy;
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mMethod;
+    }
+
+    @Override
+    protected void coerceArguments(Object[] args) {
+        Coercion.coerceArgs(mArgCoercions, args);
     }
 
     @Override
     public Object handle(ProxyBase proxy, Object target, Object[] args) {
-        ProxyUtils.coerceArgs(mArgTypes, args);
+        coerceArguments(args);
+        return invoke(proxy, target, args);
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        Object receiver = getReceiver(mIsStatic, target, STATIC_PROXY_MESSAGE);
         Object returnValue;
         try {
-            returnValue = mMethod.invoke(target, args);
+            returnValue = mMethod.invoke(receiver, args);
         } catch (IllegalAccessException e) {
             throw new AssertionError(e);
         } catch (InvocationTargetException e) {
-            throw new ProxyException("Target method threw an exception", e.getCause());
-        } catch (NullPointerException e) {
-            throw new ProxyException("Attempted to call instance method on static proxy", e);
+            throw mExceptionPolicy.rethrow(e.getCause());
+        }
+        return mReturnCoercion.coerce(returnValue, proxy);
+    }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        MethodHandle handle;
+        try {
+            handle = ProxyHandles.lookup().unreflect(mMethod);
+        } catch (IllegalAccessException e) {
+            return null;
         }
-        return ProxyUtils.coerceOutput(mExpectedReturnType, returnValue, proxy);
+        handle = ProxyHandles.wrapTargetExceptions(handle, mExceptionPolicy);
+        handle = ProxyHandles.bindReceiver(handle, mIsStatic, STATIC_PROXY_MESSAGE);
+        handle = ProxyHandles.coerceArguments(handle, type, mArgCoercions);
+        handle = ProxyHandles.coerceReturn(handle, type.returnType(), mReturnCoercion, true);
+        return handle.asType(type);
     }
 
     private static Method findMethod(Class<?> targetClass, String methodName, Method proxyMethod) {
         Class<?>[] argTypes = proxyMethod.getParameterTypes();
         ProxyUtils.coerceArgTypes(argTypes);
-        try {
-            return targetClass.getMethod(methodName, argTypes);
-        } catch (NoSuchMethodException e1) {
-            try {
-                return targetClass.getDeclaredMethod(methodName, argTypes);
-            } catch (NoSuchMethodException e2) {
-                throw new ProxyException("Could not find target method from signature: " + proxyMethod.toString(), e2);
-            }
+        Method method = MemberIndex.get(targetClass).findMethod(methodName, argTypes);
+        if (method == null) {
+            throw new ProxyException("Could not find target method from signature: " + proxyMethod.toString());
         }
+        return method;
     }
 
-    public static MethodDispatcher create(Class<?> targetClass, Method proxyMethod, ProxyMethod annotation) {
+    private static boolean isObjectEquals(Method proxyMethod) {
+        return "equals".equals(proxyMethod.getName()) &&
+            proxyMethod.getReturnType() == boolean.class &&
+            proxyMethod.getParameterTypes().length == 1 &&
+            proxyMethod.getParameterTypes()[0] == Object.class;
+    }
+
+    public static ProxyDispatcherBase create(Class<?> targetClass, Method proxyMethod, ProxyMethod annotation) {
         String targetMethodName = "";
         if (annotation != null) {
             targetMethodName = annotation.value();
@@ -54,12 +97,35 @@ import java.lang.reflect.Method;
         }
         Method targetMethod = findMethod(targetClass, targetMethodName, proxyMethod);
         Class<?> actualReturnType = targetMethod.getReturnType();
+        Type genericActualReturnType = targetMethod.getGenericReturnType();
         Class<?> expectedReturnType = proxyMethod.getReturnType();
-        if (!ProxyUtils.isCoercibleOutput(expectedReturnType, actualReturnType)) {
+        Type genericReturnType = proxyMethod.getGenericReturnType();
+        boolean isAsync = AsyncDispatcher.isAsync(expectedReturnType, actualReturnType);
+        if (isAsync) {
+            // Coerce the target return value to the value type of the future instead
+            genericReturnType = AsyncDispatcher.getValueType(genericReturnType);
+            expectedReturnType = ProxyUtils.getRawType(genericReturnType);
+            actualReturnType = AsyncDispatcher.getBoxedType(actualReturnType);
+            if (actualReturnType != targetMethod.getReturnType()) {
+                genericActualReturnType = actualReturnType;
+            }
+        }
+        ProxyUtils.checkParameterTypes(proxyMethod, targetMethod.getGenericParameterTypes());
+        if (!ProxyUtils.isCoercibleOutput(genericReturnType, genericActualReturnType)) {
             throw new ProxyException("Target method return type (" + actualReturnType.getName() +
                 ") cannot be converted to proxy method return type (" + expectedReturnType.getName() + ")");
         }
         targetMethod.setAccessible(true);
-        return new MethodDispatcher(targetMethod, expectedReturnType);
+        Coercion[] argCoercions = Coercion.forInputs(proxyMethod.getGenericParameterTypes(), targetMethod.getParameterTypes());
+        if (isObjectEquals(proxyMethod)) {
+            argCoercions = new Coercion[] {Coercion.UNWRAP_ANY};
+        }
+        Coercion returnCoercion = Coercion.forOutput(genericReturnType, actualReturnType);
+        MethodDispatcher dispatcher = new MethodDispatcher(targetMethod, argCoercions, returnCoercion,
+            ExceptionPolicy.forMethod(proxyMethod));
+        if (isAsync) {
+            return AsyncDispatcher.create(dispatcher, proxyMethod, expectedReturnType, dispatcher.mIsStatic);
+        }
+        return dispatcher;
     }
 }
@@ -0,0 +1,137 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Dispatcher that calls the target member through a method handle,
+ * with all argument and return value coercions folded into the handle.
+ * Falls back to the reflective dispatcher if the member cannot be
+ * accessed through a method handle.
+ *
+ * <p>
+ * Composing the handle costs much more than a reflective call, so like
+ * core reflection's own inflation, the handle is only built once the
+ * method has been called {@link #HANDLE_THRESHOLD} times; until then,
+ * calls go through the reflective dispatcher. Methods that are only
+ * called a few times (e.g. at startup) never pay for the handle.
+ */
+/* package */ class MethodHandleDispatcher extends ProxyDispatcherBase {
+    private static final MethodType sGenericType = MethodType.methodType(
+        Object.class, ProxyBase.class, Object.class, Object[].class);
+
+    // Number of reflective calls before the handle is built
+    private static final int HANDLE_THRESHOLD = 16;
+
+    private final ProxyDispatcherBase mDispatcher;
+    private final MethodType mType;
+    private volatile MethodHandle mDirectHandle;
+    private volatile MethodHandle mHandle;
+    private volatile boolean mIsReflective;
+
+    // Racy on purpose; this only decides when to build the handle
+    private int mCallCount;
+
+    private MethodHandleDispatcher(ProxyDispatcherBase dispatcher, MethodType type) {
+        mDispatcher = dispatcher;
+        mType = type;
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mDispatcher.getTargetMember();
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        MethodHandle handle = mHandle;
+        if (handle == null) {
+            if (mIsReflective || ++mCallCount < HANDLE_THRESHOLD) {
+                return mDispatcher.handle(proxy, target, args);
+            }
+            handle = buildHandle();
+            if (handle == null) {
+                return mDispatcher.handle(proxy, target, args);
+            }
+        }
+        try {
+            return (Object)handle.invokeExact(proxy, target, args);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Target exceptions are already wrapped by the handle, unless
+            // the exception policy of the proxy method lets them through
+            throw ExceptionPolicy.throwUnchecked(e);
+        }
+    }
+
+    @Override
+    public void prepare() {
+        if (mHandle == null) {
+            buildHandle();
+        }
+    }
+
+    /**
+     * Builds the direct handle, or returns null if the member cannot be
+     * accessed through a method handle. Concurrent callers may build it
+     * more than once; all copies are equivalent.
+     */
+    private MethodHandle getDirectHandle() {
+        MethodHandle directHandle = mDirectHandle;
+        if (directHandle == null && !mIsReflective) {
+            try {
+                directHandle = mDispatcher.createDirectHandle(mType);
+            } catch (LinkageError e) {
+                // The runtime does not support the method handle API we need
+                directHandle = null;
+            }
+            if (directHandle == null) {
+                mIsReflective = true;
+            } else {
+                mDirectHandle = directHandle;
+            }
+        }
+        return directHandle;
+    }
+
+    private MethodHandle buildHandle() {
+        MethodHandle directHandle = getDirectHandle();
+        if (directHandle == null) {
+            return null;
+        }
+        MethodHandle handle = directHandle
+            .asSpreader(Object[].class, mType.parameterCount() - 2)
+            .asType(sGenericType);
+        mHandle = handle;
+        return handle;
+    }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        // Called when a constant handle is needed (e.g. by generated
+        // proxy classes), so there is no point in waiting any longer
+        MethodHandle directHandle = getDirectHandle();
+        if (directHandle == null) {
+            return null;
+        }
+        return directHandle.asType(type);
+    }
+
+    public static ProxyDispatcherBase wrap(ProxyDispatcherBase dispatcher, Method proxyMethod) {
+        return wrap(dispatcher, ProxyHandles.dispatchType(proxyMethod));
+    }
+
+    /**
+     * Same as {@link #wrap(ProxyDispatcherBase, Method)}, but takes the
+     * dispatch type directly, for dispatchers that do not correspond
+     * to the signature of a proxy method.
+     */
+    public static ProxyDispatcherBase wrap(ProxyDispatcherBase dispatcher, MethodType type) {
+        return new MethodHandleDispatcher(dispatcher, type);
+    }
+}
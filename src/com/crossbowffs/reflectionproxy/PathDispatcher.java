@@ -0,0 +1,215 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+
+/* package */ class PathDispatcher extends ProxyDispatcherBase {
+    private static final String STATIC_PROXY_MESSAGE = "Attempted to traverse instance path on static proxy";
+
+    private final String mPath;
+    private final String[] mSegments;
+    private final Member[] mMembers;
+    private final boolean mReturnDefault;
+    private final Class<?> mReturnType;
+    private final Coercion mCoercion;
+    private final ExceptionPolicy mExceptionPolicy;
+
+    private PathDispatcher(String path, String[] segments, Member[] members, boolean returnDefault,
+                           Class<?> returnType, Coercion coercion, ExceptionPolicy exceptionPolicy) {
+        mPath = path;
+        mSegments = segments;
+        mMembers = members;
+        mReturnDefault = returnDefault;
+        mReturnType = returnType;
+        mCoercion = coercion;
+        mExceptionPolicy = exceptionPolicy;
+    }
+
+    private static boolean isStatic(Member member) {
+        return Modifier.isStatic(member.getModifiers());
+    }
+
+    private static Class<?> getValueType(Member member) {
+        if (member instanceof Field) {
+            return ((Field)member).getType();
+        } else {
+            return ((Method)member).getReturnType();
+        }
+    }
+
+    private static Type getGenericValueType(Member member) {
+        if (member instanceof Field) {
+            return ((Field)member).getGenericType();
+        } else {
+            return ((Method)member).getGenericReturnType();
+        }
+    }
+
+    @Override
+    public Member getTargetMember() {
+        return mMembers[mMembers.length - 1];
+    }
+
+    private String getNullMessage(int index) {
+        return "Null value at " + mSegments[index] + " in path: " + mPath;
+    }
+
+    private Object getDefaultValue() {
+        if (mReturnType.isPrimitive()) {
+            return Array.get(Array.newInstance(mReturnType, 1), 0);
+        }
+        return null;
+    }
+
+    private Object get(Member member, Object receiver) {
+        try {
+            if (member instanceof Field) {
+                return ((Field)member).get(receiver);
+            } else {
+                return ((Method)member).invoke(receiver);
+            }
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (InvocationTargetException e) {
+            throw mExceptionPolicy.rethrow(e.getCause());
+        }
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        // Path accessors have no parameters, so there is nothing to convert
+        return invoke(proxy, target, args);
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        Object value = target;
+        for (int i = 0; i < mMembers.length; ++i) {
+            Member member = mMembers[i];
+            if (value == null && !isStatic(member)) {
+                if (i == 0) {
+                    throw new ProxyException(STATIC_PROXY_MESSAGE, new NullPointerException());
+                } else if (mReturnDefault) {
+                    return getDefaultValue();
+                } else {
+                    throw new ProxyException(getNullMessage(i - 1));
+                }
+            }
+            value = get(member, isStatic(member) ? null : value);
+        }
+        return mCoercion.coerce(value, null);
+    }
+
+    private MethodHandle getHandle(Member member) throws IllegalAccessException {
+        if (member instanceof Field) {
+            return ProxyHandles.lookup().unreflectGetter((Field)member);
+        } else {
+            return ProxyHandles.wrapTargetExceptions(ProxyHandles.lookup().unreflect((Method)member), mExceptionPolicy);
+        }
+    }
+
+    private MethodHandle guardNull(MethodHandle handle, int index) {
+        if (mReturnDefault) {
+            return ProxyHandles.defaultIfNull(handle);
+        } else {
+            return ProxyHandles.requireNonNull(handle, getNullMessage(index));
+        }
+    }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        MethodHandle[] handles = new MethodHandle[mMembers.length];
+        for (int i = 0; i < mMembers.length; ++i) {
+            try {
+                handles[i] = getHandle(mMembers[i]);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        // Build the path from the end: each step takes the value
+        // of the previous segment and returns the final result
+        Class<?> returnType = type.returnType();
+        Class<?> valueType = getValueType(mMembers[mMembers.length - 1]);
+        MethodHandle tail = MethodHandles.identity(valueType);
+        tail = ProxyHandles.coerceReturn(tail, returnType, mCoercion, false)
+            .asType(MethodType.methodType(returnType, valueType));
+        for (int i = mMembers.length - 1; i > 0; --i) {
+            Class<?> receiverType = getValueType(mMembers[i - 1]);
+            MethodHandle handle = handles[i];
+            if (isStatic(mMembers[i])) {
+                handle = MethodHandles.dropArguments(handle, 0, receiverType);
+            } else {
+                handle = handle.asType(handle.type().changeParameterType(0, receiverType));
+            }
+            tail = MethodHandles.filterReturnValue(handle, tail);
+            if (!receiverType.isPrimitive() && !isStatic(mMembers[i])) {
+                tail = guardNull(tail, i - 1);
+            }
+        }
+        MethodHandle head = ProxyHandles.bindReceiver(handles[0], isStatic(mMembers[0]), STATIC_PROXY_MESSAGE);
+        return MethodHandles.filterReturnValue(head, tail).asType(type);
+    }
+
+    private static Member findMember(Class<?> cls, String segment, String path) {
+        MemberIndex index = MemberIndex.get(cls);
+        AccessibleObject member;
+        if (segment.endsWith("()")) {
+            Method method = index.findMethod(segment.substring(0, segment.length() - 2), new Class<?>[0]);
+            if (method == null) {
+                throw new ProxyException("Could not find target method: " + segment + " in path: " + path);
+            }
+            if (method.getReturnType() == void.class) {
+                throw new ProxyException("Target method returns void: " + segment + " in path: " + path);
+            }
+            member = method;
+        } else {
+            Field field = index.findField(segment);
+            if (field == null) {
+                throw new ProxyException("Could not find target field: " + segment + " in path: " + path);
+            }
+            member = field;
+        }
+        member.setAccessible(true);
+        return (Member)member;
+    }
+
+    public static PathDispatcher create(Class<?> targetClass, Method proxyMethod, ProxyPath annotation) {
+        Class<?> returnType = proxyMethod.getReturnType();
+        if (returnType == void.class || proxyMethod.getParameterTypes().length != 0) {
+            throw new ProxyException("Invalid path accessor signature: " + proxyMethod.toString());
+        }
+        String path = annotation.value();
+        String[] segments = path.split("\\.", -1);
+        Member[] members = new Member[segments.length];
+        Class<?> valueType = targetClass;
+        for (int i = 0; i < segments.length; ++i) {
+            if (segments[i].isEmpty() || segments[i].equals("()")) {
+                throw new ProxyException("Invalid path: " + path);
+            }
+            if (valueType.isPrimitive()) {
+                throw new ProxyException("Cannot traverse primitive value at " + segments[i - 1] + " in path: " + path);
+            }
+            members[i] = findMember(valueType, segments[i], path);
+            valueType = getValueType(members[i]);
+        }
+        Type genericReturnType = proxyMethod.getGenericReturnType();
+        if (!ProxyUtils.isCoercibleOutput(genericReturnType, getGenericValueType(members[members.length - 1]))) {
+            throw new ProxyException("Path type (" + valueType.getName() +
+                ") cannot be converted to proxy method return type (" + returnType.getName() + ")");
+        }
+        boolean returnDefault = annotation.nullPolicy() == ProxyPath.NullPolicy.RETURN_DEFAULT;
+        Coercion coercion = Coercion.forOutput(genericReturnType, valueType);
+        return new PathDispatcher(path, segments, members, returnDefault, returnType, coercion,
+            ExceptionPolicy.forMethod(proxyMethod));
+    }
+}
@@ -0,0 +1,275 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Calls a single proxy method on many target objects at once, without
+ * creating a proxy for each target. Returned by
+ * {@link ProxyFactory#getBatch(Class, String, Class[])}.
+ *
+ * <p>
+ * The proxy method is bound once when the batch is created. Every call
+ * checks all target types up front, then calls the method on each target
+ * in order, storing the results in an array of the same length. Use
+ * {@link #invokeInt}, {@link #invokeLong} or {@link #invokeDouble} for
+ * primitive return types, so that results are never boxed.
+ *
+ * <p>
+ * Batches are immutable and thread-safe. By default, targets are visited
+ * sequentially on the calling thread; use {@link #parallel()} to split
+ * large batches across a fork-join pool. If a call throws, the exception
+ * is rethrown once all running calls have finished, and the remaining
+ * results are undefined.
+ */
+public final class ProxyBatch {
+    // Batches smaller than this are never split
+    private static final int PARALLEL_THRESHOLD = 2048;
+    private static final int MIN_CHUNK_SIZE = 512;
+
+    private final Class<?> mTargetClass;
+    private final MethodHandle mHandle;
+    private final int mParameterCount;
+    private final ForkJoinPool mPool;
+
+    /* package */ ProxyBatch(Class<?> targetClass, MethodHandle handle, ForkJoinPool pool) {
+        mTargetClass = targetClass;
+        mHandle = handle;
+        mParameterCount = handle.type().parameterCount() - 1;
+        mPool = pool;
+    }
+
+    /**
+     * Returns a batch that splits large batches across the common fork-join pool.
+     */
+    public ProxyBatch parallel() {
+        return parallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a batch that splits large batches across the specified fork-join pool.
+     */
+    public ProxyBatch parallel(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        return new ProxyBatch(mTargetClass, mHandle, pool);
+    }
+
+    /**
+     * Returns a batch that visits all targets sequentially on the calling thread.
+     */
+    public ProxyBatch sequential() {
+        if (mPool == null) {
+            return this;
+        }
+        return new ProxyBatch(mTargetClass, mHandle, null);
+    }
+
+    /**
+     * Visits a range of targets, storing the results into an output array.
+     */
+    private abstract static class Range {
+        protected abstract void run(int start, int end) throws Throwable;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveAction {
+        private final Range mRange;
+        private final int mStart;
+        private final int mEnd;
+        private final int mChunkSize;
+
+        private RangeTask(Range range, int start, int end, int chunkSize) {
+            mRange = range;
+            mStart = start;
+            mEnd = end;
+            mChunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= mChunkSize) {
+                runRange(mRange, mStart, mEnd);
+            } else {
+                int mid = (mStart + mEnd) >>> 1;
+                invokeAll(new RangeTask(mRange, mStart, mid, mChunkSize),
+                          new RangeTask(mRange, mid, mEnd, mChunkSize));
+            }
+        }
+    }
+
+    private static void runRange(Range range, int start, int end) {
+        try {
+            range.run(start, end);
+        } catch (Throwable e) {
+            // Target exceptions are already reported according to the
+            // exception policy of the proxy method by the handle
+            throw ExceptionPolicy.throwUnchecked(e);
+        }
+    }
+
+    private void run(Range range, int count) {
+        if (mPool == null || count < PARALLEL_THRESHOLD) {
+            runRange(range, 0, count);
+            return;
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, count / (mPool.getParallelism() * 4));
+        mPool.invoke(new RangeTask(range, 0, count, chunkSize));
+    }
+
+    private void checkTargets(Object[] targets) {
+        for (int i = 0; i < targets.length; ++i) {
+            Object target = targets[i];
+            if (target == null) {
+                throw new ProxyException("Target at index " + i + " is null");
+            }
+            if (!mTargetClass.isInstance(target)) {
+                throw new ProxyException("Proxy cannot be applied to target at index " + i + " (expected " +
+                    mTargetClass.getName() + ", got " + target.getClass().getName() + ")");
+            }
+        }
+    }
+
+    /**
+     * Binds the arguments, which are the same for every target,
+     * and converts the handle to {@code (Object target)returnType}.
+     */
+    private MethodHandle bind(Class<?> returnType, Object[] args) {
+        if (args.length != mParameterCount) {
+            throw new ProxyException("Wrong number of arguments (expected " +
+                mParameterCount + ", got " + args.length + ")");
+        }
+        MethodHandle handle = mHandle;
+        try {
+            if (args.length > 0) {
+                handle = MethodHandles.insertArguments(handle, 1, args);
+            }
+        } catch (ClassCastException e) {
+            throw new ProxyException("Argument type mismatch", e);
+        }
+        try {
+            return handle.asType(MethodType.methodType(returnType, Object.class));
+        } catch (WrongMethodTypeException e) {
+            throw new ProxyException("Proxy method return type (" + mHandle.type().returnType().getName() +
+                ") cannot be converted to " + returnType.getName());
+        }
+    }
+
+    private static Object[] toArray(Collection<?> targets) {
+        return targets.toArray(new Object[targets.size()]);
+    }
+
+    /**
+     * Calls the proxy method on every target, and returns the results.
+     * Primitive results are boxed; use the primitive variants to avoid that.
+     *
+     * @param targets The target objects.
+     * @param args The arguments to pass to every call.
+     * @return The return value of each call, in the same order as the targets.
+     */
+    public Object[] invoke(final Object[] targets, Object... args) {
+        final MethodHandle handle = bind(Object.class, args);
+        checkTargets(targets);
+        final Object[] results = new Object[targets.length];
+        run(new Range() {
+            @Override
+            protected void run(int start, int end) throws Throwable {
+                for (int i = start; i < end; ++i) {
+                    results[i] = (Object)handle.invokeExact(targets[i]);
+                }
+            }
+        }, targets.length);
+        return results;
+    }
+
+    /**
+     * Same as {@link #invoke(Object[], Object...)}, but takes a collection of targets.
+     */
+    public Object[] invoke(Collection<?> targets, Object... args) {
+        return invoke(toArray(targets), args);
+    }
+
+    /**
+     * Same as {@link #invoke(Object[], Object...)}, for proxy methods that
+     * return {@code int} (or a smaller integral type).
+     */
+    public int[] invokeInt(final Object[] targets, Object... args) {
+        final MethodHandle handle = bind(int.class, args);
+        checkTargets(targets);
+        final int[] results = new int[targets.length];
+        run(new Range() {
+            @Override
+            protected void run(int start, int end) throws Throwable {
+                for (int i = start; i < end; ++i) {
+                    results[i] = (int)handle.invokeExact(targets[i]);
+                }
+            }
+        }, targets.length);
+        return results;
+    }
+
+    /**
+     * Same as {@link #invokeInt(Object[], Object...)}, but takes a collection of targets.
+     */
+    public int[] invokeInt(Collection<?> targets, Object... args) {
+        return invokeInt(toArray(targets), args);
+    }
+
+    /**
+     * Same as {@link #invoke(Object[], Object...)}, for proxy methods that
+     * return {@code long} (or a smaller integral type).
+     */
+    public long[] invokeLong(final Object[] targets, Object... args) {
+        final MethodHandle handle = bind(long.class, args);
+        checkTargets(targets);
+        final long[] results = new long[targets.length];
+        run(new Range() {
+            @Override
+            protected void run(int start, int end) throws Throwable {
+                for (int i = start; i < end; ++i) {
+                    results[i] = (long)handle.invokeExact(targets[i]);
+                }
+            }
+        }, targets.length);
+        return results;
+    }
+
+    /**
+     * Same as {@link #invokeLong(Object[], Object...)}, but takes a collection of targets.
+     */
+    public long[] invokeLong(Collection<?> targets, Object... args) {
+        return invokeLong(toArray(targets), args);
+    }
+
+    /**
+     * Same as {@link #invoke(Object[], Object...)}, for proxy methods that
+     * return {@code double} (or any other primitive numeric type).
+     */
+    public double[] invokeDouble(final Object[] targets, Object... args) {
+        final MethodHandle handle = bind(double.class, args);
+        checkTargets(targets);
+        final double[] results = new double[targets.length];
+        run(new Range() {
+            @Override
+            protected void run(int start, int end) throws Throwable {
+                for (int i = start; i < end; ++i) {
+                    results[i] = (double)handle.invokeExact(targets[i]);
+                }
+            }
+        }, targets.length);
+        return results;
+    }
+
+    /**
+     * Same as {@link #invokeDouble(Object[], Object...)}, but takes a collection of targets.
+     */
+    public double[] invokeDouble(Collection<?> targets, Object... args) {
+        return invokeDouble(toArray(targets), args);
+    }
+}
@@ -0,0 +1,115 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resolves every dispatcher of a set of proxy interfaces ahead of time.
+ * Interfaces are bound in parallel on the common fork-join pool when
+ * there are enough of them to make it worthwhile.
+ */
+/* package */ final class ProxyBinder {
+    private static final int PARALLEL_THRESHOLD = 8;
+
+    private ProxyBinder() { }
+
+    private static final class Result {
+        private int mBindingCount;
+        private final List<ProxyBindingReport.Failure> mFailures = new ArrayList<ProxyBindingReport.Failure>();
+    }
+
+    @SuppressWarnings("serial")
+    private static final class BindTask extends RecursiveAction {
+        private final Class<?>[] mProxyClasses;
+        private final Result[] mResults;
+        private final int mStart;
+        private final int mEnd;
+
+        private BindTask(Class<?>[] proxyClasses, Result[] results, int start, int end) {
+            mProxyClasses = proxyClasses;
+            mResults = results;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart == 1) {
+                mResults[mStart] = bind(mProxyClasses[mStart]);
+            } else {
+                int mid = (mStart + mEnd) >>> 1;
+                invokeAll(new BindTask(mProxyClasses, mResults, mStart, mid),
+                          new BindTask(mProxyClasses, mResults, mid, mEnd));
+            }
+        }
+    }
+
+    /**
+     * Reports a class that could not be loaded or initialized while binding
+     * (e.g. a target member that refers to a missing dependency) the same
+     * way as any other binding error, instead of aborting the whole bind.
+     */
+    private static ProxyException wrapLinkageError(LinkageError e) {
+        return new ProxyException("Could not load a class needed by the binding: " + e, e);
+    }
+
+    private static Result bind(Class<?> proxyClass) {
+        Result result = new Result();
+        if (!proxyClass.isInterface() || !ProxyBase.class.isAssignableFrom(proxyClass)) {
+            result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, null,
+                new ProxyException("Not a proxy interface: " + proxyClass.getName())));
+            return result;
+        }
+        ProxyClassInfo info;
+        try {
+            info = ProxyClassInfo.get(proxyClass);
+        } catch (RuntimeException e) {
+            result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, null, e));
+            return result;
+        } catch (LinkageError e) {
+            result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, null, wrapLinkageError(e)));
+            return result;
+        }
+        DispatchTable dispatchTable = info.getDispatchTable();
+        for (int i = 0; i < dispatchTable.getSlotCount(); ++i) {
+            try {
+                // Dispatchers build their method handles lazily, so
+                // build them now for the first calls to be fast too
+                dispatchTable.getDispatcher(i).prepare();
+                result.mBindingCount++;
+            } catch (RuntimeException e) {
+                result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, dispatchTable.getMethod(i), e));
+            } catch (LinkageError e) {
+                result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, dispatchTable.getMethod(i), wrapLinkageError(e)));
+            }
+        }
+        try {
+            info.prepare();
+        } catch (RuntimeException e) {
+            result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, null, e));
+        } catch (LinkageError e) {
+            result.mFailures.add(new ProxyBindingReport.Failure(proxyClass, null, wrapLinkageError(e)));
+        }
+        return result;
+    }
+
+    public static ProxyBindingReport bind(Class<?>[] proxyClasses) {
+        Result[] results = new Result[proxyClasses.length];
+        if (proxyClasses.length >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new BindTask(proxyClasses, results, 0, proxyClasses.length));
+        } else {
+            for (int i = 0; i < proxyClasses.length; ++i) {
+                results[i] = bind(proxyClasses[i]);
+            }
+        }
+        int bindingCount = 0;
+        List<ProxyBindingReport.Failure> failures = new ArrayList<ProxyBindingReport.Failure>();
+        for (Result result : results) {
+            bindingCount += result.mBindingCount;
+            failures.addAll(result.mFailures);
+        }
+        return new ProxyBindingReport(proxyClasses.length, bindingCount, failures);
+    }
+}
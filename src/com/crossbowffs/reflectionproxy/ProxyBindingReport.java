@@ -0,0 +1,106 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of eagerly binding a set of proxy interfaces
+ * with {@link ProxyFactory#bind(Class[])}.
+ */
+public final class ProxyBindingReport {
+    private final int mInterfaceCount;
+    private final int mBindingCount;
+    private final List<Failure> mFailures;
+
+    /**
+     * A proxy interface or proxy method that could not be bound.
+     */
+    public static final class Failure {
+        private final Class<?> mProxyClass;
+        private final Method mProxyMethod;
+        private final RuntimeException mException;
+
+        /* package */ Failure(Class<?> proxyClass, Method proxyMethod, RuntimeException exception) {
+            mProxyClass = proxyClass;
+            mProxyMethod = proxyMethod;
+            mException = exception;
+        }
+
+        /**
+         * Gets the proxy interface that failed to bind.
+         */
+        public Class<?> getProxyClass() {
+            return mProxyClass;
+        }
+
+        /**
+         * Gets the proxy method that failed to bind, or null if the
+         * interface itself is invalid (e.g. the target class could not be found).
+         */
+        public Method getProxyMethod() {
+            return mProxyMethod;
+        }
+
+        /**
+         * Gets the exception that would have been thrown when calling the proxy method.
+         * Classes that could not be loaded (e.g. missing dependencies of the target
+         * class) are reported as a {@link ProxyException} caused by the {@link LinkageError}.
+         */
+        public RuntimeException getException() {
+            return mException;
+        }
+
+        @Override
+        public String toString() {
+            String location = mProxyMethod != null ? mProxyMethod.toString() : mProxyClass.getName();
+            return location + ": " + mException.getMessage();
+        }
+    }
+
+    /* package */ ProxyBindingReport(int interfaceCount, int bindingCount, List<Failure> failures) {
+        mInterfaceCount = interfaceCount;
+        mBindingCount = bindingCount;
+        mFailures = Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Gets the number of proxy interfaces that were processed.
+     */
+    public int getInterfaceCount() {
+        return mInterfaceCount;
+    }
+
+    /**
+     * Gets the number of proxy methods that were bound successfully.
+     */
+    public int getBindingCount() {
+        return mBindingCount;
+    }
+
+    /**
+     * Gets all binding failures, in the order the interfaces were passed in.
+     */
+    public List<Failure> getFailures() {
+        return mFailures;
+    }
+
+    /**
+     * Returns true if every proxy method was bound successfully.
+     */
+    public boolean isSuccessful() {
+        return mFailures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Bound ").append(mBindingCount).append(" proxy methods in ")
+            .append(mInterfaceCount).append(" interfaces, ")
+            .append(mFailures.size()).append(" failures");
+        for (Failure failure : mFailures) {
+            sb.append("\n  ").append(failure);
+        }
+        return sb.toString();
+    }
+}
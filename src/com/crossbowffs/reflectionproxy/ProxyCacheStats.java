@@ -0,0 +1,87 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Method;
+
+/**
+ * The counters of the cache of a single {@link ProxyCached} proxy method
+ * binding at one point in time. Returned by {@link ProxyFactory#getCacheStats()}.
+ */
+public final class ProxyCacheStats {
+    private final Class<?> mProxyClass;
+    private final Method mProxyMethod;
+    private final long mHitCount;
+    private final long mMissCount;
+    private final long mEvictionCount;
+    private final int mSize;
+
+    /* package */ ProxyCacheStats(Class<?> proxyClass, Method proxyMethod,
+                                  long hitCount, long missCount, long evictionCount, int size) {
+        mProxyClass = proxyClass;
+        mProxyMethod = proxyMethod;
+        mHitCount = hitCount;
+        mMissCount = missCount;
+        mEvictionCount = evictionCount;
+        mSize = size;
+    }
+
+    /**
+     * Gets the proxy interface the method was called through.
+     */
+    public Class<?> getProxyClass() {
+        return mProxyClass;
+    }
+
+    /**
+     * Gets the proxy method.
+     */
+    public Method getProxyMethod() {
+        return mProxyMethod;
+    }
+
+    /**
+     * Gets the number of calls that returned a cached result.
+     */
+    public long getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * Gets the number of calls that called the target member.
+     */
+    public long getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Gets the number of results that were discarded because the cache was
+     * full, because they expired, or because their target was collected.
+     */
+    public long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Gets the number of cached results.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Gets the fraction of calls that returned a cached result,
+     * or 0 if the method was never called.
+     */
+    public double getHitRate() {
+        long total = mHitCount + mMissCount;
+        return total == 0 ? 0 : (double)mHitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return mProxyClass.getName() + "#" + mProxyMethod.getName() +
+            ": hits=" + mHitCount +
+            ", misses=" + mMissCount +
+            ", evictions=" + mEvictionCount +
+            ", size=" + mSize;
+    }
+}
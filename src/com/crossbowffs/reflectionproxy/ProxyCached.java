@@ -0,0 +1,47 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Memoizes the results of the annotated proxy method. Use this for target
+ * methods that are pure but expensive, such as lookups and parsers.
+ *
+ * <p>
+ * Each binding of the method has its own bounded cache, keyed by the
+ * identity of the target object and the arguments of the call (compared
+ * with {@link Object#equals(Object)}; array arguments are compared by
+ * their contents). Results are cached after being converted to the
+ * proxy return type, so a cached proxy is returned as-is on every hit.
+ * Calls that throw are not cached, and neither are futures returned by
+ * async methods that complete exceptionally. The method must not return void.
+ *
+ * <p>
+ * Cache hits do not reach {@link ProxyInterceptor}s, and cached results
+ * are held strongly until they are evicted. Use
+ * {@link ProxyFactory#getCacheStats()} to read the hit and miss counters.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProxyCached {
+    /**
+     * The maximum number of cached results. When the cache is full,
+     * the least recently used result is evicted.
+     */
+    int maxSize() default 256;
+
+    /**
+     * How long a result stays cached after it is computed, in milliseconds,
+     * or 0 to keep results until they are evicted by size.
+     */
+    long expireAfterMillis() default 0;
+
+    /**
+     * Whether target objects are only weakly referenced by the cache. If
+     * true, results for a target are discarded once the target has been
+     * garbage collected (unless a cached result references the target).
+     */
+    boolean weakTargets() default false;
+}
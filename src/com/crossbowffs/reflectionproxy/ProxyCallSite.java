@@ -0,0 +1,113 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Call site of a proxy method in a class generated by the annotation
+ * processor. Those classes are only initialized once, so instead of
+ * holding the bound handle directly, they hold the dynamic invoker of
+ * this call site, which {@link ProxyClassInfo#evict(Class)} can reset.
+ * After a reset, the next call binds the method again through the
+ * current info of the proxy interface.
+ *
+ * <p>
+ * The JIT treats the target of a call site as a constant, like the
+ * handles of other generated classes, and recompiles its callers
+ * when it changes.
+ */
+/* package */ final class ProxyCallSite extends MutableCallSite {
+    // All call sites of each proxy interface. Stored in the interface's
+    // class value, so this never keeps the interface alive.
+    private static final ClassValue<List<ProxyCallSite>> sCallSites = new ClassValue<List<ProxyCallSite>>() {
+        @Override
+        protected List<ProxyCallSite> computeValue(Class<?> proxyClass) {
+            return new ArrayList<ProxyCallSite>();
+        }
+    };
+
+    private static final MethodHandle sRelink;
+
+    static {
+        try {
+            sRelink = MethodHandles.lookup().findVirtual(ProxyCallSite.class, "relink",
+                MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private final Class<?> mProxyClass;
+    private final String mName;
+    private final MethodType mMethodType;
+    private final MethodHandle mRelinker;
+
+    private ProxyCallSite(Class<?> proxyClass, String name, MethodType methodType, MethodType dispatchType) {
+        super(dispatchType);
+        mProxyClass = proxyClass;
+        mName = name;
+        mMethodType = methodType;
+        mRelinker = sRelink.bindTo(this)
+            .asCollector(Object[].class, dispatchType.parameterCount())
+            .asType(dispatchType);
+        setTarget(bind());
+    }
+
+    /**
+     * Creates a call site for the specified proxy method, bound
+     * through the current info of the proxy interface.
+     */
+    public static ProxyCallSite create(Class<?> proxyClass, String name, MethodType methodType) {
+        DispatchTable dispatchTable = ProxyClassInfo.get(proxyClass).getDispatchTable();
+        MethodType dispatchType = ProxyHandles.dispatchType(dispatchTable.getMethod(dispatchTable.getSlot(name, methodType)));
+        ProxyCallSite callSite = new ProxyCallSite(proxyClass, name, methodType, dispatchType);
+        List<ProxyCallSite> callSites = sCallSites.get(proxyClass);
+        synchronized (callSites) {
+            callSites.add(callSite);
+        }
+        return callSite;
+    }
+
+    /**
+     * Resets every call site of the specified proxy interface, so
+     * that they release their current binding, and bind again on
+     * their next call. Call after discarding the info of the interface.
+     */
+    public static void resetAll(Class<?> proxyClass) {
+        List<ProxyCallSite> callSites = sCallSites.get(proxyClass);
+        ProxyCallSite[] reset;
+        synchronized (callSites) {
+            if (callSites.isEmpty()) {
+                return;
+            }
+            reset = callSites.toArray(new ProxyCallSite[callSites.size()]);
+        }
+        for (ProxyCallSite callSite : reset) {
+            synchronized (callSite) {
+                callSite.setTarget(callSite.mRelinker);
+            }
+        }
+        MutableCallSite.syncAll(reset);
+    }
+
+    private MethodHandle bind() {
+        DispatchTable dispatchTable = ProxyClassInfo.get(mProxyClass).getDispatchTable();
+        return ProxyClassGenerator.bind(dispatchTable, dispatchTable.getSlot(mName, mMethodType));
+    }
+
+    private Object relink(Object[] args) throws Throwable {
+        MethodHandle target;
+        synchronized (this) {
+            target = getTarget();
+            if (target == mRelinker) {
+                target = bind();
+                setTarget(target);
+            }
+        }
+        return target.invokeWithArguments(args);
+    }
+}
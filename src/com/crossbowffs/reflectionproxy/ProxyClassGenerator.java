@@ -0,0 +1,186 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates proxy classes for interfaces annotated with {@link ProxyGenerated}.
+ *
+ * <p>
+ * Each generated class is a hidden class defined in the package of the
+ * proxy interface. It extends {@link GeneratedProxy}, and holds one
+ * {@code static final} method handle per proxy method, which is passed in
+ * as class data. Every proxy method simply calls
+ * {@code invokeExact(this, mTarget, args...)} on its handle, which the JIT
+ * treats as a constant and can inline through.
+ */
+/* package */ final class ProxyClassGenerator {
+    private static final String GENERATED_PROXY = "com/crossbowffs/reflectionproxy/GeneratedProxy";
+    private static final String METHOD_HANDLE = "java/lang/invoke/MethodHandle";
+    private static final String METHOD_HANDLE_DESC = "Ljava/lang/invoke/MethodHandle;";
+    private static final String OBJECT_DESC = "Ljava/lang/Object;";
+    private static final String CLASS_SUFFIX = "$$GeneratedProxy";
+
+    private static final MethodType sConstructorType = MethodType.methodType(ProxyBase.class, Object.class);
+    private static final MethodHandle sDispatchLazily;
+
+    static {
+        try {
+            sDispatchLazily = MethodHandles.lookup().findStatic(ProxyClassGenerator.class, "dispatchLazily",
+                MethodType.methodType(Object.class, DispatchTable.class, int.class, ProxyBase.class, Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private ProxyClassGenerator() { }
+
+    private static Object dispatchLazily(DispatchTable dispatchTable, int slot, ProxyBase proxy, Object target, Object[] args) {
+        return dispatchTable.getDispatcher(slot).handle(proxy, target, args);
+    }
+
+    /**
+     * Creates the handle that implements a proxy method, with the
+     * dispatch type of the method. If the method cannot be bound, the
+     * handle throws the binding error whenever it is called.
+     */
+    public static MethodHandle bind(DispatchTable dispatchTable, int slot) {
+        MethodType type = ProxyHandles.dispatchType(dispatchTable.getMethod(slot));
+        ProxyDispatcherBase dispatcher;
+        try {
+            dispatcher = dispatchTable.getDispatcher(slot);
+        } catch (ProxyException e) {
+            // Binding errors are reported when the method is called, not when
+            // the proxy is created, to match the behavior of reflective proxies
+            return MethodHandles.insertArguments(sDispatchLazily, 0, dispatchTable, slot)
+                .asCollector(Object[].class, type.parameterCount() - 2)
+                .asType(type);
+        }
+        return dispatcher.createHandle(type);
+    }
+
+    private static String getInternalName(Class<?> cls) {
+        return cls.getName().replace('.', '/');
+    }
+
+    private static int getLoadOpcode(Class<?> type) {
+        if (type == long.class) {
+            return ClassFileBuilder.LLOAD;
+        } else if (type == float.class) {
+            return ClassFileBuilder.FLOAD;
+        } else if (type == double.class) {
+            return ClassFileBuilder.DLOAD;
+        } else if (type.isPrimitive()) {
+            return ClassFileBuilder.ILOAD;
+        } else {
+            return ClassFileBuilder.ALOAD;
+        }
+    }
+
+    private static int getReturnOpcode(Class<?> type) {
+        if (type == void.class) {
+            return ClassFileBuilder.RETURN;
+        } else if (type == long.class) {
+            return ClassFileBuilder.LRETURN;
+        } else if (type == float.class) {
+            return ClassFileBuilder.FRETURN;
+        } else if (type == double.class) {
+            return ClassFileBuilder.DRETURN;
+        } else if (type.isPrimitive()) {
+            return ClassFileBuilder.IRETURN;
+        } else {
+            return ClassFileBuilder.ARETURN;
+        }
+    }
+
+    private static byte[] generateClass(String className, Class<?> proxyClass, DispatchTable dispatchTable) {
+        ClassFileBuilder cf = new ClassFileBuilder();
+
+        for (int i = 0; i < dispatchTable.getSlotCount(); ++i) {
+            cf.field(ClassFileBuilder.ACC_STATIC | ClassFileBuilder.ACC_FINAL, "h" + i, METHOD_HANDLE_DESC);
+        }
+
+        // static { List handles = MethodHandles.classData(lookup(), "_", List.class); h0 = handles.get(0); ... }
+        ClassFileBuilder.Code clinit = cf.method(ClassFileBuilder.ACC_STATIC, "<clinit>", "()V")
+            .op(ClassFileBuilder.INVOKESTATIC, cf.methodRef("java/lang/invoke/MethodHandles",
+                "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;"))
+            .ldc(cf.string("_"))
+            .ldc(cf.classRef("java/util/List"))
+            .op(ClassFileBuilder.INVOKESTATIC, cf.methodRef("java/lang/invoke/MethodHandles",
+                "classData", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)" + OBJECT_DESC))
+            .op(ClassFileBuilder.CHECKCAST, cf.classRef("java/util/List"))
+            .op(ClassFileBuilder.ASTORE_0);
+        int listGet = cf.interfaceMethodRef("java/util/List", "get", "(I)" + OBJECT_DESC);
+        for (int i = 0; i < dispatchTable.getSlotCount(); ++i) {
+            clinit.op(ClassFileBuilder.ALOAD_0)
+                .pushInt(i)
+                .invokeInterface(listGet, 1)
+                .op(ClassFileBuilder.CHECKCAST, cf.classRef(METHOD_HANDLE))
+                .op(ClassFileBuilder.PUTSTATIC, cf.fieldRef(className, "h" + i, METHOD_HANDLE_DESC));
+        }
+        clinit.op(ClassFileBuilder.RETURN).end(3, 1);
+
+        // public <init>(Object target) { super(target); }
+        cf.method(ClassFileBuilder.ACC_PUBLIC, "<init>", "(" + OBJECT_DESC + ")V")
+            .op(ClassFileBuilder.ALOAD_0)
+            .op(ClassFileBuilder.ALOAD_1)
+            .op(ClassFileBuilder.INVOKESPECIAL, cf.methodRef(GENERATED_PROXY, "<init>", "(" + OBJECT_DESC + ")V"))
+            .op(ClassFileBuilder.RETURN)
+            .end(2, 2);
+
+        // public R method(args...) { return (R)h<i>.invokeExact(this, mTarget, args...); }
+        int targetField = cf.fieldRef(GENERATED_PROXY, "mTarget", OBJECT_DESC);
+        for (int i = 0; i < dispatchTable.getSlotCount(); ++i) {
+            Method method = dispatchTable.getMethod(i);
+            MethodType proxyType = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+            ClassFileBuilder.Code code = cf.method(ClassFileBuilder.ACC_PUBLIC | ClassFileBuilder.ACC_FINAL,
+                method.getName(), proxyType.toMethodDescriptorString())
+                .op(ClassFileBuilder.GETSTATIC, cf.fieldRef(className, "h" + i, METHOD_HANDLE_DESC))
+                .op(ClassFileBuilder.ALOAD_0)
+                .op(ClassFileBuilder.ALOAD_0)
+                .op(ClassFileBuilder.GETFIELD, targetField);
+            int slot = 1;
+            for (Class<?> argType : method.getParameterTypes()) {
+                code.local(getLoadOpcode(argType), slot);
+                slot += (argType == long.class || argType == double.class) ? 2 : 1;
+            }
+            code.op(ClassFileBuilder.INVOKEVIRTUAL, cf.methodRef(METHOD_HANDLE, "invokeExact",
+                ProxyHandles.dispatchType(method).toMethodDescriptorString()))
+                .op(getReturnOpcode(method.getReturnType()))
+                .end(3 + slot - 1, slot);
+        }
+
+        return cf.toByteArray(ClassFileBuilder.ACC_PUBLIC | ClassFileBuilder.ACC_FINAL | ClassFileBuilder.ACC_SUPER,
+            className, GENERATED_PROXY, new String[] {getInternalName(proxyClass)});
+    }
+
+    /**
+     * Generates a proxy class for the specified proxy interface, and returns
+     * a handle to its constructor, which takes the target object. Returns null
+     * if the class could not be generated, in which case the caller should
+     * fall back to {@link java.lang.reflect.Proxy}.
+     */
+    public static MethodHandle generate(Class<?> proxyClass, DispatchTable dispatchTable) {
+        List<MethodHandle> handles = new ArrayList<MethodHandle>(dispatchTable.getSlotCount());
+        for (int i = 0; i < dispatchTable.getSlotCount(); ++i) {
+            handles.add(bind(dispatchTable, i));
+        }
+        String className = getInternalName(proxyClass) + CLASS_SUFFIX;
+        byte[] classBytes = generateClass(className, proxyClass, dispatchTable);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(proxyClass, ProxyHandles.lookup());
+            MethodHandles.Lookup hiddenLookup = lookup.defineHiddenClassWithClassData(classBytes, handles, true);
+            MethodHandle constructor = hiddenLookup.findConstructor(hiddenLookup.lookupClass(),
+                MethodType.methodType(void.class, Object.class));
+            return constructor.asType(sConstructorType);
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Everything needed to create proxies of a single proxy interface:
+ * the resolved target class, the dispatch table, and a constructor
+ * for the proxy class. Resolved once per interface, so creating a
+ * proxy is just a constructor call.
+ *
+ * <p>
+ * Infos are cached with a {@link ClassValue}, so they are discarded along
+ * with their proxy interface. Since an info also references its target
+ * class, which may be loaded by a different class loader, each interface
+ * is recorded under the class loaders of both classes, so that
+ * {@link #evict(ClassLoader)} can release either loader.
+ */
+/* package */ final class ProxyClassInfo {
+    private static final ClassValue<ProxyClassInfo> sInfoCache = new ClassValue<ProxyClassInfo>() {
+        @Override
+        protected ProxyClassInfo computeValue(Class<?> proxyClass) {
+            ProxyClassInfo info = new ProxyClassInfo(proxyClass);
+            register(proxyClass.getClassLoader(), proxyClass);
+            register(info.mTargetClass.getClassLoader(), proxyClass);
+            return info;
+        }
+    };
+
+    // Class loader -> proxy interfaces with cached infos. Both are weak,
+    // so this never keeps a class loader alive.
+    private static final Map<ClassLoader, Set<Class<?>>> sLoaderClasses = new WeakHashMap<ClassLoader, Set<Class<?>>>();
+    private static final MethodType sProxyConstructorType = MethodType.methodType(ProxyBase.class, InvocationHandler.class);
+    private static final MethodType sGeneratedConstructorType = MethodType.methodType(ProxyBase.class, Object.class);
+    private static final String COMPILED_CLASS_SUFFIX = "$$Proxy";
+
+    private final Class<?> mProxyClass;
+    private final Class<?> mTargetClass;
+    private final DispatchTable mDispatchTable;
+    private final ReflectionInvocationHandler mStaticHandler;
+    private final ProxyInternTable mInternTable;
+    private volatile boolean mPrepared;
+    private volatile ProxyBase mStaticProxy;
+    private MethodHandle mGeneratedConstructor;
+    private MethodHandle mProxyConstructor;
+
+    private ProxyClassInfo(Class<?> proxyClass) {
+        mProxyClass = proxyClass;
+        mTargetClass = ProxyUtils.resolveTargetClass(proxyClass);
+        mDispatchTable = new DispatchTable(proxyClass, mTargetClass);
+        mStaticHandler = new ReflectionInvocationHandler(mDispatchTable, null);
+        if (proxyClass.isAnnotationPresent(ProxyInterned.class)) {
+            mInternTable = new ProxyInternTable();
+        } else {
+            mInternTable = null;
+        }
+    }
+
+    /**
+     * Gets the info for the specified proxy interface, resolving it if necessary.
+     */
+    public static ProxyClassInfo get(Class<?> proxyClass) {
+        return sInfoCache.get(proxyClass);
+    }
+
+    private static void register(ClassLoader classLoader, Class<?> proxyClass) {
+        if (classLoader == null) {
+            // The bootstrap class loader is never unloaded
+            return;
+        }
+        synchronized (sLoaderClasses) {
+            Set<Class<?>> classes = sLoaderClasses.get(classLoader);
+            if (classes == null) {
+                classes = Collections.newSetFromMap(new WeakHashMap<Class<?>, Boolean>());
+                sLoaderClasses.put(classLoader, classes);
+            }
+            classes.add(proxyClass);
+        }
+    }
+
+    /**
+     * Discards the infos of all proxy interfaces that are loaded by the
+     * specified class loader, or that target a class loaded by it.
+     * Existing proxies keep working; new proxies resolve their interface again.
+     *
+     * @return The number of proxy interfaces whose info was discarded.
+     */
+    public static int evict(ClassLoader classLoader) {
+        List<Class<?>> classes;
+        synchronized (sLoaderClasses) {
+            Set<Class<?>> loaderClasses = sLoaderClasses.remove(classLoader);
+            if (loaderClasses == null) {
+                return 0;
+            }
+            classes = new ArrayList<Class<?>>(loaderClasses);
+        }
+        for (Class<?> proxyClass : classes) {
+            evict(proxyClass);
+        }
+        return classes.size();
+    }
+
+    /**
+     * Discards the info of the specified proxy interface, so that new
+     * proxies bind its methods again. Existing proxies keep working.
+     * Proxy classes generated by the annotation processor bind their
+     * methods again on their next call.
+     */
+    public static void evict(Class<?> proxyClass) {
+        sInfoCache.remove(proxyClass);
+        ProxyCallSite.resetAll(proxyClass);
+    }
+
+    public Class<?> getTargetClass() {
+        return mTargetClass;
+    }
+
+    public DispatchTable getDispatchTable() {
+        return mDispatchTable;
+    }
+
+    /**
+     * Generates or looks up the proxy class, if that has not been done yet.
+     * A class generated at compile time by the annotation processor is
+     * preferred, followed by a class generated at runtime if the interface
+     * is annotated with {@link ProxyGenerated}, followed by {@link Proxy}.
+     */
+    public void prepare() {
+        if (mPrepared) {
+            return;
+        }
+        synchronized (this) {
+            if (mPrepared) {
+                return;
+            }
+            mGeneratedConstructor = findCompiledConstructor();
+            if (mGeneratedConstructor == null && mProxyClass.isAnnotationPresent(ProxyGenerated.class)) {
+                mGeneratedConstructor = ProxyClassGenerator.generate(mProxyClass, mDispatchTable);
+            }
+            if (mGeneratedConstructor == null) {
+                mProxyConstructor = findProxyConstructor();
+            }
+            mPrepared = true;
+        }
+    }
+
+    private MethodHandle findCompiledConstructor() {
+        String className = mProxyClass.getName() + COMPILED_CLASS_SUFFIX;
+        ClassLoader classLoader = mProxyClass.getClassLoader();
+        // Check for the class file first, so we don't throw and catch
+        // a ClassNotFoundException for every interface without one
+        String resourceName = className.replace('.', '/') + ".class";
+        if (classLoader == null || classLoader.getResource(resourceName) == null) {
+            return null;
+        }
+        try {
+            Class<?> compiledClass = Class.forName(className, true, classLoader);
+            if (!GeneratedProxy.class.isAssignableFrom(compiledClass) || !mProxyClass.isAssignableFrom(compiledClass)) {
+                return null;
+            }
+            return ProxyHandles.lookup().findConstructor(compiledClass,
+                MethodType.methodType(void.class, Object.class)).asType(sGeneratedConstructorType);
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (LinkageError e) {
+            // The class was compiled against a different version of the interface
+            return null;
+        }
+    }
+
+    private MethodHandle findProxyConstructor() {
+        Object proxy = Proxy.newProxyInstance(mProxyClass.getClassLoader(), new Class<?>[] {mProxyClass}, mStaticHandler);
+        try {
+            Constructor<?> constructor = proxy.getClass().getConstructor(InvocationHandler.class);
+            constructor.setAccessible(true);
+            return ProxyHandles.lookup().unreflectConstructor(constructor).asType(sProxyConstructorType);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (IllegalAccessException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // setAccessible may be denied for proxy classes in dynamic modules
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new proxy for the specified target object, or returns the
+     * static proxy if the target is null. If the proxy interface is annotated
+     * with {@link ProxyInterned}, an existing proxy may be returned instead.
+     */
+    public ProxyBase newProxy(Object target) {
+        if (target == null) {
+            return getStaticProxy();
+        }
+        if (mInternTable == null) {
+            return createProxy(target);
+        }
+        ProxyBase proxy = mInternTable.get(target);
+        if (proxy == null) {
+            proxy = mInternTable.intern(target, createProxy(target));
+        }
+        return proxy;
+    }
+
+    /**
+     * Gets the static proxy of the interface, creating it if necessary.
+     * Static proxies have no state, so one instance is shared by all callers.
+     */
+    public ProxyBase getStaticProxy() {
+        ProxyBase proxy = mStaticProxy;
+        if (proxy == null) {
+            synchronized (this) {
+                proxy = mStaticProxy;
+                if (proxy == null) {
+                    proxy = createProxy(null);
+                    mStaticProxy = proxy;
+                }
+            }
+        }
+        return proxy;
+    }
+
+    /**
+     * Creates a new cursor proxy, with no target. Cursor proxies are
+     * always implemented with {@link Proxy}, since generated proxy
+     * classes cannot change their target.
+     */
+    public ProxyBase newCursorProxy() {
+        prepare();
+        return createReflectiveProxy(new CursorInvocationHandler(mDispatchTable));
+    }
+
+    private ProxyBase createProxy(Object target) {
+        prepare();
+        if (mGeneratedConstructor != null) {
+            try {
+                return (ProxyBase)mGeneratedConstructor.invokeExact(target);
+            } catch (Throwable e) {
+                throw new AssertionError(e);
+            }
+        }
+        InvocationHandler invocationHandler = mStaticHandler;
+        if (target != null) {
+            invocationHandler = new ReflectionInvocationHandler(mDispatchTable, target);
+        }
+        return createReflectiveProxy(invocationHandler);
+    }
+
+    private ProxyBase createReflectiveProxy(InvocationHandler invocationHandler) {
+        try {
+            if (mProxyConstructor != null) {
+                return (ProxyBase)mProxyConstructor.invokeExact(invocationHandler);
+            }
+            return (ProxyBase)Proxy.newProxyInstance(mProxyClass.getClassLoader(), new Class<?>[] {mProxyClass}, invocationHandler);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -1,20 +1,101 @@
 package com.crossbowffs.reflectionproxy;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
 
 /* package */ abstract class ProxyDispatcherBase {
-    private static final Map<Method, ProxyDispatcherBase> sDispatcherCache = new HashMap<Method, ProxyDispatcherBase>();
-
     public abstract Object handle(ProxyBase proxy, Object target, Object[] args);
 
-    private static ProxyDispatcherBase create(Class<?> targetClass, Method proxyMethod) {
+    /**
+     * Returns the target member this dispatcher is bound to,
+     * or null if it is not bound to a single member.
+     */
+    public Member getTargetMember() {
+        return null;
+    }
+
+    /**
+     * Converts the proxy method arguments to the target member types, in place.
+     * Together with {@link #invoke(ProxyBase, Object, Object[])}, this splits
+     * {@link #handle(ProxyBase, Object, Object[])} in two, so that interceptors
+     * can run in between. Dispatchers that convert their arguments must
+     * override both methods.
+     */
+    protected void coerceArguments(Object[] args) { }
+
+    /**
+     * Same as {@link #handle(ProxyBase, Object, Object[])}, but takes arguments
+     * that have already been converted by {@link #coerceArguments(Object[])}.
+     */
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        return handle(proxy, target, args);
+    }
+
+    /**
+     * Does the work that this dispatcher would otherwise do lazily during
+     * its first calls (e.g. building method handles), so that the first
+     * calls are as fast as the later ones. Used by {@link ProxyFactory#bind}.
+     */
+    public void prepare() { }
+
+    /**
+     * Gets the receiver to pass to a target member: null for static members,
+     * which ignore the target, and the target for instance members, which
+     * are rejected with the given message if the target is null (i.e. the
+     * member was called on a static proxy).
+     */
+    protected static Object getReceiver(boolean isStatic, Object target, String staticProxyMessage) {
+        if (isStatic) {
+            return null;
+        }
+        if (target == null) {
+            throw new ProxyException(staticProxyMessage, new NullPointerException());
+        }
+        return target;
+    }
+
+    /**
+     * Creates a method handle that performs the same operation as
+     * {@link #handle(ProxyBase, Object, Object[])}, but takes the proxy
+     * method arguments directly. The returned handle has the given type,
+     * which is {@code (ProxyBase proxy, Object target, <args>)<return>}.
+     * Subclasses should override this to bind the target member directly.
+     * Returns null if the member cannot be accessed through a method handle.
+     */
+    protected MethodHandle createDirectHandle(MethodType type) {
+        return null;
+    }
+
+    /**
+     * Same as {@link #createDirectHandle(MethodType)}, but falls back to
+     * a handle that forwards to {@link #handle} instead of returning null.
+     */
+    public MethodHandle createHandle(MethodType type) {
+        MethodHandle handle = createDirectHandle(type);
+        if (handle == null) {
+            handle = ProxyHandles.dispatch(this, type);
+        }
+        return handle;
+    }
+
+    private static ProxyDispatcherBase createReflective(Class<?> targetClass, Method proxyMethod) {
         ProxyConstructor constructorAnnotation = proxyMethod.getAnnotation(ProxyConstructor.class);
         if (constructorAnnotation != null) {
             return ConstructorDispatcher.create(targetClass, proxyMethod, constructorAnnotation);
         }
 
+        ProxyPath pathAnnotation = proxyMethod.getAnnotation(ProxyPath.class);
+        if (pathAnnotation != null) {
+            return PathDispatcher.create(targetClass, proxyMethod, pathAnnotation);
+        }
+
+        ProxySnapshot snapshotAnnotation = proxyMethod.getAnnotation(ProxySnapshot.class);
+        if (snapshotAnnotation != null) {
+            return SnapshotDispatcher.create(targetClass, proxyMethod, snapshotAnnotation);
+        }
+
         ProxyField fieldAnnotation = proxyMethod.getAnnotation(ProxyField.class);
         if (fieldAnnotation != null) {
             return FieldDispatcher.create(targetClass, proxyMethod, fieldAnnotation);
@@ -24,11 +105,20 @@ import java.util.Map;
         return MethodDispatcher.create(targetClass, proxyMethod, methodAnnotation);
     }
 
-    public static ProxyDispatcherBase get(Class<?> targetClass, Method proxyMethod) {
-        ProxyDispatcherBase dispatcher = sDispatcherCache.get(proxyMethod);
-        if (dispatcher == null) {
-            dispatcher = create(targetClass, proxyMethod);
-            sDispatcherCache.put(proxyMethod, dispatcher);
+    public static ProxyDispatcherBase create(Class<?> proxyClass, Class<?> targetClass, Method proxyMethod) {
+        ProxyDispatcherBase dispatcher = createReflective(targetClass, proxyMethod);
+        ProxyInterceptor[] interceptors = ProxyInterceptors.get(proxyClass, proxyMethod);
+        if (interceptors != null) {
+            // Interceptors need the arguments in an array anyways,
+            // so there is nothing to gain from a method handle
+            dispatcher = new InterceptedDispatcher(dispatcher, proxyMethod, interceptors);
+        } else {
+            dispatcher = MethodHandleDispatcher.wrap(dispatcher, proxyMethod);
+        }
+
+        ProxyCached cachedAnnotation = proxyMethod.getAnnotation(ProxyCached.class);
+        if (cachedAnnotation != null) {
+            dispatcher = CachedDispatcher.create(dispatcher, proxyClass, proxyMethod, cachedAnnotation);
         }
         return dispatcher;
     }
@@ -12,4 +12,13 @@ public class ProxyException extends RuntimeException {
     public ProxyException(Throwable cause) {
         super(cause);
     }
+
+    /**
+     * Creates an exception that optionally skips filling in its stack
+     * trace, for failures that are reported often and whose cause
+     * already has a stack trace.
+     */
+    /* package */ ProxyException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, true, writableStackTrace);
+    }
 }
@@ -1,6 +1,10 @@
 package com.crossbowffs.reflectionproxy;
 
-import java.lang.reflect.Proxy;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 public final class ProxyFactory {
     private ProxyFactory() { }
@@ -11,24 +15,59 @@ public final class ProxyFactory {
      * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
      * @param target The target object. Cannot be null. If you want a static proxy, use {@link #createStaticProxy(Class)}.
      */
+    @SuppressWarnings("unchecked")
     public static <T extends ProxyBase> T createProxy(Class<T> proxyClass, Object target) {
-        Class<?> targetClass = ProxyUtils.getTargetClass(proxyClass);
+        ProxyClassInfo info = ProxyClassInfo.get(proxyClass);
+        Class<?> targetClass = info.getTargetClass();
         if (!targetClass.isAssignableFrom(target.getClass())) {
             throw new ProxyException("Proxy cannot be applied to target (expected " +
                 targetClass.getName() + ", got " + target.getClass().getName() + ")");
         }
-        return createProxyInternal(proxyClass, targetClass, target);
+        return (T)info.newProxy(target);
     }
 
     /**
-     * Creates a new static reflection proxy using the specified proxy type. The proxy object
+     * Gets the static reflection proxy of the specified proxy type. The proxy object
      * returned by this method may only be used to call static methods and get/set static fields.
+     * Static proxies have no state, so the same proxy object is returned on every call.
      *
      * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
      */
+    @SuppressWarnings("unchecked")
     public static <T extends ProxyBase> T createStaticProxy(Class<T> proxyClass) {
-        Class<?> targetClass = ProxyUtils.getTargetClass(proxyClass);
-        return createProxyInternal(proxyClass, targetClass, null);
+        return (T)ProxyClassInfo.get(proxyClass).getStaticProxy();
+    }
+
+    /**
+     * Creates a new cursor proxy using the specified proxy type. A cursor proxy
+     * behaves like a regular proxy, but its target can be changed at any time
+     * using {@link #setCursorTarget(ProxyBase, Object)}. This allows a single
+     * proxy object to visit many targets without allocating a new proxy for each.
+     * The proxy initially has no target, so it behaves like a static proxy.
+     *
+     * <p>
+     * Cursor proxies are not thread-safe, and should not be stored or shared:
+     * a proxy returned by a target method using {@code return this;} is the
+     * cursor itself, and will follow the cursor to its next target.
+     *
+     * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ProxyBase> T createCursorProxy(Class<T> proxyClass) {
+        return (T)ProxyClassInfo.get(proxyClass).newCursorProxy();
+    }
+
+    /**
+     * Points a cursor proxy created by {@link #createCursorProxy(Class)} at a new target.
+     *
+     * @param cursor The cursor proxy.
+     * @param target The new target object. Must be an instance of the proxy target type.
+     *               May be null, in which case the cursor behaves like a static proxy.
+     * @return The cursor proxy, for convenience.
+     */
+    public static <T extends ProxyBase> T setCursorTarget(T cursor, Object target) {
+        ProxyUtils.getCursorHandler(cursor).setTarget(target);
+        return cursor;
     }
 
     /**
@@ -41,9 +80,193 @@ public final class ProxyFactory {
         return ProxyUtils.getProxyTarget(proxy);
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> T createProxyInternal(Class<T> proxyClass, Class<?> targetClass, Object target) {
-        ReflectionInvocationHandler invocationHandler = new ReflectionInvocationHandler(targetClass, target);
-        return (T)Proxy.newProxyInstance(proxyClass.getClassLoader(), new Class<?>[] {proxyClass}, invocationHandler);
+    /**
+     * Gets a method handle that performs the same operation as a proxy
+     * method, without going through a proxy object. The handle takes the
+     * target object followed by the proxy method arguments, and returns
+     * the same value as the proxy method, so its type is
+     * {@code (Object target, <args>)<return>}. Binding and coercion rules
+     * are the same as for proxies; for static members and constructors,
+     * the target is ignored and may be null.
+     *
+     * <p>
+     * The handle is bound directly to the target member, so it is about as
+     * fast as a direct call when stored in a {@code static final} field and
+     * called with {@link MethodHandle#invokeExact}. Unlike proxy methods,
+     * binding errors are thrown immediately.
+     *
+     * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     * @param methodName The name of the proxy method.
+     * @param parameterTypes The parameter types of the proxy method.
+     */
+    public static MethodHandle getHandle(Class<? extends ProxyBase> proxyClass, String methodName, Class<?>... parameterTypes) {
+        DispatchTable dispatchTable = ProxyClassInfo.get(proxyClass).getDispatchTable();
+        int slot = dispatchTable.findSlot(methodName, parameterTypes);
+        if (slot < 0) {
+            throw new ProxyException("No proxy method found with name: " + methodName);
+        }
+        MethodHandle handle = dispatchTable.getDispatcher(slot).createHandle(
+            ProxyHandles.dispatchType(dispatchTable.getMethod(slot)));
+        return MethodHandles.insertArguments(handle, 0, (Object)null);
+    }
+
+    /**
+     * Returns a {@link ProxyBatch} that calls a proxy method on many target
+     * objects at once, without creating a proxy for each of them. For example,
+     * {@code getBatch(WidgetDataProxy.class, "get_mId").invokeInt(targets)}
+     * returns the ID of every target. Like {@link #getHandle(Class, String, Class[])},
+     * the method is bound immediately, and binding errors are thrown immediately.
+     *
+     * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     * @param methodName The name of the proxy method.
+     * @param parameterTypes The parameter types of the proxy method.
+     */
+    public static ProxyBatch getBatch(Class<? extends ProxyBase> proxyClass, String methodName, Class<?>... parameterTypes) {
+        MethodHandle handle = getHandle(proxyClass, methodName, parameterTypes);
+        return new ProxyBatch(ProxyClassInfo.get(proxyClass).getTargetClass(), handle, null);
+    }
+
+    /**
+     * Resolves and validates every proxy method of the specified proxy
+     * interfaces ahead of time, so that the first call through each proxy
+     * does not pay for member lookups or for building method handles, and
+     * binding errors (including classes that cannot be loaded) are reported at
+     * startup instead of when the method is called. Interfaces are bound
+     * in parallel if there are many of them.
+     *
+     * <p>
+     * This method never throws on binding errors; check the returned report instead.
+     *
+     * @param proxyClasses The proxy types. Each must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     */
+    public static ProxyBindingReport bind(Class<?>... proxyClasses) {
+        return ProxyBinder.bind(proxyClasses.clone());
+    }
+
+    /**
+     * Same as {@link #bind(Class[])}, but takes a collection of proxy types.
+     *
+     * @param proxyClasses The proxy types. Each must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     */
+    public static ProxyBindingReport bind(Collection<? extends Class<?>> proxyClasses) {
+        return ProxyBinder.bind(proxyClasses.toArray(new Class<?>[proxyClasses.size()]));
+    }
+
+    /**
+     * Sets the executor that runs the target methods of async proxy methods
+     * (proxy methods that return {@code CompletableFuture<T>} when their target
+     * method returns {@code T}). The executor is used by all subsequent calls,
+     * including calls to methods that have already been bound.
+     *
+     * <p>
+     * By default, each call runs on a new virtual thread if the runtime
+     * supports them, and on a shared pool of daemon threads otherwise.
+     *
+     * @param executor The executor, or null to restore the default executor.
+     */
+    public static void setAsyncExecutor(Executor executor) {
+        AsyncDispatcher.setExecutor(executor);
+    }
+
+    /**
+     * Gets the hit and miss counters of the cache of every bound
+     * {@link ProxyCached} proxy method. Each binding has its own cache,
+     * so a method may appear more than once if it was bound again
+     * (e.g. after its class loader was evicted).
+     */
+    public static List<ProxyCacheStats> getCacheStats() {
+        return CachedDispatcher.getAllStats();
+    }
+
+    /**
+     * Discards the cached results of every bound {@link ProxyCached}
+     * proxy method, e.g. after the state they depend on has changed.
+     */
+    public static void clearCaches() {
+        CachedDispatcher.clearAll();
+    }
+
+    /**
+     * Registers an interceptor for all methods of a proxy interface.
+     * Interceptors are called in the order they were registered.
+     *
+     * <p>
+     * Interceptors are composed into the proxy methods when they are bound, so
+     * registering an interceptor discards the bindings of the proxy interface,
+     * and proxies created afterwards are intercepted. Whether proxies created
+     * earlier are intercepted is unspecified, since their methods may already
+     * be bound. Proxy classes generated by the annotation processor bind their
+     * methods again, so all of their proxies are intercepted. Handles returned by
+     * {@link #getHandle(Class, String, Class[])} are not affected. Register
+     * interceptors before creating any proxies to intercept every call.
+     *
+     * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     * @param interceptor The interceptor.
+     */
+    public static void addInterceptor(Class<? extends ProxyBase> proxyClass, ProxyInterceptor interceptor) {
+        ProxyInterceptors.add(proxyClass, null, interceptor);
+        ProxyClassInfo.evict(proxyClass);
+    }
+
+    /**
+     * Same as {@link #addInterceptor(Class, ProxyInterceptor)}, but only
+     * intercepts the proxy methods with the specified name.
+     *
+     * @param proxyClass The proxy type. Must be annotated with {@link ProxyTarget} or {@link ProxyTargetName}.
+     * @param methodName The name of the proxy methods to intercept.
+     * @param interceptor The interceptor.
+     */
+    public static void addInterceptor(Class<? extends ProxyBase> proxyClass, String methodName, ProxyInterceptor interceptor) {
+        if (methodName == null) {
+            throw new NullPointerException("methodName");
+        }
+        ProxyInterceptors.add(proxyClass, methodName, interceptor);
+        ProxyClassInfo.evict(proxyClass);
+    }
+
+    /**
+     * Unregisters an interceptor from a proxy interface. Like registering
+     * an interceptor, this only reliably affects proxies created afterwards.
+     *
+     * @param proxyClass The proxy type.
+     * @param interceptor The interceptor.
+     * @return Whether the interceptor was registered for the proxy type.
+     */
+    public static boolean removeInterceptor(Class<? extends ProxyBase> proxyClass, ProxyInterceptor interceptor) {
+        boolean removed = ProxyInterceptors.remove(proxyClass, interceptor);
+        if (removed) {
+            ProxyClassInfo.evict(proxyClass);
+        }
+        return removed;
+    }
+
+    /**
+     * Discards all cached bindings of proxy interfaces that are loaded by the
+     * specified class loader, or that target classes loaded by it.
+     *
+     * <p>
+     * Cached bindings are normally released when their proxy interface is
+     * unloaded. However, a binding from a proxy interface in a long-lived
+     * class loader to a target class in a short-lived one (e.g. a plugin
+     * or a redeployed web application) keeps the short-lived loader alive.
+     * Call this method when discarding such a class loader to release it.
+     * Proxies that have already been created keep working.
+     *
+     * <p>
+     * This only releases the references held by this library. Proxy
+     * classes generated by the annotation processor release their bindings
+     * too, and bind again on their next call. However, once a class in the
+     * long-lived loader has linked against a class in the short-lived one
+     * (e.g. a proxy interface or a class generated for it that names the
+     * target class in its code), the JVM itself keeps the short-lived loader
+     * alive for as long as the long-lived one, and evicting cannot help.
+     * Keep such code in the short-lived loader, or name the target class with
+     * {@link ProxyTargetName} only.
+     *
+     * @param classLoader The class loader to release.
+     * @return The number of proxy interfaces whose bindings were discarded.
+     */
+    public static int evict(ClassLoader classLoader) {
+        return ProxyClassInfo.evict(classLoader);
     }
 }
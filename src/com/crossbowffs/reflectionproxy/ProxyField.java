@@ -16,8 +16,12 @@ import java.lang.annotation.Target;
  * <p>
  * If you do not want to use the set_X/get_X naming convention,
  * you may also specify the name of the field in the annotation.
+ *
+ * <p>
+ * On a field of a {@link ProxySnapshot} class, specifies the name of
+ * the target field to copy, if it is different from the field's own name.
  */
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.FIELD})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ProxyField {
     String value() default "";
@@ -0,0 +1,24 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests that proxies of the annotated interface be implemented by
+ * a class generated at runtime, instead of {@link java.lang.reflect.Proxy}.
+ * Each proxy method calls the bound target member directly through a
+ * method handle, without allocating an argument array or boxing primitive
+ * values. The behavior of the proxy is otherwise unchanged.
+ *
+ * <p>
+ * The generated class is defined as a hidden class in the package of the
+ * proxy interface. If that is not possible (e.g. the package is not open to
+ * ReflectionProxy), this annotation is silently ignored.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProxyGenerated {
+
+}
@@ -0,0 +1,183 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+/* package */ final class ProxyHandles {
+    private static final MethodHandles.Lookup sLookup = MethodHandles.lookup();
+    private static final MethodHandle sCoerce;
+    private static final MethodHandle sRequireTarget;
+    private static final MethodHandle sThrowTargetException;
+    private static final MethodHandle sDispatch;
+    private static final MethodHandle sIsNull;
+
+    static {
+        try {
+            sCoerce = sLookup.findVirtual(Coercion.class, "coerce",
+                MethodType.methodType(Object.class, Object.class, ProxyBase.class));
+            sRequireTarget = sLookup.findStatic(ProxyHandles.class, "requireTarget",
+                MethodType.methodType(Object.class, String.class, Object.class));
+            sThrowTargetException = sLookup.findStatic(ProxyHandles.class, "throwTargetException",
+                MethodType.methodType(Object.class, ExceptionPolicy.class, Throwable.class));
+            sDispatch = sLookup.findVirtual(ProxyDispatcherBase.class, "handle",
+                MethodType.methodType(Object.class, ProxyBase.class, Object.class, Object[].class));
+            sIsNull = sLookup.findStatic(ProxyHandles.class, "isNull",
+                MethodType.methodType(boolean.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private ProxyHandles() { }
+
+    public static MethodHandles.Lookup lookup() {
+        return sLookup;
+    }
+
+    private static Object requireTarget(String message, Object target) {
+        if (target == null) {
+            throw new ProxyException(message, new NullPointerException());
+        }
+        return target;
+    }
+
+    private static boolean isNull(Object value) {
+        return value == null;
+    }
+
+    private static Object throwTargetException(ExceptionPolicy policy, Throwable e) {
+        throw policy.rethrow(e);
+    }
+
+    /**
+     * Wraps any exception thrown by the handle in a {@link ProxyException},
+     * the same way a failed {@link Method#invoke} is reported.
+     */
+    public static MethodHandle wrapTargetExceptions(MethodHandle handle) {
+        return wrapTargetExceptions(handle, ExceptionPolicy.WRAP);
+    }
+
+    /**
+     * Same as {@link #wrapTargetExceptions(MethodHandle)}, but reports
+     * exceptions according to the exception policy of a proxy method.
+     */
+    public static MethodHandle wrapTargetExceptions(MethodHandle handle, ExceptionPolicy policy) {
+        // catchException caches an invoker for the exact handle type, which
+        // would keep the target class loader alive forever; erasing the type
+        // first means only types like Object are cached. The same applies to
+        // the other combinators that create a new lambda form.
+        MethodType type = handle.type();
+        MethodType erasedType = type.erase();
+        MethodHandle handler = MethodHandles.insertArguments(sThrowTargetException, 0, policy).asType(
+            MethodType.methodType(erasedType.returnType(), Throwable.class));
+        return MethodHandles.catchException(handle.asType(erasedType), Throwable.class, handler).asType(type);
+    }
+
+    /**
+     * Converts a handle to a target member into the common dispatch shape
+     * {@code (ProxyBase proxy, Object target, ...)}. Static members ignore the
+     * target; instance members reject a null target with the given message.
+     */
+    public static MethodHandle bindReceiver(MethodHandle handle, boolean isStatic, String staticProxyMessage) {
+        if (isStatic) {
+            return MethodHandles.dropArguments(handle, 0, ProxyBase.class, Object.class);
+        }
+        handle = handle.asType(handle.type().changeParameterType(0, Object.class));
+        MethodHandle requireTarget = MethodHandles.insertArguments(sRequireTarget, 0, staticProxyMessage);
+        handle = MethodHandles.filterArguments(handle, 0, requireTarget);
+        return MethodHandles.dropArguments(handle, 0, ProxyBase.class);
+    }
+
+    /**
+     * Makes the handle throw a {@link ProxyException} with the given
+     * message if its first argument, which must be an object, is null.
+     */
+    public static MethodHandle requireNonNull(MethodHandle handle, String message) {
+        MethodHandle requireNonNull = MethodHandles.insertArguments(sRequireTarget, 0, message)
+            .asType(MethodType.methodType(handle.type().parameterType(0), handle.type().parameterType(0)));
+        return MethodHandles.filterArguments(handle, 0, requireNonNull);
+    }
+
+    /**
+     * Makes the handle return the default value of its return type
+     * (null, zero or false) if its first argument, which must be an
+     * object, is null.
+     */
+    public static MethodHandle defaultIfNull(MethodHandle handle) {
+        // Like catchException, guardWithTest must not see the target types
+        MethodType type = handle.type();
+        MethodType erasedType = type.erase();
+        MethodHandle isNull = sIsNull.asType(MethodType.methodType(boolean.class, erasedType.parameterType(0)));
+        MethodHandle zero = MethodHandles.dropArguments(MethodHandles.zero(erasedType.returnType()), 0, erasedType.parameterList());
+        return MethodHandles.guardWithTest(isNull, zero, handle.asType(erasedType)).asType(type);
+    }
+
+    /**
+     * Converts the arguments of a handle in the dispatch shape to the
+     * argument types of the proxy method, applying the given coercions
+     * (which may be null if no argument needs to be converted).
+     */
+    public static MethodHandle coerceArguments(MethodHandle handle, MethodType proxyType, Coercion[] coercions) {
+        if (coercions == null) {
+            return handle;
+        }
+        MethodType type = handle.type();
+        for (int i = 2; i < type.parameterCount(); ++i) {
+            Coercion coercion = coercions[i - 2];
+            if (coercion.requiresFilter()) {
+                MethodHandle filter = MethodHandles.insertArguments(sCoerce.bindTo(coercion), 1, (Object)null)
+                    .asType(MethodType.methodType(type.parameterType(i), proxyType.parameterType(i)));
+                handle = MethodHandles.filterArguments(handle, i, filter);
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Converts the return value of a handle in the dispatch shape to the
+     * return type of the proxy method by applying the given coercion.
+     * If {@code passProxy} is true, the calling proxy is passed to the
+     * coercion so it can be reused when the target returns itself.
+     */
+    public static MethodHandle coerceReturn(MethodHandle handle, Class<?> expectedType, Coercion coercion, boolean passProxy) {
+        if (!coercion.requiresFilter()) {
+            return handle;
+        }
+        Class<?> actualType = handle.type().returnType();
+        MethodHandle coerce = sCoerce.bindTo(coercion)
+            .asType(MethodType.methodType(expectedType, actualType, ProxyBase.class));
+        if (!passProxy) {
+            coerce = MethodHandles.insertArguments(coerce, 1, (Object)null);
+            return MethodHandles.filterReturnValue(handle, coerce);
+        }
+        MethodType type = handle.type();
+        int[] reorder = new int[type.parameterCount() + 1];
+        for (int i = 0; i < type.parameterCount(); ++i) {
+            reorder[i] = i;
+        }
+        reorder[type.parameterCount()] = 0;
+        MethodHandle combined = MethodHandles.collectArguments(coerce, 0, handle);
+        return MethodHandles.permuteArguments(combined, type.changeReturnType(expectedType), reorder);
+    }
+
+    /**
+     * Creates a handle of the given dispatch type that forwards
+     * to {@link ProxyDispatcherBase#handle(ProxyBase, Object, Object[])}.
+     */
+    public static MethodHandle dispatch(ProxyDispatcherBase dispatcher, MethodType type) {
+        return sDispatch.bindTo(dispatcher)
+            .asCollector(Object[].class, type.parameterCount() - 2)
+            .asType(type);
+    }
+
+    /**
+     * Returns the dispatch type of a proxy method, which is
+     * {@code (ProxyBase proxy, Object target, <args>)<return>}.
+     */
+    public static MethodType dispatchType(Method proxyMethod) {
+        return MethodType.methodType(proxyMethod.getReturnType(), proxyMethod.getParameterTypes())
+            .insertParameterTypes(0, ProxyBase.class, Object.class);
+    }
+}
@@ -0,0 +1,25 @@
+package com.crossbowffs.reflectionproxy;
+
+/**
+ * Intercepts calls to proxy methods, e.g. for tracing, profiling,
+ * rate limiting or caching. Register interceptors with
+ * {@link ProxyFactory#addInterceptor(Class, ProxyInterceptor)}.
+ *
+ * <p>
+ * Interceptors are composed into the binding of a proxy method when it is
+ * bound, so proxy methods without interceptors are not affected at all.
+ * Intercepted proxy methods always dispatch through an argument array,
+ * like {@link java.lang.reflect.Proxy} based proxies do.
+ */
+public interface ProxyInterceptor {
+    /**
+     * Called for every call to an intercepted proxy method. To continue
+     * the call, return the result of {@link ProxyInvocation#proceed()};
+     * an interceptor may also return a value or throw an exception
+     * without calling the target member at all.
+     *
+     * @param invocation The call being intercepted.
+     * @return The value to return from the proxy method.
+     */
+    Object intercept(ProxyInvocation invocation);
+}
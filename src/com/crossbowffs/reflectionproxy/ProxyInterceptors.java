@@ -0,0 +1,104 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of the interceptors of each proxy interface. Only read when a
+ * proxy method is bound, so lookups do not need to be fast.
+ *
+ * <p>
+ * Registrations are stored with a {@link ClassValue}, so they are discarded
+ * along with their proxy interface. Interceptors often belong to the same
+ * class loader as the interface, so a weak map would never release the
+ * interface: its values would keep their own keys alive.
+ */
+/* package */ final class ProxyInterceptors {
+    private static final ClassValue<List<Registration>> sRegistrations = new ClassValue<List<Registration>>() {
+        @Override
+        protected List<Registration> computeValue(Class<?> proxyClass) {
+            return new ArrayList<Registration>();
+        }
+    };
+
+    // Guards the registration lists
+    private static final Object sLock = new Object();
+
+    private ProxyInterceptors() { }
+
+    private static final class Registration {
+        private final String mMethodName;
+        private final ProxyInterceptor mInterceptor;
+
+        private Registration(String methodName, ProxyInterceptor interceptor) {
+            mMethodName = methodName;
+            mInterceptor = interceptor;
+        }
+
+        private boolean matches(Method proxyMethod) {
+            return mMethodName == null || mMethodName.equals(proxyMethod.getName());
+        }
+    }
+
+    /**
+     * Registers an interceptor for the methods of a proxy interface.
+     *
+     * @param proxyClass The proxy interface.
+     * @param methodName The name of the intercepted methods, or null to intercept all methods.
+     * @param interceptor The interceptor.
+     */
+    public static void add(Class<?> proxyClass, String methodName, ProxyInterceptor interceptor) {
+        if (interceptor == null) {
+            throw new NullPointerException("interceptor");
+        }
+        synchronized (sLock) {
+            sRegistrations.get(proxyClass).add(new Registration(methodName, interceptor));
+        }
+    }
+
+    /**
+     * Unregisters every registration of an interceptor for a proxy interface.
+     *
+     * @return Whether the interceptor was registered.
+     */
+    public static boolean remove(Class<?> proxyClass, ProxyInterceptor interceptor) {
+        synchronized (sLock) {
+            List<Registration> registrations = sRegistrations.get(proxyClass);
+            boolean removed = false;
+            for (int i = registrations.size() - 1; i >= 0; --i) {
+                if (registrations.get(i).mInterceptor == interceptor) {
+                    registrations.remove(i);
+                    removed = true;
+                }
+            }
+            if (registrations.isEmpty()) {
+                sRegistrations.remove(proxyClass);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Gets the interceptors of a proxy method, in registration order
+     * (the first interceptor is called first), or null if there are none.
+     */
+    public static ProxyInterceptor[] get(Class<?> proxyClass, Method proxyMethod) {
+        synchronized (sLock) {
+            List<Registration> registrations = sRegistrations.get(proxyClass);
+            if (registrations.isEmpty()) {
+                return null;
+            }
+            List<ProxyInterceptor> interceptors = new ArrayList<ProxyInterceptor>();
+            for (Registration registration : registrations) {
+                if (registration.matches(proxyMethod)) {
+                    interceptors.add(registration.mInterceptor);
+                }
+            }
+            if (interceptors.isEmpty()) {
+                return null;
+            }
+            return interceptors.toArray(new ProxyInterceptor[interceptors.size()]);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Weak identity map from target objects to their interned proxies.
+ * Reads are lock-free; entries whose target has been collected are
+ * purged on the next write.
+ */
+/* package */ final class ProxyInternTable {
+    private final ConcurrentMap<Object, WeakReference<ProxyBase>> mProxies = new ConcurrentHashMap<Object, WeakReference<ProxyBase>>();
+    private final ReferenceQueue<Object> mQueue = new ReferenceQueue<Object>();
+
+    /**
+     * Weak reference to a target, compared by the identity of the referent.
+     */
+    private static final class TargetReference extends WeakReference<Object> {
+        private final int mHash;
+
+        private TargetReference(Object target, ReferenceQueue<Object> queue) {
+            super(target, queue);
+            mHash = System.identityHashCode(target);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof TargetReference)) {
+                return false;
+            }
+            Object target = get();
+            return target != null && target == ((TargetReference)o).get();
+        }
+    }
+
+    /**
+     * Strong key used for lookups, so that reads do not need
+     * to allocate a {@link WeakReference}.
+     */
+    private static final class LookupKey {
+        private final Object mTarget;
+
+        private LookupKey(Object target) {
+            mTarget = target;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mTarget);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TargetReference && ((TargetReference)o).get() == mTarget;
+        }
+    }
+
+    /**
+     * Gets the interned proxy for the specified target, or null if there is none.
+     */
+    public ProxyBase get(Object target) {
+        WeakReference<ProxyBase> proxyRef = mProxies.get(new LookupKey(target));
+        return proxyRef != null ? proxyRef.get() : null;
+    }
+
+    /**
+     * Interns the proxy for the specified target, unless another proxy has
+     * already been interned for it. Returns the proxy that is interned.
+     */
+    public ProxyBase intern(Object target, ProxyBase proxy) {
+        purge();
+        WeakReference<ProxyBase> newRef = new WeakReference<ProxyBase>(proxy);
+        TargetReference key = new TargetReference(target, mQueue);
+        while (true) {
+            WeakReference<ProxyBase> oldRef = mProxies.putIfAbsent(key, newRef);
+            if (oldRef == null) {
+                return proxy;
+            }
+            ProxyBase oldProxy = oldRef.get();
+            if (oldProxy != null) {
+                return oldProxy;
+            }
+            // The previous proxy was collected, but the target is still alive
+            if (mProxies.replace(new LookupKey(target), oldRef, newRef)) {
+                return proxy;
+            }
+        }
+    }
+
+    private void purge() {
+        Reference<?> ref;
+        while ((ref = mQueue.poll()) != null) {
+            mProxies.remove(ref);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Interns proxies of the annotated interface, so that proxying the
+ * same target object repeatedly returns the same proxy instance,
+ * as long as that proxy is still reachable. This applies both to
+ * {@link ProxyFactory#createProxy(Class, Object)} and to proxies
+ * created for proxy-typed return values, which avoids allocating
+ * a new proxy on every hop when walking an object graph.
+ *
+ * <p>
+ * Proxies and targets are only weakly referenced by the intern table,
+ * so interning does not prevent either from being garbage collected.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProxyInterned {
+
+}
@@ -0,0 +1,85 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * A call to an intercepted proxy method, passed to each
+ * {@link ProxyInterceptor} in turn. Invocations must not be
+ * used after the proxy method call has returned.
+ */
+public final class ProxyInvocation {
+    private final InterceptedDispatcher mDispatcher;
+    private final ProxyBase mProxy;
+    private final Object mTarget;
+    private final Object[] mArgs;
+    private int mIndex;
+
+    /* package */ ProxyInvocation(InterceptedDispatcher dispatcher, ProxyBase proxy, Object target, Object[] args) {
+        mDispatcher = dispatcher;
+        mProxy = proxy;
+        mTarget = target;
+        mArgs = args;
+    }
+
+    /**
+     * Gets the proxy method that was called.
+     */
+    public Method getProxyMethod() {
+        return mDispatcher.getProxyMethod();
+    }
+
+    /**
+     * Gets the target member that the proxy method is bound to (a
+     * {@link Method}, {@link java.lang.reflect.Field} or
+     * {@link java.lang.reflect.Constructor}), or null if it is not bound
+     * to a single member (e.g. {@link ProxySnapshot} methods). For
+     * {@link ProxyPath} methods, this is the last member of the path.
+     */
+    public Member getTargetMember() {
+        return mDispatcher.getTargetMember();
+    }
+
+    /**
+     * Gets the proxy the method was called on.
+     */
+    public ProxyBase getProxy() {
+        return mProxy;
+    }
+
+    /**
+     * Gets the target object, or null if the method was called on a static proxy.
+     */
+    public Object getTarget() {
+        return mTarget;
+    }
+
+    /**
+     * Gets the arguments of the call, which have already been converted
+     * to the parameter types of the target member (e.g. proxies are
+     * unwrapped into their target objects). The array is not copied, so
+     * changes to it are seen by later interceptors and the target member.
+     */
+    public Object[] getArguments() {
+        return mArgs;
+    }
+
+    /**
+     * Calls the next interceptor, or the target member if this is the last
+     * interceptor, and returns the value returned by the proxy method.
+     * May be called more than once, e.g. to retry a failed call.
+     */
+    public Object proceed() {
+        int index = mIndex;
+        ProxyInterceptor[] interceptors = mDispatcher.getInterceptors();
+        if (index == interceptors.length) {
+            return mDispatcher.invoke(mProxy, mTarget, mArgs);
+        }
+        mIndex = index + 1;
+        try {
+            return interceptors[index].intercept(this);
+        } finally {
+            mIndex = index;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.crossbowffs.reflectionproxy;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optional per-binding invocation metrics: call counts, error counts
+ * and latency histograms for every proxy method.
+ *
+ * <p>
+ * Metrics are disabled by default. Whether a proxy method is instrumented
+ * is decided when it is bound, so enabling metrics only affects proxy
+ * methods that are bound afterwards, and proxy methods bound while metrics
+ * are disabled run exactly as fast as if this class did not exist. To
+ * instrument every proxy method, enable metrics at startup, either by calling
+ * {@link #setEnabled(boolean)} before creating any proxies, or by setting the
+ * {@code com.crossbowffs.reflectionproxy.metrics} system property to
+ * {@code true}, which also registers the MBean.
+ *
+ * <p>
+ * Note that instrumented proxy methods of {@link ProxyGenerated} interfaces
+ * dispatch through an argument array, like {@link java.lang.reflect.Proxy}
+ * based proxies do.
+ *
+ * <p>
+ * When a binding is released (because its class loader was evicted or
+ * unloaded), its counters are added to a single retired bucket, so the
+ * totals never go down. The retired bucket is returned by
+ * {@link #getRetiredSnapshot()}, and is included in the MBean totals,
+ * but not in {@link #getSnapshot()}.
+ */
+public final class ProxyMetrics {
+    /**
+     * The JMX object name of the metrics MBean.
+     */
+    public static final String OBJECT_NAME = "com.crossbowffs.reflectionproxy:type=ProxyMetrics";
+
+    // Metrics are owned by the dispatchers that record them, and are only
+    // weakly referenced here, so they never keep a proxy interface alive.
+    // The references hold on to the counters though, which are added to
+    // sRetired once the metrics are collected. All guarded by sMetrics.
+    private static final Set<MetricsReference> sMetrics = new HashSet<MetricsReference>();
+    private static final ReferenceQueue<BindingMetrics> sQueue = new ReferenceQueue<BindingMetrics>();
+    private static final BindingMetrics.Counters sRetired = new BindingMetrics.Counters();
+    private static volatile boolean sEnabled;
+
+    private static final class MetricsReference extends WeakReference<BindingMetrics> {
+        private final BindingMetrics.Counters mCounters;
+
+        public MetricsReference(BindingMetrics metrics) {
+            super(metrics, sQueue);
+            mCounters = metrics.getCounters();
+        }
+    }
+
+    static {
+        if (Boolean.getBoolean("com.crossbowffs.reflectionproxy.metrics")) {
+            sEnabled = true;
+            try {
+                registerMBean();
+            } catch (ProxyException e) {
+                // Metrics are still available through getSnapshot()
+            }
+        }
+    }
+
+    private ProxyMetrics() { }
+
+    /**
+     * Enables or disables instrumentation of proxy methods that are bound from now on.
+     * Proxy methods that have already been bound are not affected.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Returns whether proxy methods that are bound from now on are instrumented.
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Moves the counters of collected metrics to the retired bucket.
+     * Must be called while holding the lock on {@link #sMetrics}.
+     */
+    private static void retireCollectedMetrics() {
+        Reference<? extends BindingMetrics> ref;
+        while ((ref = sQueue.poll()) != null) {
+            MetricsReference metricsRef = (MetricsReference)ref;
+            if (sMetrics.remove(metricsRef)) {
+                metricsRef.mCounters.addTo(sRetired);
+            }
+        }
+    }
+
+    private static List<BindingMetrics> getAllMetrics() {
+        synchronized (sMetrics) {
+            retireCollectedMetrics();
+            List<BindingMetrics> list = new ArrayList<BindingMetrics>(sMetrics.size());
+            for (MetricsReference ref : sMetrics) {
+                BindingMetrics metrics = ref.get();
+                if (metrics != null) {
+                    list.add(metrics);
+                }
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Gets the current counters of every instrumented proxy method,
+     * sorted by call count, busiest first.
+     */
+    public static List<ProxyMetricsSnapshot> getSnapshot() {
+        // A proxy method may have been bound more than once (e.g. after its
+        // class loader was evicted), so combine the metrics of each method
+        Map<Class<?>, Map<Method, List<BindingMetrics>>> grouped = new HashMap<Class<?>, Map<Method, List<BindingMetrics>>>();
+        for (BindingMetrics metrics : getAllMetrics()) {
+            Map<Method, List<BindingMetrics>> classMetrics = grouped.get(metrics.getProxyClass());
+            if (classMetrics == null) {
+                classMetrics = new HashMap<Method, List<BindingMetrics>>();
+                grouped.put(metrics.getProxyClass(), classMetrics);
+            }
+            List<BindingMetrics> methodMetrics = classMetrics.get(metrics.getProxyMethod());
+            if (methodMetrics == null) {
+                methodMetrics = new ArrayList<BindingMetrics>();
+                classMetrics.put(metrics.getProxyMethod(), methodMetrics);
+            }
+            methodMetrics.add(metrics);
+        }
+        List<ProxyMetricsSnapshot> snapshots = new ArrayList<ProxyMetricsSnapshot>();
+        for (Map<Method, List<BindingMetrics>> classMetrics : grouped.values()) {
+            for (List<BindingMetrics> methodMetrics : classMetrics.values()) {
+                snapshots.add(BindingMetrics.snapshot(methodMetrics));
+            }
+        }
+        Collections.sort(snapshots, new Comparator<ProxyMetricsSnapshot>() {
+            @Override
+            public int compare(ProxyMetricsSnapshot a, ProxyMetricsSnapshot b) {
+                return Long.compare(b.getCallCount(), a.getCallCount());
+            }
+        });
+        return snapshots;
+    }
+
+    /**
+     * Gets the combined counters of every instrumented proxy method that
+     * has been released since metrics were last reset. The proxy class
+     * and method of the returned snapshot are {@code null}.
+     */
+    public static ProxyMetricsSnapshot getRetiredSnapshot() {
+        synchronized (sMetrics) {
+            retireCollectedMetrics();
+            return sRetired.snapshot(null, null);
+        }
+    }
+
+    /**
+     * Resets the counters of every instrumented proxy method,
+     * as well as the retired counters, to zero.
+     */
+    public static void reset() {
+        synchronized (sMetrics) {
+            retireCollectedMetrics();
+            for (MetricsReference ref : sMetrics) {
+                ref.mCounters.reset();
+            }
+            sRetired.reset();
+        }
+    }
+
+    /**
+     * Registers the metrics MBean with the platform MBean server under
+     * {@link #OBJECT_NAME}. Does nothing if it is already registered.
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(new MBean(), ProxyMetricsMBean.class), name);
+            }
+        } catch (JMException e) {
+            throw new ProxyException("Could not register metrics MBean", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics MBean registered by {@link #registerMBean()}.
+     * Does nothing if it is not registered.
+     */
+    public static void unregisterMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new ProxyException("Could not unregister metrics MBean", e);
+        }
+    }
+
+    /**
+     * Wraps a newly bound dispatcher so that its calls are recorded,
+     * if metrics are enabled. Otherwise, returns the dispatcher unchanged.
+     */
+    /* package */ static ProxyDispatcherBase instrument(Class<?> proxyClass, Method proxyMethod, ProxyDispatcherBase dispatcher) {
+        if (!sEnabled) {
+            return dispatcher;
+        }
+        BindingMetrics metrics = new BindingMetrics(proxyClass, proxyMethod);
+        synchronized (sMetrics) {
+            retireCollectedMetrics();
+            sMetrics.add(new MetricsReference(metrics));
+        }
+        return new MeteredDispatcher(dispatcher, metrics);
+    }
+
+    private static final class MBean implements ProxyMetricsMBean {
+        @Override
+        public boolean isEnabled() {
+            return ProxyMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            ProxyMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public int getBindingCount() {
+            return getSnapshot().size();
+        }
+
+        @Override
+        public long getCallCount() {
+            long count = getRetiredSnapshot().getCallCount();
+            for (ProxyMetricsSnapshot snapshot : getSnapshot()) {
+                count += snapshot.getCallCount();
+            }
+            return count;
+        }
+
+        @Override
+        public long getErrorCount() {
+            long count = getRetiredSnapshot().getErrorCount();
+            for (ProxyMetricsSnapshot snapshot : getSnapshot()) {
+                count += snapshot.getErrorCount();
+            }
+            return count;
+        }
+
+        @Override
+        public String[] getBindings() {
+            List<ProxyMetricsSnapshot> snapshots = getSnapshot();
+            String[] bindings = new String[snapshots.size()];
+            for (int i = 0; i < bindings.length; ++i) {
+                bindings[i] = snapshots.get(i).toString();
+            }
+            return bindings;
+        }
+
+        @Override
+        public void reset() {
+            ProxyMetrics.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.crossbowffs.reflectionproxy;
+
+/**
+ * Management interface for {@link ProxyMetrics}, registered under
+ * {@link ProxyMetrics#OBJECT_NAME} by {@link ProxyMetrics#registerMBean()}.
+ */
+public interface ProxyMetricsMBean {
+    /**
+     * Whether proxy methods bound from now on are instrumented.
+     */
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * The number of instrumented proxy methods.
+     */
+    int getBindingCount();
+
+    /**
+     * The total number of calls to all instrumented proxy methods,
+     * including the ones that have since been released.
+     */
+    long getCallCount();
+
+    /**
+     * The total number of calls to all instrumented proxy methods that threw an exception,
+     * including the ones that have since been released.
+     */
+    long getErrorCount();
+
+    /**
+     * One line per instrumented proxy method, in the format
+     * of {@link ProxyMetricsSnapshot#toString()}, busiest first.
+     */
+    String[] getBindings();
+
+    /**
+     * Resets all counters to zero.
+     */
+    void reset();
+}
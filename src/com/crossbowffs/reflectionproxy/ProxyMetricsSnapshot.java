@@ -0,0 +1,117 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Method;
+
+/**
+ * The invocation counters of a single proxy method at one point
+ * in time. Returned by {@link ProxyMetrics#getSnapshot()}.
+ */
+public final class ProxyMetricsSnapshot {
+    private final Class<?> mProxyClass;
+    private final Method mProxyMethod;
+    private final long mCallCount;
+    private final long mErrorCount;
+    private final long mTotalNanos;
+    private final long[] mLatencyBuckets;
+
+    /* package */ ProxyMetricsSnapshot(Class<?> proxyClass, Method proxyMethod,
+                                       long callCount, long errorCount, long totalNanos, long[] latencyBuckets) {
+        mProxyClass = proxyClass;
+        mProxyMethod = proxyMethod;
+        mCallCount = callCount;
+        mErrorCount = errorCount;
+        mTotalNanos = totalNanos;
+        mLatencyBuckets = latencyBuckets;
+    }
+
+    /**
+     * Gets the proxy interface the method was called through,
+     * or {@code null} for {@link ProxyMetrics#getRetiredSnapshot()}.
+     */
+    public Class<?> getProxyClass() {
+        return mProxyClass;
+    }
+
+    /**
+     * Gets the proxy method, or {@code null}
+     * for {@link ProxyMetrics#getRetiredSnapshot()}.
+     */
+    public Method getProxyMethod() {
+        return mProxyMethod;
+    }
+
+    /**
+     * Gets the number of calls to the proxy method.
+     */
+    public long getCallCount() {
+        return mCallCount;
+    }
+
+    /**
+     * Gets the number of calls to the proxy method that threw an exception.
+     */
+    public long getErrorCount() {
+        return mErrorCount;
+    }
+
+    /**
+     * Gets the total time spent in the proxy method, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    /**
+     * Gets the mean time per call, in nanoseconds, or 0 if the method was never called.
+     */
+    public double getMeanNanos() {
+        return mCallCount == 0 ? 0 : (double)mTotalNanos / mCallCount;
+    }
+
+    /**
+     * Gets the latency histogram. Element {@code i} is the number of calls
+     * that took less than {@code 2^i} nanoseconds, and at least
+     * {@code 2^(i-1)} nanoseconds. The last element also counts all slower calls.
+     */
+    public long[] getLatencyHistogram() {
+        return mLatencyBuckets.clone();
+    }
+
+    /**
+     * Estimates a latency percentile from the histogram. The result is the
+     * upper bound of the histogram bucket containing the percentile, so it
+     * may overestimate the real value by up to a factor of two.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency in nanoseconds, or 0 if the method was never called.
+     */
+    public long getLatencyPercentile(double percentile) {
+        long total = 0;
+        for (long count : mLatencyBuckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+        long seen = 0;
+        for (int i = 0; i < mLatencyBuckets.length; ++i) {
+            seen += mLatencyBuckets[i];
+            if (seen >= rank && seen > 0) {
+                return 1L << i;
+            }
+        }
+        return 1L << (mLatencyBuckets.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        String name = mProxyMethod == null ? "(retired)" : mProxyClass.getName() + "#" + mProxyMethod.getName();
+        return name +
+            ": calls=" + mCallCount +
+            ", errors=" + mErrorCount +
+            ", mean=" + Math.round(getMeanNanos()) + "ns" +
+            ", p50<" + getLatencyPercentile(50) + "ns" +
+            ", p99<" + getLatencyPercentile(99) + "ns";
+    }
+}
@@ -0,0 +1,47 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a proxy method as a path accessor, which reads a value by following
+ * a chain of fields and no-arg methods, starting from the target object.
+ * The method must have the signature {@code T methodName()}.
+ *
+ * <p>
+ * Path segments are separated by dots. A segment ending with {@code ()}
+ * calls a no-arg method; any other segment reads a field. For example,
+ * {@code @ProxyPath("mData.getOwner().mId") int getOwnerId()} is equivalent
+ * to {@code target.mData.getOwner().mId}. The whole path is resolved when
+ * the method is bound, and is traversed without creating intermediate
+ * proxies. Only the final value is converted to the proxy return type.
+ *
+ * <p>
+ * If an intermediate value is null, the behavior is determined by
+ * {@link #nullPolicy()}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProxyPath {
+    String value();
+
+    NullPolicy nullPolicy() default NullPolicy.THROW;
+
+    /**
+     * What to do when a path cannot be followed because a value is null.
+     */
+    enum NullPolicy {
+        /**
+         * Throw a {@link ProxyException}.
+         */
+        THROW,
+
+        /**
+         * Return the default value of the proxy return type
+         * ({@code null}, zero or {@code false}).
+         */
+        RETURN_DEFAULT
+    }
+}
@@ -0,0 +1,37 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a proxy method as a snapshot accessor, which copies many fields
+ * of the target object into a plain snapshot object in a single call.
+ * The method must have either of the following signatures:
+ * <ul>
+ *     <li>Create: {@code S snapshot()}</li>
+ *     <li>Fill: {@code void snapshot(S into)} or {@code S snapshot(S into)}</li>
+ * </ul>
+ *
+ * <p>
+ * {@code S} is a concrete class or a record. Every non-static, non-transient
+ * field of {@code S} (including inherited fields) is copied from the target
+ * field with the same name. To map a snapshot field to a target field with
+ * a different name, annotate it with {@link ProxyField}. Snapshot fields
+ * may use proxy types and widened primitive types, like field getters.
+ *
+ * <p>
+ * When creating a snapshot, records are constructed through their canonical
+ * constructor, and other classes through their no-arg constructor. Records
+ * cannot be filled, since their fields are final.
+ *
+ * <p>
+ * The fields to copy are resolved when the method is bound, and are read
+ * one after another without any synchronization, so the snapshot is only
+ * consistent if the target object is not modified concurrently.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProxySnapshot {
+}
@@ -0,0 +1,30 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Makes exceptions thrown by target methods and constructors pass through
+ * the proxy method unchanged, instead of being wrapped in a {@link ProxyException}.
+ * Use this for target members that throw exceptions as a normal result
+ * (e.g. parse failures), where wrapping every exception would be costly.
+ *
+ * <p>
+ * Unchecked exceptions, and checked exceptions that the proxy method
+ * declares in its {@code throws} clause, are rethrown as-is. Any other
+ * exception is wrapped in a {@link ProxyException} without a stack trace
+ * of its own (the cause still has one).
+ *
+ * <p>
+ * Can be applied to a proxy interface, which affects every method declared
+ * by the interface, or to a single proxy method. Use
+ * {@code @ProxyTransparentExceptions(false)} on a method to opt it out of
+ * the behavior of its interface.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ProxyTransparentExceptions {
+    boolean value() default true;
+}
@@ -1,15 +1,35 @@
 package com.crossbowffs.reflectionproxy;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /* package */ final class ProxyUtils {
     private ProxyUtils() { }
 
     public static Object getProxyTarget(ProxyBase proxy) {
+        if (proxy instanceof GeneratedProxy) {
+            return ((GeneratedProxy)proxy).mTarget;
+        }
         return getInvocationHandler(proxy).getTarget();
     }
 
     public static Class<?> getTargetClass(Class<?> proxyClass) {
+        return ProxyClassInfo.get(proxyClass).getTargetClass();
+    }
+
+    public static Class<?> resolveTargetClass(Class<?> proxyClass) {
         ProxyTarget annotation = proxyClass.getAnnotation(ProxyTarget.class);
         if (annotation != null) {
             return annotation.value();
@@ -19,7 +39,9 @@ import java.lang.reflect.Proxy;
         if (altAnnotation != null) {
             String className = altAnnotation.value();
             try {
-                return Class.forName(className, true, proxyClass.getClassLoader());
+                // Like a class literal in @ProxyTarget, don't initialize the
+                // target; members are initialized by the JVM when first used
+                return Class.forName(className, false, proxyClass.getClassLoader());
             } catch (ClassNotFoundException e) {
                 throw new ProxyException("No proxy target found with name: " + className, e);
             }
@@ -28,68 +50,186 @@ import java.lang.reflect.Proxy;
         throw new ProxyException("No proxy target annotation found on class: " + proxyClass.getName());
     }
 
-    public static Object coerceInput(Class<?> expectedType, Object value) {
-        if (value == null || expectedType.isAssignableFrom(value.getClass())) {
-            return value;
-        } else if (expectedType.isPrimitive()) {
-            checkPrimitiveType(expectedType, value);
-            return value;
-        } else if (value instanceof ProxyBase) {
-            Object rawValue = getProxyTarget((ProxyBase)value);
-            if (expectedType.isAssignableFrom(rawValue.getClass())) {
-                return rawValue;
+    public static void coerceArgTypes(Class<?>[] argTypes) {
+        for (int i = 0; i < argTypes.length; ++i) {
+            Class<?> argType = argTypes[i];
+            if (ProxyBase.class.isAssignableFrom(argType)) {
+                argTypes[i] = getTargetClass(argType);
+            } else if (isProxyArray(argType)) {
+                argTypes[i] = Array.newInstance(getTargetClass(argType.getComponentType()), 0).getClass();
             }
         }
-        throw new ProxyException(value.getClass().getName() +
-            " cannot be converted to " + expectedType.getName());
-    }
-
-    @SuppressWarnings("unchecked")
-    public static Object coerceOutput(Class<?> expectedType, Object value, ProxyBase inputProxy) {
-        if (value == null || expectedType.isAssignableFrom(value.getClass())) {
-            return value;
-        } else if (expectedType.isPrimitive()) {
-            checkPrimitiveType(expectedType, value);
-            return value;
-        } else if (ProxyBase.class.isAssignableFrom(expectedType)) {
-            ProxyBase proxy;
-            // Reuse the current proxy object if the target method uses `return this;`
-            // This reduces object allocations when performing method cascading (builder pattern)
-            if (inputProxy != null && value == getProxyTarget(inputProxy)) {
-                proxy = inputProxy;
-            } else {
-                proxy = ProxyFactory.createProxy((Class<? extends ProxyBase>)expectedType, value);
+    }
+
+    /**
+     * Returns the erasure of a generic type.
+     */
+    public static Class<?> getRawType(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>)type;
+        } else if (type instanceof ParameterizedType) {
+            return (Class<?>)((ParameterizedType)type).getRawType();
+        } else if (type instanceof GenericArrayType) {
+            Class<?> componentType = getRawType(((GenericArrayType)type).getGenericComponentType());
+            return Array.newInstance(componentType, 0).getClass();
+        } else if (type instanceof TypeVariable) {
+            return getRawType(((TypeVariable<?>)type).getBounds()[0]);
+        } else if (type instanceof WildcardType) {
+            return getRawType(((WildcardType)type).getUpperBounds()[0]);
+        }
+        throw new AssertionError(type);
+    }
+
+    /**
+     * If the type is {@code List<P>}, {@code Collection<P>} or
+     * {@code Map<K, P>} where {@code P} is a proxy interface, returns
+     * {@code P}. Otherwise, returns null.
+     */
+    public static Class<?> getViewElementType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType parameterizedType = (ParameterizedType)type;
+        Type rawType = parameterizedType.getRawType();
+        Type elementType;
+        if (rawType == List.class || rawType == Collection.class) {
+            elementType = parameterizedType.getActualTypeArguments()[0];
+        } else if (rawType == Map.class) {
+            elementType = parameterizedType.getActualTypeArguments()[1];
+        } else {
+            return null;
+        }
+        Class<?> elementClass = getRawType(elementType);
+        if (elementClass == ProxyBase.class || !ProxyBase.class.isAssignableFrom(elementClass)) {
+            return null;
+        }
+        return elementClass;
+    }
+
+    /**
+     * Returns whether the type is an array of proxies.
+     */
+    public static boolean isProxyArray(Class<?> type) {
+        return type.isArray() && ProxyBase.class.isAssignableFrom(type.getComponentType());
+    }
+
+    /**
+     * Resolves a type argument of a generic supertype of a type, e.g. the
+     * element type of {@code List<String>}, or of a class that extends
+     * {@code ArrayList<String>}. Returns null if the type is not a subtype
+     * of the supertype, or if it is raw. Type variables that cannot be
+     * resolved are returned as is.
+     */
+    private static Type getTypeArgument(Type type, Class<?> supertype, int index) {
+        Class<?> rawType = getRawType(type);
+        if (!supertype.isAssignableFrom(rawType)) {
+            return null;
+        }
+        if (rawType == supertype) {
+            if (type instanceof ParameterizedType) {
+                return ((ParameterizedType)type).getActualTypeArguments()[index];
+            }
+            return null;
+        }
+        List<Type> directSupertypes = new ArrayList<Type>();
+        if (rawType.getGenericSuperclass() != null) {
+            directSupertypes.add(rawType.getGenericSuperclass());
+        }
+        directSupertypes.addAll(Arrays.asList(rawType.getGenericInterfaces()));
+        for (Type directSupertype : directSupertypes) {
+            Type argument = getTypeArgument(directSupertype, supertype, index);
+            if (argument == null) {
+                continue;
             }
-            if (expectedType.isAssignableFrom(proxy.getClass())) {
-                return proxy;
+            if (argument instanceof TypeVariable && type instanceof ParameterizedType) {
+                // Substitute the type parameters of this type
+                TypeVariable<?>[] parameters = rawType.getTypeParameters();
+                for (int i = 0; i < parameters.length; ++i) {
+                    if (parameters[i].equals(argument)) {
+                        return ((ParameterizedType)type).getActualTypeArguments()[i];
+                    }
+                }
             }
+            return argument;
         }
-        throw new ProxyException(value.getClass().getName() +
-            " cannot be converted to " + expectedType.getName());
+        return null;
     }
 
-    public static void coerceArgs(Class<?>[] argTypes, Object[] args) {
-        if (args == null) {
-            return;
+    /**
+     * Returns whether the elements of a view can be converted. If the target
+     * element type is unknown (because the target type is raw, or the element
+     * type is a type variable or {@link Object}), every element is checked
+     * by the view instead.
+     */
+    private static boolean isCoercibleViewElement(Class<?> elementType, Type actualElementType, boolean isInput) {
+        if (actualElementType == null || actualElementType instanceof TypeVariable) {
+            return true;
+        }
+        Class<?> rawActualType = getRawType(actualElementType);
+        if (rawActualType == Object.class) {
+            return true;
         }
-        for (int i = 0; i < args.length; ++i) {
-            args[i] = coerceInput(argTypes[i], args[i]);
+        Class<?> targetType = getTargetClass(elementType);
+        if (isInput) {
+            return rawActualType.isAssignableFrom(targetType);
+        } else {
+            return targetType.isAssignableFrom(rawActualType);
         }
     }
 
-    public static void coerceArgTypes(Class<?>[] argTypes) {
-        for (int i = 0; i < argTypes.length; ++i) {
-            Class<?> argType = argTypes[i];
-            if (ProxyBase.class.isAssignableFrom(argType)) {
-                argTypes[i] = getTargetClass(argType);
+    private static int getViewElementIndex(Class<?> viewType) {
+        return viewType == Map.class ? 1 : 0;
+    }
+
+    public static boolean isCoercibleInput(Type maybeProxyType, Type genericActualType) {
+        Class<?> rawType = getRawType(maybeProxyType);
+        Class<?> actualType = getRawType(genericActualType);
+        Class<?> elementType = getViewElementType(maybeProxyType);
+        if (elementType != null) {
+            if (!actualType.isAssignableFrom(rawType)) {
+                return false;
             }
+            // The target sees the view as its own type, e.g. a List as an Iterable,
+            // which has the same element type parameter if it has any
+            Type actualElementType = null;
+            if (actualType.getTypeParameters().length == rawType.getTypeParameters().length) {
+                actualElementType = getTypeArgument(genericActualType, actualType, getViewElementIndex(rawType));
+            }
+            return isCoercibleViewElement(elementType, actualElementType, true);
+        }
+        if (isProxyArray(rawType) && actualType.isArray()) {
+            return isCoercibleInput(rawType.getComponentType(), actualType.getComponentType());
         }
+        return isCoercibleRawInput(rawType, actualType);
     }
 
-    public static boolean isCoercibleInput(Class<?> maybeProxyType, Class<?> actualType) {
+    /**
+     * Checks that every argument of a proxy method can be converted to the
+     * corresponding parameter type of its target member. Target members are
+     * found by their erased parameter types, so this only fails for views
+     * whose element types do not match.
+     */
+    public static void checkParameterTypes(Method proxyMethod, Type[] genericActualTypes) {
+        Type[] proxyTypes = proxyMethod.getGenericParameterTypes();
+        if (proxyTypes.length != genericActualTypes.length) {
+            // Generic signatures may leave out synthetic parameters
+            return;
+        }
+        for (int i = 0; i < proxyTypes.length; ++i) {
+            if (!isCoercibleInput(proxyTypes[i], genericActualTypes[i])) {
+                throw new ProxyException("Proxy method parameter type (" + proxyTypes[i].getTypeName() +
+                    ") cannot be converted to target parameter type (" + genericActualTypes[i].getTypeName() + ")");
+            }
+        }
+    }
+
+    private static boolean isCoercibleRawInput(Class<?> maybeProxyType, Class<?> actualType) {
         if (actualType.isAssignableFrom(maybeProxyType)) {
             return true;
         }
+        if (Coercion.isWideningPrimitive(maybeProxyType, actualType)) {
+            return true;
+        }
         if (ProxyBase.class.isAssignableFrom(maybeProxyType)) {
             Class<?> rawType = getTargetClass(maybeProxyType);
             if (actualType.isAssignableFrom(rawType)) {
@@ -99,10 +239,32 @@ import java.lang.reflect.Proxy;
         return false;
     }
 
-    public static boolean isCoercibleOutput(Class<?> maybeProxyType, Class<?> actualType) {
+    public static boolean isCoercibleOutput(Type maybeProxyType, Type genericActualType) {
+        Class<?> rawType = getRawType(maybeProxyType);
+        Class<?> actualType = getRawType(genericActualType);
+        Class<?> elementType = getViewElementType(maybeProxyType);
+        if (elementType != null) {
+            if (rawType.isAssignableFrom(actualType)) {
+                Type actualElementType = getTypeArgument(genericActualType, rawType, getViewElementIndex(rawType));
+                return isCoercibleViewElement(elementType, actualElementType, false);
+            }
+            // Arrays can be viewed as lists
+            return rawType != Map.class && actualType.isArray() &&
+                isCoercibleOutput(elementType, actualType.getComponentType());
+        }
+        if (isProxyArray(rawType) && actualType.isArray()) {
+            return isCoercibleOutput(rawType.getComponentType(), actualType.getComponentType());
+        }
+        return isCoercibleRawOutput(rawType, actualType);
+    }
+
+    private static boolean isCoercibleRawOutput(Class<?> maybeProxyType, Class<?> actualType) {
         if (maybeProxyType.isAssignableFrom(actualType)) {
             return true;
         }
+        if (Coercion.isWideningPrimitive(actualType, maybeProxyType)) {
+            return true;
+        }
         if (ProxyBase.class.isAssignableFrom(maybeProxyType)) {
             Class<?> rawType = getTargetClass(maybeProxyType);
             if (rawType.isAssignableFrom(actualType)) {
@@ -112,34 +274,17 @@ import java.lang.reflect.Proxy;
         return false;
     }
 
-    private static ReflectionInvocationHandler getInvocationHandler(ProxyBase proxy) {
-        return (ReflectionInvocationHandler)Proxy.getInvocationHandler(proxy);
-    }
-
-    private static void throwIfPrimitiveTypeMismatch(Class<?> primitiveType, Class<?> expectedType, Object value) {
-        if (expectedType != value.getClass()) {
-            throw new ProxyException("Cannot convert primitive value of type " +
-                value.getClass().getName() + " to " + primitiveType.getName());
+    public static CursorInvocationHandler getCursorHandler(ProxyBase proxy) {
+        if (Proxy.isProxyClass(proxy.getClass())) {
+            InvocationHandler invocationHandler = Proxy.getInvocationHandler(proxy);
+            if (invocationHandler instanceof CursorInvocationHandler) {
+                return (CursorInvocationHandler)invocationHandler;
+            }
         }
+        throw new ProxyException("Not a cursor proxy: " + proxy.getClass().getName());
     }
 
-    private static void checkPrimitiveType(Class<?> primitiveType, Object value) {
-        if (int.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Integer.class, value);
-        } else if (boolean.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Boolean.class, value);
-        } else if (double.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Double.class, value);
-        } else if (float.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Float.class, value);
-        } else if (long.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Long.class, value);
-        } else if (byte.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Byte.class, value);
-        } else if (char.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Character.class, value);
-        } else if (short.class == primitiveType) {
-            throwIfPrimitiveTypeMismatch(primitiveType, Short.class, value);
-        }
+    private static ReflectionInvocationHandler getInvocationHandler(ProxyBase proxy) {
+        return (ReflectionInvocationHandler)Proxy.getInvocationHandler(proxy);
     }
 }
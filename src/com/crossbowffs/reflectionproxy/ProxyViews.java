@@ -0,0 +1,527 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.reflect.Array;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Lazy views of collections, maps and arrays whose elements are converted
+ * between proxies and target objects when they are accessed. Nothing is
+ * copied when a view is created, so only the elements that are actually
+ * read are wrapped into proxies. Writes through a view are converted back
+ * and stored in the underlying collection.
+ *
+ * <p>
+ * Converting a view back in the opposite direction returns the collection
+ * it was created from, so passing a view back to the target does not stack
+ * views on top of each other.
+ */
+/* package */ final class ProxyViews {
+    private ProxyViews() { }
+
+    /**
+     * The element conversions of a view. Reads convert elements of
+     * the underlying collection, writes convert elements stored into it,
+     * and queries convert arguments to methods like {@link List#indexOf}.
+     */
+    public static final class Codec {
+        private final Class<?> mProxyType;
+        private final boolean mIsWrapping;
+        private final Coercion mRead;
+        private final Coercion mWrite;
+        private final Coercion mQuery;
+
+        private Codec(Class<?> proxyType, boolean isWrapping, Coercion read, Coercion write, Coercion query) {
+            mProxyType = proxyType;
+            mIsWrapping = isWrapping;
+            mRead = read;
+            mWrite = write;
+            mQuery = query;
+        }
+
+        /**
+         * Creates the codec for views that show target objects as proxies.
+         */
+        public static Codec forOutput(Class<?> proxyType) {
+            Class<?> targetType = ProxyUtils.getTargetClass(proxyType);
+            return new Codec(proxyType, true,
+                Coercion.forOutput(proxyType, targetType),
+                Coercion.forInput(proxyType, targetType),
+                Coercion.UNWRAP_ANY);
+        }
+
+        /**
+         * Creates the codec for views that show proxies as target objects.
+         */
+        public static Codec forInput(Class<?> proxyType) {
+            Class<?> targetType = ProxyUtils.getTargetClass(proxyType);
+            Coercion wrap = Coercion.forOutput(proxyType, targetType);
+            return new Codec(proxyType, false, Coercion.forInput(proxyType, targetType), wrap, wrap);
+        }
+
+        private Object read(Object value) {
+            return mRead.coerce(value, null);
+        }
+
+        private Object write(Object value) {
+            return mWrite.coerce(value, null);
+        }
+
+        private Object query(Object value) {
+            return mQuery.coerce(value, null);
+        }
+
+        private boolean isInverseOf(Codec other) {
+            return mProxyType == other.mProxyType && mIsWrapping != other.mIsWrapping;
+        }
+    }
+
+    /**
+     * Implemented by all views, so that they can be unwrapped.
+     */
+    private interface View {
+        Object getBacking();
+
+        Codec getCodec();
+    }
+
+    /**
+     * Creates a view of the specified value.
+     *
+     * @param value The list, collection, map or array to view. May be null.
+     * @param viewType The type of the view, which must be
+     *                 {@link List}, {@link Collection} or {@link Map}.
+     *                 Arrays can be viewed as lists or collections.
+     * @param codec The element conversions.
+     */
+    @SuppressWarnings("unchecked")
+    public static Object create(Object value, Class<?> viewType, Codec codec) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof View) {
+            View view = (View)value;
+            if (view.getCodec().isInverseOf(codec) && viewType.isInstance(view.getBacking())) {
+                return view.getBacking();
+            }
+        }
+        if (viewType == Map.class) {
+            return new MapView((Map<Object, Object>)value, codec);
+        } else if (value.getClass().isArray()) {
+            return new ArrayView(value, codec);
+        } else if (value instanceof RandomAccess && value instanceof List) {
+            return new RandomAccessListView((List<Object>)value, codec);
+        } else if (value instanceof List) {
+            return new ListView((List<Object>)value, codec);
+        } else {
+            return new CollectionView((Collection<Object>)value, codec);
+        }
+    }
+
+    private static class ListView extends AbstractList<Object> implements View {
+        private final List<Object> mBacking;
+        private final Codec mCodec;
+
+        private ListView(List<Object> backing, Codec codec) {
+            mBacking = backing;
+            mCodec = codec;
+        }
+
+        @Override
+        public Object getBacking() {
+            return mBacking;
+        }
+
+        @Override
+        public Codec getCodec() {
+            return mCodec;
+        }
+
+        @Override
+        public Object get(int index) {
+            return mCodec.read(mBacking.get(index));
+        }
+
+        @Override
+        public Object set(int index, Object element) {
+            return mCodec.read(mBacking.set(index, mCodec.write(element)));
+        }
+
+        @Override
+        public void add(int index, Object element) {
+            mBacking.add(index, mCodec.write(element));
+        }
+
+        @Override
+        public Object remove(int index) {
+            return mCodec.read(mBacking.remove(index));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return mBacking.remove(mCodec.query(o));
+        }
+
+        @Override
+        public void clear() {
+            mBacking.clear();
+        }
+
+        @Override
+        public int size() {
+            return mBacking.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return mBacking.contains(mCodec.query(o));
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return mBacking.indexOf(mCodec.query(o));
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return mBacking.lastIndexOf(mCodec.query(o));
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return listIterator();
+        }
+
+        @Override
+        public ListIterator<Object> listIterator(int index) {
+            return new ListIteratorView(mBacking.listIterator(index), mCodec);
+        }
+
+        @Override
+        public List<Object> subList(int fromIndex, int toIndex) {
+            List<Object> subList = mBacking.subList(fromIndex, toIndex);
+            if (subList instanceof RandomAccess) {
+                return new RandomAccessListView(subList, mCodec);
+            }
+            return new ListView(subList, mCodec);
+        }
+    }
+
+    private static final class RandomAccessListView extends ListView implements RandomAccess {
+        private RandomAccessListView(List<Object> backing, Codec codec) {
+            super(backing, codec);
+        }
+    }
+
+    private static final class ArrayView extends AbstractList<Object> implements View, RandomAccess {
+        private final Object mBacking;
+        private final Codec mCodec;
+
+        private ArrayView(Object backing, Codec codec) {
+            mBacking = backing;
+            mCodec = codec;
+        }
+
+        @Override
+        public Object getBacking() {
+            return mBacking;
+        }
+
+        @Override
+        public Codec getCodec() {
+            return mCodec;
+        }
+
+        @Override
+        public Object get(int index) {
+            return mCodec.read(Array.get(mBacking, index));
+        }
+
+        @Override
+        public Object set(int index, Object element) {
+            Object value = mCodec.write(element);
+            Object oldValue = Array.get(mBacking, index);
+            Array.set(mBacking, index, value);
+            return mCodec.read(oldValue);
+        }
+
+        @Override
+        public int size() {
+            return Array.getLength(mBacking);
+        }
+    }
+
+    private static class CollectionView extends AbstractCollection<Object> implements View {
+        private final Collection<Object> mBacking;
+        private final Codec mCodec;
+
+        private CollectionView(Collection<Object> backing, Codec codec) {
+            mBacking = backing;
+            mCodec = codec;
+        }
+
+        @Override
+        public Object getBacking() {
+            return mBacking;
+        }
+
+        @Override
+        public Codec getCodec() {
+            return mCodec;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return new IteratorView(mBacking.iterator(), mCodec);
+        }
+
+        @Override
+        public int size() {
+            return mBacking.size();
+        }
+
+        @Override
+        public boolean add(Object o) {
+            return mBacking.add(mCodec.write(o));
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return mBacking.contains(mCodec.query(o));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return mBacking.remove(mCodec.query(o));
+        }
+
+        @Override
+        public void clear() {
+            mBacking.clear();
+        }
+    }
+
+    private static final class MapView extends AbstractMap<Object, Object> implements View {
+        private final Map<Object, Object> mBacking;
+        private final Codec mCodec;
+
+        private MapView(Map<Object, Object> backing, Codec codec) {
+            mBacking = backing;
+            mCodec = codec;
+        }
+
+        @Override
+        public Object getBacking() {
+            return mBacking;
+        }
+
+        @Override
+        public Codec getCodec() {
+            return mCodec;
+        }
+
+        @Override
+        public int size() {
+            return mBacking.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return mBacking.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return mBacking.containsValue(mCodec.query(value));
+        }
+
+        @Override
+        public Object get(Object key) {
+            return mCodec.read(mBacking.get(key));
+        }
+
+        @Override
+        public Object put(Object key, Object value) {
+            return mCodec.read(mBacking.put(key, mCodec.write(value)));
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return mCodec.read(mBacking.remove(key));
+        }
+
+        @Override
+        public void clear() {
+            mBacking.clear();
+        }
+
+        @Override
+        public Set<Object> keySet() {
+            return mBacking.keySet();
+        }
+
+        @Override
+        public Collection<Object> values() {
+            return new CollectionView(mBacking.values(), mCodec);
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet() {
+            final Set<Map.Entry<Object, Object>> entries = mBacking.entrySet();
+            return new AbstractSet<Map.Entry<Object, Object>>() {
+                @Override
+                public Iterator<Map.Entry<Object, Object>> iterator() {
+                    final Iterator<Map.Entry<Object, Object>> iterator = entries.iterator();
+                    return new Iterator<Map.Entry<Object, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<Object, Object> next() {
+                            return new EntryView(iterator.next(), mCodec);
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+
+                @Override
+                public void clear() {
+                    entries.clear();
+                }
+            };
+        }
+    }
+
+    private static final class EntryView implements Map.Entry<Object, Object> {
+        private final Map.Entry<Object, Object> mBacking;
+        private final Codec mCodec;
+
+        private EntryView(Map.Entry<Object, Object> backing, Codec codec) {
+            mBacking = backing;
+            mCodec = codec;
+        }
+
+        @Override
+        public Object getKey() {
+            return mBacking.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            return mCodec.read(mBacking.getValue());
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return mCodec.read(mBacking.setValue(mCodec.write(value)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>)o;
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? other.getKey() == null : key.equals(other.getKey())) &&
+                (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object key = getKey();
+            Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    private static class IteratorView implements Iterator<Object> {
+        private final Iterator<Object> mBacking;
+        protected final Codec mCodec;
+
+        private IteratorView(Iterator<Object> backing, Codec codec) {
+            mBacking = backing;
+            mCodec = codec;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mBacking.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            return mCodec.read(mBacking.next());
+        }
+
+        @Override
+        public void remove() {
+            mBacking.remove();
+        }
+    }
+
+    private static final class ListIteratorView extends IteratorView implements ListIterator<Object> {
+        private final ListIterator<Object> mBacking;
+
+        private ListIteratorView(ListIterator<Object> backing, Codec codec) {
+            super(backing, codec);
+            mBacking = backing;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return mBacking.hasPrevious();
+        }
+
+        @Override
+        public Object previous() {
+            return mCodec.read(mBacking.previous());
+        }
+
+        @Override
+        public int nextIndex() {
+            return mBacking.nextIndex();
+        }
+
+        @Override
+        public int previousIndex() {
+            return mBacking.previousIndex();
+        }
+
+        @Override
+        public void set(Object o) {
+            mBacking.set(mCodec.write(o));
+        }
+
+        @Override
+        public void add(Object o) {
+            mBacking.add(mCodec.write(o));
+        }
+    }
+}
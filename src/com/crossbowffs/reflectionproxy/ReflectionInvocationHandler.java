@@ -4,11 +4,11 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 
 /* package */ class ReflectionInvocationHandler implements InvocationHandler {
-    private final Class<?> mTargetClass;
+    private final DispatchTable mDispatchTable;
     private final Object mTarget;
 
-    public ReflectionInvocationHandler(Class<?> targetClass, Object target) {
-        mTargetClass = targetClass;
+    public ReflectionInvocationHandler(DispatchTable dispatchTable, Object target) {
+        mDispatchTable = dispatchTable;
         mTarget = target;
     }
 
@@ -18,7 +18,7 @@ import java.lang.reflect.Method;
 
     @Override
     public Object invoke(Object proxy, Method proxyMethod, Object[] args) {
-        ProxyDispatcherBase dispatcher = ProxyDispatcherBase.get(mTargetClass, proxyMethod);
-        return dispatcher.handle((ProxyBase)proxy, mTarget, args);
+        ProxyDispatcherBase dispatcher = mDispatchTable.getDispatcher(proxyMethod);
+        return dispatcher.handle((ProxyBase)proxy, getTarget(), args);
     }
 }
@@ -0,0 +1,297 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/* package */ class SnapshotDispatcher extends ProxyDispatcherBase {
+    private static final String STATIC_PROXY_MESSAGE = "Attempted to get instance field on static proxy";
+    private static final String NULL_SNAPSHOT_MESSAGE = "Snapshot object cannot be null";
+    private static final ExceptionPolicy CONSTRUCTOR_POLICY = ExceptionPolicy.wrap("Snapshot constructor threw an exception");
+
+    // Each intermediate handle takes (proxy, target) per field, and a
+    // method handle cannot have more than 255 parameter slots
+    private static final int MAX_DIRECT_FIELDS = 120;
+
+    private final Class<?> mSnapshotClass;
+    private final Field[] mTargetFields;
+    private final Field[] mSnapshotFields;
+    private final Coercion[] mCoercions;
+    private final Constructor<?> mConstructor;
+    private final boolean mIsRecord;
+    private final boolean mIsFill;
+
+    private SnapshotDispatcher(Class<?> snapshotClass, Field[] targetFields, Field[] snapshotFields,
+                               Coercion[] coercions, Constructor<?> constructor, boolean isRecord, boolean isFill) {
+        mSnapshotClass = snapshotClass;
+        mTargetFields = targetFields;
+        mSnapshotFields = snapshotFields;
+        mCoercions = coercions;
+        mConstructor = constructor;
+        mIsRecord = isRecord;
+        mIsFill = isFill;
+    }
+
+    private static boolean isStatic(Field field) {
+        return Modifier.isStatic(field.getModifiers());
+    }
+
+    private Object getValue(int index, ProxyBase proxy, Object target) {
+        Field field = mTargetFields[index];
+        if (target == null && !isStatic(field)) {
+            throw new ProxyException(STATIC_PROXY_MESSAGE, new NullPointerException());
+        }
+        Object value;
+        try {
+            value = field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        }
+        return mCoercions[index].coerce(value, proxy);
+    }
+
+    private Object newInstance(Object[] args) {
+        try {
+            return mConstructor.newInstance(args);
+        } catch (IllegalAccessException e) {
+            throw new AssertionError(e);
+        } catch (InstantiationException e) {
+            throw new AssertionError(e);
+        } catch (InvocationTargetException e) {
+            throw CONSTRUCTOR_POLICY.rethrow(e.getCause());
+        }
+    }
+
+    @Override
+    public Object handle(ProxyBase proxy, Object target, Object[] args) {
+        // The only parameter is the snapshot object to fill, which
+        // is passed through as is, so there is nothing to convert
+        return invoke(proxy, target, args);
+    }
+
+    @Override
+    protected Object invoke(ProxyBase proxy, Object target, Object[] args) {
+        if (mIsRecord) {
+            Object[] values = new Object[mTargetFields.length];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = getValue(i, proxy, target);
+            }
+            return newInstance(values);
+        }
+
+        Object snapshot;
+        if (mIsFill) {
+            snapshot = args[0];
+            if (snapshot == null) {
+                throw new ProxyException(NULL_SNAPSHOT_MESSAGE, new NullPointerException());
+            }
+        } else {
+            snapshot = newInstance(new Object[0]);
+        }
+        for (int i = 0; i < mTargetFields.length; ++i) {
+            Object value = getValue(i, proxy, target);
+            try {
+                mSnapshotFields[i].set(snapshot, value);
+            } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates a handle with type {@code (ProxyBase proxy, Object target)T}
+     * that reads the target field and converts it to the snapshot field type.
+     */
+    private MethodHandle getValueHandle(int index) throws IllegalAccessException {
+        Field targetField = mTargetFields[index];
+        Class<?> valueType = mSnapshotFields[index].getType();
+        MethodHandle handle = ProxyHandles.lookup().unreflectGetter(targetField);
+        handle = ProxyHandles.bindReceiver(handle, isStatic(targetField), STATIC_PROXY_MESSAGE);
+        handle = ProxyHandles.coerceReturn(handle, valueType, mCoercions[index], true);
+        return handle.asType(MethodType.methodType(valueType, ProxyBase.class, Object.class));
+    }
+
+    /**
+     * Collapses each pair of (proxy, target) arguments of the
+     * handle into a single (proxy, target) pair.
+     */
+    private static MethodHandle mergeReceivers(MethodHandle handle) {
+        int[] reorder = new int[handle.type().parameterCount()];
+        for (int i = 0; i < reorder.length; ++i) {
+            reorder[i] = i % 2;
+        }
+        MethodType type = MethodType.methodType(handle.type().returnType(), ProxyBase.class, Object.class);
+        return MethodHandles.permuteArguments(handle, type, reorder);
+    }
+
+    private MethodHandle createRecordHandle() throws IllegalAccessException {
+        MethodHandle handle = ProxyHandles.lookup().unreflectConstructor(mConstructor);
+        handle = ProxyHandles.wrapTargetExceptions(handle, CONSTRUCTOR_POLICY);
+        for (int i = mTargetFields.length - 1; i >= 0; --i) {
+            handle = MethodHandles.collectArguments(handle, i, getValueHandle(i));
+        }
+        return mergeReceivers(handle);
+    }
+
+    private MethodHandle createFillHandle() throws IllegalAccessException {
+        // Start with (S snapshot, ProxyBase proxy, Object target)S that returns
+        // the snapshot, then run each field copy in front of it
+        MethodHandle handle = MethodHandles.dropArguments(
+            MethodHandles.identity(mSnapshotClass), 1, ProxyBase.class, Object.class);
+        for (int i = mTargetFields.length - 1; i >= 0; --i) {
+            MethodHandle setter = ProxyHandles.lookup().unreflectSetter(mSnapshotFields[i]);
+            setter = setter.asType(setter.type().changeParameterType(0, mSnapshotClass));
+            setter = MethodHandles.collectArguments(setter, 1, getValueHandle(i));
+            handle = MethodHandles.foldArguments(handle, setter);
+        }
+        return handle;
+    }
+
+    @Override
+    protected MethodHandle createDirectHandle(MethodType type) {
+        if (mTargetFields.length > MAX_DIRECT_FIELDS) {
+            return null;
+        }
+        MethodHandle handle;
+        try {
+            if (mIsRecord) {
+                handle = createRecordHandle();
+            } else if (mIsFill) {
+                handle = createFillHandle();
+                handle = ProxyHandles.requireNonNull(handle, NULL_SNAPSHOT_MESSAGE);
+                handle = MethodHandles.permuteArguments(handle,
+                    MethodType.methodType(handle.type().returnType(), ProxyBase.class, Object.class,
+                        handle.type().parameterType(0)), 2, 0, 1);
+            } else {
+                MethodHandle constructor = ProxyHandles.lookup().unreflectConstructor(mConstructor);
+                constructor = ProxyHandles.wrapTargetExceptions(constructor, CONSTRUCTOR_POLICY);
+                handle = MethodHandles.collectArguments(createFillHandle(), 0, constructor);
+            }
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+        return handle.asType(type);
+    }
+
+    private static List<Field> getSnapshotFields(Class<?> snapshotClass, boolean isRecord) {
+        List<Field> fields = new ArrayList<Field>();
+        if (isRecord) {
+            for (RecordComponent component : snapshotClass.getRecordComponents()) {
+                try {
+                    fields.add(snapshotClass.getDeclaredField(component.getName()));
+                } catch (NoSuchFieldException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            return fields;
+        }
+
+        // Superclass fields first, in declaration order
+        List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+        for (Class<?> cls = snapshotClass; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            hierarchy.add(0, cls);
+        }
+        for (Class<?> cls : hierarchy) {
+            for (Field field : cls.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static Class<?> getSnapshotClass(Method proxyMethod) {
+        Class<?> returnType = proxyMethod.getReturnType();
+        Class<?>[] argTypes = proxyMethod.getParameterTypes();
+        if (argTypes.length == 0 && returnType != void.class) {
+            return returnType;
+        } else if (argTypes.length == 1 && (returnType == void.class || returnType == argTypes[0])) {
+            return argTypes[0];
+        }
+        throw new ProxyException("Invalid snapshot accessor signature: " + proxyMethod.toString());
+    }
+
+    private static Constructor<?> findConstructor(Class<?> snapshotClass, List<Field> snapshotFields, boolean isRecord) {
+        Class<?>[] argTypes;
+        if (isRecord) {
+            argTypes = new Class<?>[snapshotFields.size()];
+            for (int i = 0; i < argTypes.length; ++i) {
+                argTypes[i] = snapshotFields.get(i).getType();
+            }
+        } else {
+            argTypes = new Class<?>[0];
+        }
+        Constructor<?> constructor = MemberIndex.get(snapshotClass).findConstructor(argTypes);
+        if (constructor == null) {
+            throw new ProxyException("Could not find snapshot constructor: " + snapshotClass.getName());
+        }
+        constructor.setAccessible(true);
+        return constructor;
+    }
+
+    public static SnapshotDispatcher create(Class<?> targetClass, Method proxyMethod, ProxySnapshot annotation) {
+        Class<?> snapshotClass = getSnapshotClass(proxyMethod);
+        boolean isFill = proxyMethod.getParameterTypes().length == 1;
+        if (snapshotClass.isPrimitive() || snapshotClass.isArray() || snapshotClass.isInterface() ||
+            Modifier.isAbstract(snapshotClass.getModifiers())) {
+            throw new ProxyException("Snapshot type must be a concrete class: " + snapshotClass.getName());
+        }
+        boolean isRecord = snapshotClass.isRecord();
+        if (isRecord && isFill) {
+            throw new ProxyException("Cannot fill a record snapshot: " + snapshotClass.getName());
+        }
+
+        List<Field> fields = getSnapshotFields(snapshotClass, isRecord);
+        if (fields.isEmpty()) {
+            throw new ProxyException("Snapshot class has no fields: " + snapshotClass.getName());
+        }
+        Field[] targetFields = new Field[fields.size()];
+        Field[] snapshotFields = new Field[fields.size()];
+        Coercion[] coercions = new Coercion[fields.size()];
+        MemberIndex index = MemberIndex.get(targetClass);
+        for (int i = 0; i < fields.size(); ++i) {
+            Field snapshotField = fields.get(i);
+            ProxyField fieldAnnotation = snapshotField.getAnnotation(ProxyField.class);
+            String fieldName = snapshotField.getName();
+            if (fieldAnnotation != null && !"".equals(fieldAnnotation.value())) {
+                fieldName = fieldAnnotation.value();
+            }
+            Field targetField = index.findField(fieldName);
+            if (targetField == null) {
+                throw new ProxyException("Could not find target field: " + fieldName +
+                    " for snapshot field: " + snapshotField.getName());
+            }
+            Class<?> expectedType = snapshotField.getType();
+            Type genericExpectedType = snapshotField.getGenericType();
+            if (!ProxyUtils.isCoercibleOutput(genericExpectedType, targetField.getGenericType())) {
+                throw new ProxyException("Field type mismatch for snapshot field " + snapshotField.getName() +
+                    " (expected " + expectedType.getName() + ", got " + targetField.getType().getName() + ")");
+            }
+            targetField.setAccessible(true);
+            if (!isRecord) {
+                snapshotField.setAccessible(true);
+            }
+            targetFields[i] = targetField;
+            snapshotFields[i] = snapshotField;
+            coercions[i] = Coercion.forOutput(genericExpectedType, targetField.getType());
+        }
+        // Filled snapshots are created by the caller
+        Constructor<?> constructor = null;
+        if (!isFill) {
+            constructor = findConstructor(snapshotClass, fields, isRecord);
+        }
+        return new SnapshotDispatcher(snapshotClass, targetFields, snapshotFields, coercions, constructor, isRecord, isFill);
+    }
+}
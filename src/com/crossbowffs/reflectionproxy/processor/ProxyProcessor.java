@@ -0,0 +1,916 @@
+package com.crossbowffs.reflectionproxy.processor;
+
+import com.crossbowffs.reflectionproxy.ProxyBase;
+import com.crossbowffs.reflectionproxy.ProxyCached;
+import com.crossbowffs.reflectionproxy.ProxyConstructor;
+import com.crossbowffs.reflectionproxy.ProxyField;
+import com.crossbowffs.reflectionproxy.ProxyMethod;
+import com.crossbowffs.reflectionproxy.ProxyPath;
+import com.crossbowffs.reflectionproxy.ProxySnapshot;
+import com.crossbowffs.reflectionproxy.ProxyTarget;
+import com.crossbowffs.reflectionproxy.ProxyTargetName;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor that generates a proxy class for every interface
+ * annotated with {@link ProxyTarget} or {@link ProxyTargetName}, and
+ * reports invalid proxy methods as compile errors.
+ *
+ * <p>
+ * The generated class is named {@code <interface binary name>$$Proxy}, and is
+ * used automatically by {@link com.crossbowffs.reflectionproxy.ProxyFactory}
+ * in place of {@link java.lang.reflect.Proxy}. It binds all of its methods in
+ * its static initializer, and calls each target member through a constant
+ * method handle, like classes generated for
+ * {@link com.crossbowffs.reflectionproxy.ProxyGenerated} interfaces.
+ *
+ * <p>
+ * Proxy methods can only be checked if the target class is available at
+ * compile time. Interfaces whose {@link ProxyTargetName} cannot be resolved
+ * are not checked, but a proxy class is still generated for them.
+ * Private interfaces are skipped, since the generated class could not
+ * implement them.
+ */
+public class ProxyProcessor extends AbstractProcessor {
+    private static final String CLASS_SUFFIX = "$$Proxy";
+    private static final String GENERATED_PROXY = "com.crossbowffs.reflectionproxy.GeneratedProxy";
+    private static final String METHOD_HANDLE = "java.lang.invoke.MethodHandle";
+    private static final String METHOD_TYPE = "java.lang.invoke.MethodType";
+    private static final String COMPLETABLE_FUTURE = "java.util.concurrent.CompletableFuture";
+
+    private Elements mElements;
+    private Types mTypes;
+    private TypeMirror mProxyBaseType;
+    private TypeElement mObjectElement;
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        Set<String> types = new HashSet<String>();
+        types.add(ProxyTarget.class.getCanonicalName());
+        types.add(ProxyTargetName.class.getCanonicalName());
+        return types;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+        mProxyBaseType = mElements.getTypeElement(ProxyBase.class.getCanonicalName()).asType();
+        mObjectElement = mElements.getTypeElement(Object.class.getCanonicalName());
+
+        Set<Element> proxyElements = new LinkedHashSet<Element>();
+        proxyElements.addAll(roundEnv.getElementsAnnotatedWith(ProxyTarget.class));
+        proxyElements.addAll(roundEnv.getElementsAnnotatedWith(ProxyTargetName.class));
+        for (Element element : proxyElements) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "Proxy target annotation can only be applied to interfaces");
+                continue;
+            }
+            TypeElement proxyElement = (TypeElement)element;
+            if (!mTypes.isSubtype(mTypes.erasure(proxyElement.asType()), mProxyBaseType)) {
+                error(proxyElement, "Proxy interface must extend " + ProxyBase.class.getName());
+                continue;
+            }
+            if (!isAccessibleFromPackage(proxyElement)) {
+                continue;
+            }
+            processProxy(proxyElement);
+        }
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static boolean isAccessibleFromPackage(TypeElement element) {
+        for (Element e = element; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isProxyType(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && mTypes.isSubtype(mTypes.erasure(type), mProxyBaseType);
+    }
+
+    /**
+     * Resolves the target class of a proxy interface,
+     * or returns null if it is not available at compile time.
+     */
+    private TypeElement getTargetElement(TypeElement proxyElement) {
+        ProxyTarget annotation = proxyElement.getAnnotation(ProxyTarget.class);
+        if (annotation != null) {
+            TypeMirror targetType;
+            try {
+                annotation.value();
+                return null;
+            } catch (MirroredTypeException e) {
+                targetType = e.getTypeMirror();
+            }
+            return getElement(targetType);
+        }
+
+        ProxyTargetName altAnnotation = proxyElement.getAnnotation(ProxyTargetName.class);
+        if (altAnnotation != null) {
+            String className = altAnnotation.value();
+            TypeElement targetElement = mElements.getTypeElement(className);
+            if (targetElement == null) {
+                // Nested classes are named using their binary name
+                targetElement = mElements.getTypeElement(className.replace('$', '.'));
+            }
+            return targetElement;
+        }
+
+        return null;
+    }
+
+    private TypeMirror getTargetType(TypeMirror proxyType) {
+        TypeElement targetElement = getTargetElement((TypeElement)mTypes.asElement(proxyType));
+        if (targetElement == null) {
+            return null;
+        }
+        return mTypes.erasure(targetElement.asType());
+    }
+
+    /**
+     * If the type is {@code List<P>}, {@code Collection<P>} or
+     * {@code Map<K, P>} where {@code P} is a proxy type, returns
+     * the erasure of {@code P}. Otherwise, returns null.
+     */
+    private TypeMirror getViewElementType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declaredType = (DeclaredType)type;
+        String typeName = ((TypeElement)declaredType.asElement()).getQualifiedName().toString();
+        List<? extends TypeMirror> typeArgs = declaredType.getTypeArguments();
+        TypeMirror elementType;
+        if ((typeName.equals("java.util.List") || typeName.equals("java.util.Collection")) && typeArgs.size() == 1) {
+            elementType = typeArgs.get(0);
+        } else if (typeName.equals("java.util.Map") && typeArgs.size() == 2) {
+            elementType = typeArgs.get(1);
+        } else {
+            return null;
+        }
+        if (elementType.getKind() == TypeKind.WILDCARD) {
+            elementType = ((WildcardType)elementType).getExtendsBound();
+            if (elementType == null) {
+                return null;
+            }
+        }
+        elementType = mTypes.erasure(elementType);
+        if (!isProxyType(elementType) || mTypes.isSameType(elementType, mProxyBaseType)) {
+            return null;
+        }
+        return elementType;
+    }
+
+    private boolean isProxyArray(TypeMirror type) {
+        return type.getKind() == TypeKind.ARRAY && isProxyType(((ArrayType)type).getComponentType());
+    }
+
+    /**
+     * Resolves a type argument of a generic supertype of a type, e.g. the
+     * element type of {@code List<String>}, or of a class that extends
+     * {@code ArrayList<String>}. Returns null if the type is not a subtype
+     * of the supertype, or if it is raw.
+     */
+    private TypeMirror getTypeArgument(TypeMirror type, String supertypeName, int index) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        DeclaredType declaredType = (DeclaredType)type;
+        if (((TypeElement)declaredType.asElement()).getQualifiedName().contentEquals(supertypeName)) {
+            List<? extends TypeMirror> typeArgs = declaredType.getTypeArguments();
+            return typeArgs.isEmpty() ? null : typeArgs.get(index);
+        }
+        // Direct supertypes have the type arguments of this type substituted
+        for (TypeMirror supertype : mTypes.directSupertypes(type)) {
+            TypeMirror typeArg = getTypeArgument(supertype, supertypeName, index);
+            if (typeArg != null) {
+                return typeArg;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the elements of a view can be converted. If the target
+     * element type is unknown (because the target type is raw, or the element
+     * type is a type variable or Object), every element is checked at runtime.
+     */
+    private boolean isCoercibleViewElement(TypeMirror elementType, TypeMirror actualElementType, boolean isInput) {
+        if (actualElementType != null && actualElementType.getKind() == TypeKind.WILDCARD) {
+            actualElementType = ((WildcardType)actualElementType).getExtendsBound();
+        }
+        if (actualElementType == null || actualElementType.getKind() == TypeKind.TYPEVAR) {
+            return true;
+        }
+        TypeMirror rawActualType = mTypes.erasure(actualElementType);
+        if (mTypes.isSameType(rawActualType, mObjectElement.asType())) {
+            return true;
+        }
+        TypeMirror targetType = getTargetType(elementType);
+        if (targetType == null) {
+            return true;
+        }
+        if (isInput) {
+            return mTypes.isSubtype(targetType, rawActualType);
+        } else {
+            return mTypes.isSubtype(rawActualType, targetType);
+        }
+    }
+
+    private static String getQualifiedName(TypeMirror type) {
+        return ((TypeElement)((DeclaredType)type).asElement()).getQualifiedName().toString();
+    }
+
+    private boolean isCoercibleOutput(TypeMirror maybeProxyType, TypeMirror actualType) {
+        if (maybeProxyType.getKind() == TypeKind.VOID || actualType.getKind() == TypeKind.VOID) {
+            return maybeProxyType.getKind() == actualType.getKind();
+        }
+        TypeMirror elementType = getViewElementType(maybeProxyType);
+        if (elementType != null && actualType.getKind() == TypeKind.DECLARED &&
+            mTypes.isSubtype(mTypes.erasure(actualType), mTypes.erasure(maybeProxyType))) {
+            String viewName = getQualifiedName(maybeProxyType);
+            int index = viewName.equals("java.util.Map") ? 1 : 0;
+            return isCoercibleViewElement(elementType, getTypeArgument(actualType, viewName, index), false);
+        }
+        if (elementType != null && actualType.getKind() == TypeKind.ARRAY) {
+            // Arrays can be viewed as lists
+            return !((TypeElement)mTypes.asElement(maybeProxyType)).getQualifiedName().contentEquals("java.util.Map") &&
+                isCoercibleOutput(elementType, ((ArrayType)actualType).getComponentType());
+        }
+        if (isProxyArray(maybeProxyType) && actualType.getKind() == TypeKind.ARRAY) {
+            return isCoercibleOutput(((ArrayType)maybeProxyType).getComponentType(),
+                ((ArrayType)actualType).getComponentType());
+        }
+        // Subtyping between primitive types also covers widening primitive conversions
+        if (mTypes.isSubtype(mTypes.erasure(actualType), mTypes.erasure(maybeProxyType))) {
+            return true;
+        }
+        if (isProxyType(maybeProxyType)) {
+            TypeMirror rawType = getTargetType(maybeProxyType);
+            return rawType == null || mTypes.isSubtype(mTypes.erasure(actualType), rawType);
+        }
+        return false;
+    }
+
+    private boolean isCoercibleInput(TypeMirror maybeProxyType, TypeMirror actualType) {
+        TypeMirror elementType = getViewElementType(maybeProxyType);
+        if (elementType != null) {
+            if (!mTypes.isSubtype(mTypes.erasure(maybeProxyType), mTypes.erasure(actualType))) {
+                return false;
+            }
+            // The target sees the view as its own type, e.g. a List as an Iterable,
+            // which has the same element type parameter if it has any
+            TypeMirror actualElementType = null;
+            if (actualType.getKind() == TypeKind.DECLARED) {
+                List<? extends TypeMirror> typeArgs = ((DeclaredType)actualType).getTypeArguments();
+                List<? extends TypeMirror> viewTypeArgs = ((DeclaredType)maybeProxyType).getTypeArguments();
+                if (!typeArgs.isEmpty() && typeArgs.size() == viewTypeArgs.size()) {
+                    actualElementType = typeArgs.get(typeArgs.size() - 1);
+                }
+            }
+            return isCoercibleViewElement(elementType, actualElementType, true);
+        }
+        if (isProxyArray(maybeProxyType) && actualType.getKind() == TypeKind.ARRAY) {
+            return isCoercibleInput(((ArrayType)maybeProxyType).getComponentType(),
+                ((ArrayType)actualType).getComponentType());
+        }
+        if (mTypes.isSubtype(mTypes.erasure(maybeProxyType), mTypes.erasure(actualType))) {
+            return true;
+        }
+        if (isProxyType(maybeProxyType)) {
+            TypeMirror rawType = getTargetType(maybeProxyType);
+            return rawType == null || mTypes.isSubtype(rawType, mTypes.erasure(actualType));
+        }
+        return false;
+    }
+
+    /**
+     * Gets the target member argument types for a proxy method, replacing
+     * proxy types with their target types. Returns null if any target type
+     * is not available at compile time.
+     */
+    private List<TypeMirror> getTargetArgTypes(ExecutableElement proxyMethod) {
+        List<TypeMirror> argTypes = new ArrayList<TypeMirror>();
+        for (VariableElement parameter : proxyMethod.getParameters()) {
+            TypeMirror argType = mTypes.erasure(parameter.asType());
+            if (isProxyType(argType)) {
+                argType = getTargetType(argType);
+                if (argType == null) {
+                    return null;
+                }
+            } else if (isProxyArray(argType)) {
+                TypeMirror componentType = getTargetType(((ArrayType)argType).getComponentType());
+                if (componentType == null) {
+                    return null;
+                }
+                argType = mTypes.getArrayType(componentType);
+            }
+            argTypes.add(argType);
+        }
+        return argTypes;
+    }
+
+    private boolean hasArgTypes(ExecutableElement executable, List<TypeMirror> argTypes) {
+        List<? extends VariableElement> parameters = executable.getParameters();
+        if (parameters.size() != argTypes.size()) {
+            return false;
+        }
+        for (int i = 0; i < parameters.size(); ++i) {
+            if (!mTypes.isSameType(mTypes.erasure(parameters.get(i).asType()), argTypes.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the target class, followed by all of its superclasses and
+     * superinterfaces, in the order the runtime searches them for members.
+     */
+    private List<TypeElement> getHierarchy(TypeElement targetElement) {
+        List<TypeElement> hierarchy = new ArrayList<TypeElement>();
+        for (TypeElement e = targetElement; e != null; e = getElement(e.getSuperclass())) {
+            hierarchy.add(e);
+        }
+        for (int i = 0; i < hierarchy.size(); ++i) {
+            for (TypeMirror iface : hierarchy.get(i).getInterfaces()) {
+                TypeElement ifaceElement = getElement(iface);
+                if (ifaceElement != null && !hierarchy.contains(ifaceElement)) {
+                    hierarchy.add(ifaceElement);
+                }
+            }
+        }
+        if (targetElement.getKind() == ElementKind.INTERFACE) {
+            hierarchy.add(mObjectElement);
+        }
+        return hierarchy;
+    }
+
+    private TypeElement getElement(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement)((DeclaredType)type).asElement();
+    }
+
+    private ExecutableElement findMethod(TypeElement targetElement, String methodName, List<TypeMirror> argTypes) {
+        for (TypeElement typeElement : getHierarchy(targetElement)) {
+            for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+                if (method.getSimpleName().contentEquals(methodName) && hasArgTypes(method, argTypes)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private VariableElement findField(TypeElement targetElement, String fieldName) {
+        for (TypeElement typeElement : getHierarchy(targetElement)) {
+            for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(fieldName)) {
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement findConstructor(TypeElement targetElement, List<TypeMirror> argTypes) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(targetElement.getEnclosedElements())) {
+            if (hasArgTypes(constructor, argTypes)) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private void checkMethod(TypeElement targetElement, ExecutableElement proxyMethod) {
+        ProxyCached cachedAnnotation = proxyMethod.getAnnotation(ProxyCached.class);
+        if (cachedAnnotation != null) {
+            checkCached(proxyMethod, cachedAnnotation);
+        }
+
+        ProxyConstructor constructorAnnotation = proxyMethod.getAnnotation(ProxyConstructor.class);
+        if (constructorAnnotation != null) {
+            checkConstructor(targetElement, proxyMethod);
+            return;
+        }
+
+        ProxyPath pathAnnotation = proxyMethod.getAnnotation(ProxyPath.class);
+        if (pathAnnotation != null) {
+            checkPath(targetElement, proxyMethod, pathAnnotation);
+            return;
+        }
+
+        ProxySnapshot snapshotAnnotation = proxyMethod.getAnnotation(ProxySnapshot.class);
+        if (snapshotAnnotation != null) {
+            checkSnapshot(targetElement, proxyMethod);
+            return;
+        }
+
+        ProxyField fieldAnnotation = proxyMethod.getAnnotation(ProxyField.class);
+        if (fieldAnnotation != null) {
+            checkField(targetElement, proxyMethod, fieldAnnotation);
+            return;
+        }
+
+        ProxyMethod methodAnnotation = proxyMethod.getAnnotation(ProxyMethod.class);
+        String methodName = "";
+        if (methodAnnotation != null) {
+            methodName = methodAnnotation.value();
+        }
+        if ("".equals(methodName)) {
+            methodName = proxyMethod.getSimpleName().toString();
+        }
+        List<TypeMirror> argTypes = getTargetArgTypes(proxyMethod);
+        if (argTypes == null) {
+            return;
+        }
+        ExecutableElement targetMethod = findMethod(targetElement, methodName, argTypes);
+        if (targetMethod == null) {
+            error(proxyMethod, "Could not find target method from signature: " + proxyMethod);
+            return;
+        }
+        checkParameterTypes(proxyMethod, targetMethod);
+        TypeMirror actualReturnType = targetMethod.getReturnType();
+        TypeMirror expectedReturnType = proxyMethod.getReturnType();
+        if (isAsync(expectedReturnType, actualReturnType)) {
+            expectedReturnType = getFutureValueType(expectedReturnType);
+            actualReturnType = getBoxedType(actualReturnType);
+        }
+        if (!isCoercibleOutput(expectedReturnType, actualReturnType)) {
+            error(proxyMethod, "Target method return type (" + mTypes.erasure(actualReturnType) +
+                ") cannot be converted to proxy method return type (" + mTypes.erasure(expectedReturnType) + ")");
+        }
+    }
+
+    /**
+     * Returns whether the proxy method calls the target method asynchronously,
+     * which is when it returns a {@code CompletableFuture} and the target does not.
+     */
+    private boolean isAsync(TypeMirror expectedReturnType, TypeMirror actualReturnType) {
+        TypeMirror futureType = mTypes.erasure(mElements.getTypeElement(COMPLETABLE_FUTURE).asType());
+        return mTypes.isSameType(mTypes.erasure(expectedReturnType), futureType) &&
+            !mTypes.isSubtype(mTypes.erasure(actualReturnType), futureType);
+    }
+
+    private TypeMirror getFutureValueType(TypeMirror futureType) {
+        List<? extends TypeMirror> typeArgs = ((DeclaredType)futureType).getTypeArguments();
+        if (typeArgs.isEmpty()) {
+            return mObjectElement.asType();
+        }
+        TypeMirror valueType = typeArgs.get(0);
+        if (valueType.getKind() == TypeKind.WILDCARD) {
+            valueType = ((WildcardType)valueType).getExtendsBound();
+            if (valueType == null) {
+                return mObjectElement.asType();
+            }
+        }
+        return valueType;
+    }
+
+    private TypeMirror getBoxedType(TypeMirror type) {
+        if (type.getKind() == TypeKind.VOID) {
+            return mElements.getTypeElement("java.lang.Void").asType();
+        } else if (type.getKind().isPrimitive()) {
+            return mTypes.boxedClass((PrimitiveType)type).asType();
+        }
+        return type;
+    }
+
+    private void checkCached(ExecutableElement proxyMethod, ProxyCached annotation) {
+        if (proxyMethod.getReturnType().getKind() == TypeKind.VOID) {
+            error(proxyMethod, "Cached proxy method cannot return void");
+        }
+        if (annotation.maxSize() <= 0) {
+            error(proxyMethod, "Cache size must be positive");
+        }
+        if (annotation.expireAfterMillis() < 0) {
+            error(proxyMethod, "Cache expiration time cannot be negative");
+        }
+    }
+
+    private void checkConstructor(TypeElement targetElement, ExecutableElement proxyMethod) {
+        TypeMirror expectedType = proxyMethod.getReturnType();
+        if (expectedType.getKind() == TypeKind.VOID) {
+            error(proxyMethod, "Proxy constructor cannot return void");
+            return;
+        }
+        TypeMirror targetType = mTypes.erasure(targetElement.asType());
+        if (!isCoercibleOutput(expectedType, targetType)) {
+            error(proxyMethod, "Target type (" + targetType +
+                ") cannot be converted to proxy constructor return type (" + mTypes.erasure(expectedType) + ")");
+            return;
+        }
+        List<TypeMirror> argTypes = getTargetArgTypes(proxyMethod);
+        if (argTypes == null) {
+            return;
+        }
+        ExecutableElement targetConstructor = findConstructor(targetElement, argTypes);
+        if (targetConstructor == null) {
+            error(proxyMethod, "Could not find target constructor from signature: " + proxyMethod);
+            return;
+        }
+        checkParameterTypes(proxyMethod, targetConstructor);
+    }
+
+    /**
+     * Checks that every argument of a proxy method can be converted to the
+     * corresponding parameter type of its target member. Target members are
+     * found by their erased parameter types, so this only fails for views
+     * whose element types do not match.
+     */
+    private void checkParameterTypes(ExecutableElement proxyMethod, ExecutableElement targetExecutable) {
+        List<? extends VariableElement> proxyParameters = proxyMethod.getParameters();
+        List<? extends VariableElement> targetParameters = targetExecutable.getParameters();
+        for (int i = 0; i < proxyParameters.size(); ++i) {
+            TypeMirror proxyType = proxyParameters.get(i).asType();
+            TypeMirror targetType = targetParameters.get(i).asType();
+            if (!isCoercibleInput(proxyType, targetType)) {
+                error(proxyMethod, "Proxy method parameter type (" + proxyType +
+                    ") cannot be converted to target parameter type (" + targetType + ")");
+            }
+        }
+    }
+
+    private void checkPath(TypeElement targetElement, ExecutableElement proxyMethod, ProxyPath annotation) {
+        TypeMirror returnType = proxyMethod.getReturnType();
+        if (returnType.getKind() == TypeKind.VOID || !proxyMethod.getParameters().isEmpty()) {
+            error(proxyMethod, "Invalid path accessor signature: " + proxyMethod);
+            return;
+        }
+        String path = annotation.value();
+        String[] segments = path.split("\\.", -1);
+        TypeMirror valueType = mTypes.erasure(targetElement.asType());
+        for (int i = 0; i < segments.length; ++i) {
+            String segment = segments[i];
+            if (segment.isEmpty() || segment.equals("()")) {
+                error(proxyMethod, "Invalid path: " + path);
+                return;
+            }
+            if (valueType.getKind().isPrimitive()) {
+                error(proxyMethod, "Cannot traverse primitive value at " + segments[i - 1] + " in path: " + path);
+                return;
+            }
+            TypeElement valueElement = getElement(valueType);
+            if (valueElement == null) {
+                // Arrays and type variables are checked at runtime
+                return;
+            }
+            if (segment.endsWith("()")) {
+                ExecutableElement method = findMethod(valueElement, segment.substring(0, segment.length() - 2),
+                    new ArrayList<TypeMirror>());
+                if (method == null) {
+                    error(proxyMethod, "Could not find target method: " + segment + " in path: " + path);
+                    return;
+                }
+                if (method.getReturnType().getKind() == TypeKind.VOID) {
+                    error(proxyMethod, "Target method returns void: " + segment + " in path: " + path);
+                    return;
+                }
+                valueType = mTypes.erasure(method.getReturnType());
+            } else {
+                VariableElement field = findField(valueElement, segment);
+                if (field == null) {
+                    error(proxyMethod, "Could not find target field: " + segment + " in path: " + path);
+                    return;
+                }
+                valueType = mTypes.erasure(field.asType());
+            }
+        }
+        if (!isCoercibleOutput(returnType, valueType)) {
+            error(proxyMethod, "Path type (" + valueType +
+                ") cannot be converted to proxy method return type (" + mTypes.erasure(returnType) + ")");
+        }
+    }
+
+    private TypeMirror getSnapshotType(ExecutableElement proxyMethod) {
+        TypeMirror returnType = proxyMethod.getReturnType();
+        List<? extends VariableElement> parameters = proxyMethod.getParameters();
+        if (parameters.isEmpty() && returnType.getKind() != TypeKind.VOID) {
+            return returnType;
+        } else if (parameters.size() == 1) {
+            TypeMirror argType = parameters.get(0).asType();
+            if (returnType.getKind() == TypeKind.VOID || mTypes.isSameType(mTypes.erasure(returnType), mTypes.erasure(argType))) {
+                return argType;
+            }
+        }
+        return null;
+    }
+
+    private void checkSnapshot(TypeElement targetElement, ExecutableElement proxyMethod) {
+        TypeMirror snapshotType = getSnapshotType(proxyMethod);
+        if (snapshotType == null) {
+            error(proxyMethod, "Invalid snapshot accessor signature: " + proxyMethod);
+            return;
+        }
+        TypeElement snapshotElement = getElement(snapshotType);
+        // Compare by name, since records do not exist in older versions of the API
+        boolean isRecord = snapshotElement != null && snapshotElement.getKind().name().equals("RECORD");
+        if (snapshotElement == null || (snapshotElement.getKind() != ElementKind.CLASS && !isRecord) ||
+            snapshotElement.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(proxyMethod, "Snapshot type must be a concrete class: " + mTypes.erasure(snapshotType));
+            return;
+        }
+        if (isRecord && !proxyMethod.getParameters().isEmpty()) {
+            error(proxyMethod, "Cannot fill a record snapshot: " + mTypes.erasure(snapshotType));
+            return;
+        }
+
+        List<VariableElement> snapshotFields = new ArrayList<VariableElement>();
+        for (TypeElement e = snapshotElement; e != null && e != mObjectElement; e = getElement(e.getSuperclass())) {
+            for (VariableElement field : ElementFilter.fieldsIn(e.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                    snapshotFields.add(field);
+                }
+            }
+        }
+        if (snapshotFields.isEmpty()) {
+            error(proxyMethod, "Snapshot class has no fields: " + mTypes.erasure(snapshotType));
+            return;
+        }
+        for (VariableElement snapshotField : snapshotFields) {
+            ProxyField fieldAnnotation = snapshotField.getAnnotation(ProxyField.class);
+            String fieldName = snapshotField.getSimpleName().toString();
+            if (fieldAnnotation != null && !"".equals(fieldAnnotation.value())) {
+                fieldName = fieldAnnotation.value();
+            }
+            VariableElement targetField = findField(targetElement, fieldName);
+            if (targetField == null) {
+                error(proxyMethod, "Could not find target field: " + fieldName +
+                    " for snapshot field: " + snapshotField.getSimpleName());
+                continue;
+            }
+            TypeMirror expectedType = snapshotField.asType();
+            if (!isCoercibleOutput(expectedType, targetField.asType())) {
+                error(proxyMethod, "Field type mismatch for snapshot field " + snapshotField.getSimpleName() +
+                    " (expected " + mTypes.erasure(expectedType) + ", got " + mTypes.erasure(targetField.asType()) + ")");
+            }
+        }
+    }
+
+    private void checkField(TypeElement targetElement, ExecutableElement proxyMethod, ProxyField annotation) {
+        String fieldName = annotation.value();
+        if ("".equals(fieldName)) {
+            String methodName = proxyMethod.getSimpleName().toString();
+            if (methodName.startsWith("set_") || methodName.startsWith("get_")) {
+                fieldName = methodName.substring(4);
+            } else {
+                error(proxyMethod, "Could not automatically determine field name from method signature: " + proxyMethod);
+                return;
+            }
+        }
+        VariableElement field = findField(targetElement, fieldName);
+        if (field == null) {
+            error(proxyMethod, "Could not find target field: " + fieldName);
+            return;
+        }
+        TypeMirror fieldType = field.asType();
+        TypeMirror returnType = proxyMethod.getReturnType();
+        List<? extends VariableElement> parameters = proxyMethod.getParameters();
+        TypeMirror expectedFieldType;
+        if (returnType.getKind() == TypeKind.VOID && parameters.size() == 1) {
+            expectedFieldType = parameters.get(0).asType();
+            if (isCoercibleInput(expectedFieldType, fieldType)) {
+                return;
+            }
+        } else if (returnType.getKind() != TypeKind.VOID && parameters.isEmpty()) {
+            expectedFieldType = returnType;
+            if (isCoercibleOutput(expectedFieldType, fieldType)) {
+                return;
+            }
+        } else {
+            error(proxyMethod, "Invalid field accessor signature: " + proxyMethod);
+            return;
+        }
+        error(proxyMethod, "Field type mismatch (expected " +
+            mTypes.erasure(expectedFieldType) + ", got " + mTypes.erasure(fieldType) + ")");
+    }
+
+    private String getSignature(ExecutableElement method) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(method.getSimpleName()).append('(');
+        for (VariableElement parameter : method.getParameters()) {
+            sb.append(mTypes.erasure(parameter.asType())).append(',');
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * Gets every method that the proxy class must implement, keyed by
+     * signature. Like {@link java.lang.reflect.Proxy}, this includes
+     * {@code hashCode()}, {@code equals(Object)} and {@code toString()}.
+     */
+    private Map<String, ExecutableElement> getProxyMethods(TypeElement proxyElement) {
+        Map<String, ExecutableElement> methods = new LinkedHashMap<String, ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(mObjectElement.getEnclosedElements())) {
+            String name = method.getSimpleName().toString();
+            if (name.equals("hashCode") || name.equals("equals") || name.equals("toString")) {
+                methods.put(getSignature(method), method);
+            }
+        }
+        for (ExecutableElement method : ElementFilter.methodsIn(mElements.getAllMembers(proxyElement))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            if (method.getEnclosingElement().equals(mObjectElement)) {
+                continue;
+            }
+            String signature = getSignature(method);
+            if (!methods.containsKey(signature)) {
+                methods.put(signature, method);
+            }
+        }
+        return methods;
+    }
+
+    private void processProxy(TypeElement proxyElement) {
+        Map<String, ExecutableElement> methods = getProxyMethods(proxyElement);
+        TypeElement targetElement = getTargetElement(proxyElement);
+        if (targetElement != null) {
+            for (ExecutableElement method : methods.values()) {
+                if (!method.getEnclosingElement().equals(mObjectElement)) {
+                    checkMethod(targetElement, method);
+                }
+            }
+        }
+        try {
+            writeProxyClass(proxyElement, new ArrayList<ExecutableElement>(methods.values()));
+        } catch (IOException e) {
+            error(proxyElement, "Could not write proxy class: " + e.getMessage());
+        }
+    }
+
+    private String getTypeName(TypeMirror type) {
+        return mTypes.erasure(type).toString();
+    }
+
+    private String getClassLiteral(TypeMirror type) {
+        return getTypeName(type) + ".class";
+    }
+
+    private void writeProxyClass(TypeElement proxyElement, List<ExecutableElement> methods) throws IOException {
+        PackageElement packageElement = mElements.getPackageOf(proxyElement);
+        String packageName = packageElement.getQualifiedName().toString();
+        String binaryName = mElements.getBinaryName(proxyElement).toString();
+        String className = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + CLASS_SUFFIX;
+        String proxyName = getTypeName(proxyElement.asType());
+
+        Writer writer = processingEnv.getFiler().createSourceFile(binaryName + CLASS_SUFFIX, proxyElement).openWriter();
+        PrintWriter out = new PrintWriter(writer);
+        try {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Proxy class for {@link " + proxyName + "}.");
+            out.println(" * Generated by " + ProxyProcessor.class.getName() + "; do not edit.");
+            out.println(" */");
+            out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            out.println("public final class " + className + " extends " + GENERATED_PROXY + " implements " + proxyName + " {");
+            for (int i = 0; i < methods.size(); ++i) {
+                ExecutableElement method = methods.get(i);
+                StringBuilder type = new StringBuilder();
+                type.append(METHOD_TYPE).append(".methodType(").append(getClassLiteral(method.getReturnType()));
+                for (VariableElement parameter : method.getParameters()) {
+                    type.append(", ").append(getClassLiteral(parameter.asType()));
+                }
+                type.append(")");
+                out.println("    private static final " + METHOD_HANDLE + " h" + i + " = bindHandle(" +
+                    proxyName + ".class, \"" + method.getSimpleName() + "\", " + type + ");");
+            }
+            out.println();
+            out.println("    public " + className + "(java.lang.Object target) {");
+            out.println("        super(target);");
+            out.println("    }");
+            for (int i = 0; i < methods.size(); ++i) {
+                out.println();
+                writeProxyMethod(out, methods.get(i), i);
+            }
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets the checked exception types declared by a proxy method that
+     * the generated method must rethrow, leaving out unchecked types and
+     * types that are subtypes of other declared types, which would make
+     * the generated catch clauses unreachable.
+     */
+    private List<TypeMirror> getRethrownTypes(ExecutableElement method) {
+        TypeMirror runtimeExceptionType = mElements.getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror errorType = mElements.getTypeElement(Error.class.getName()).asType();
+        List<TypeMirror> thrownTypes = new ArrayList<TypeMirror>();
+        for (TypeMirror thrownType : method.getThrownTypes()) {
+            if (thrownType.getKind() != TypeKind.DECLARED ||
+                mTypes.isSubtype(thrownType, runtimeExceptionType) ||
+                mTypes.isSubtype(thrownType, errorType)) {
+                continue;
+            }
+            boolean isRedundant = false;
+            for (TypeMirror otherType : method.getThrownTypes()) {
+                if (!mTypes.isSameType(thrownType, otherType) && mTypes.isSubtype(thrownType, otherType)) {
+                    isRedundant = true;
+                    break;
+                }
+            }
+            if (!isRedundant) {
+                thrownTypes.add(thrownType);
+            }
+        }
+        return thrownTypes;
+    }
+
+    private void writeProxyMethod(PrintWriter out, ExecutableElement method, int index) {
+        TypeMirror returnType = method.getReturnType();
+        List<? extends VariableElement> parameters = method.getParameters();
+        StringBuilder params = new StringBuilder();
+        StringBuilder args = new StringBuilder();
+        for (int i = 0; i < parameters.size(); ++i) {
+            if (i > 0) {
+                params.append(", ");
+            }
+            params.append(getTypeName(parameters.get(i).asType())).append(" a").append(i);
+            args.append(", a").append(i);
+        }
+        String call = "h" + index + ".invokeExact((com.crossbowffs.reflectionproxy.ProxyBase)this, mTarget" + args + ");";
+        List<TypeMirror> thrownTypes = getRethrownTypes(method);
+        StringBuilder throwsClause = new StringBuilder();
+        for (int i = 0; i < thrownTypes.size(); ++i) {
+            throwsClause.append(i == 0 ? " throws " : ", ").append(getTypeName(thrownTypes.get(i)));
+        }
+        out.println("    @Override");
+        out.println("    public final " + getTypeName(returnType) + " " + method.getSimpleName() + "(" + params + ")" + throwsClause + " {");
+        out.println("        try {");
+        if (returnType.getKind() == TypeKind.VOID) {
+            out.println("            " + call);
+        } else {
+            out.println("            return (" + getTypeName(returnType) + ")" + call);
+        }
+        out.println("        } catch (RuntimeException e) {");
+        out.println("            throw e;");
+        out.println("        } catch (Error e) {");
+        out.println("            throw e;");
+        boolean rethrowsAll = false;
+        for (TypeMirror thrownType : thrownTypes) {
+            // Checked exceptions declared by the proxy method (see @ProxyTransparentExceptions)
+            out.println("        } catch (" + getTypeName(thrownType) + " e) {");
+            out.println("            throw e;");
+            rethrowsAll |= mTypes.isSameType(thrownType, mElements.getTypeElement(Throwable.class.getName()).asType());
+        }
+        if (!rethrowsAll) {
+            out.println("        } catch (Throwable e) {");
+            out.println("            throw new AssertionError(e);");
+        }
+        out.println("        }");
+        out.println("    }");
+    }
+}
@@ -0,0 +1,355 @@
+package com.crossbowffs.reflectionproxy.verifier;
+
+import com.crossbowffs.reflectionproxy.ProxyBase;
+import com.crossbowffs.reflectionproxy.ProxyBindingReport;
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import com.crossbowffs.reflectionproxy.ProxyTarget;
+import com.crossbowffs.reflectionproxy.ProxyTargetName;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Command line tool that finds every proxy interface in a set of class
+ * directories and jars, binds all of their proxy methods, and reports
+ * the bindings that failed. Meant to be run as a build step, so that
+ * binding mistakes fail the build instead of the first call.
+ *
+ * <p>
+ * Usage: {@code ProxyVerifier [-o report.json] <classpath>...}, where each
+ * classpath argument is a directory or jar (or several, separated by the
+ * platform path separator). Every interface that extends {@link ProxyBase}
+ * and is annotated with {@link ProxyTarget} or {@link ProxyTargetName} is
+ * bound with {@link ProxyFactory#bind(java.util.Collection)}, so bindings
+ * are resolved exactly like they are at runtime. Classes are loaded, and
+ * interfaces bound, in parallel on the common fork-join pool.
+ *
+ * <p>
+ * Exits with status 0 if every proxy method was bound, 1 if any binding
+ * failed, and 2 if the arguments are invalid or the report cannot be written.
+ * Classes that cannot be loaded (e.g. because their dependencies are missing)
+ * are listed in the report, but do not fail the verification on their own.
+ */
+public final class ProxyVerifier {
+    private static final int EXIT_SUCCESS = 0;
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    // Classes are loaded in chunks of this size
+    private static final int LOAD_CHUNK_SIZE = 64;
+
+    private final List<File> mClasspath;
+    private final List<String> mClassNames;
+    private final List<LoadError> mLoadErrors;
+
+    private ProxyVerifier(List<File> classpath) {
+        mClasspath = classpath;
+        mClassNames = new ArrayList<String>();
+        mLoadErrors = new ArrayList<LoadError>();
+    }
+
+    private static final class LoadError {
+        private final String mClassName;
+        private final Throwable mError;
+
+        private LoadError(String className, Throwable error) {
+            mClassName = className;
+            mError = error;
+        }
+    }
+
+    /**
+     * Loads a range of classes, storing each class (or the error
+     * that prevented it from loading) into the output arrays.
+     */
+    @SuppressWarnings("serial")
+    private static final class LoadTask extends RecursiveAction {
+        private final ClassLoader mClassLoader;
+        private final String[] mClassNames;
+        private final Class<?>[] mClasses;
+        private final Throwable[] mErrors;
+        private final int mStart;
+        private final int mEnd;
+
+        private LoadTask(ClassLoader classLoader, String[] classNames, Class<?>[] classes,
+                         Throwable[] errors, int start, int end) {
+            mClassLoader = classLoader;
+            mClassNames = classNames;
+            mClasses = classes;
+            mErrors = errors;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= LOAD_CHUNK_SIZE) {
+                for (int i = mStart; i < mEnd; ++i) {
+                    try {
+                        // Don't initialize classes; only interfaces are bound,
+                        // and their targets are initialized by the binding if needed
+                        mClasses[i] = Class.forName(mClassNames[i], false, mClassLoader);
+                    } catch (Throwable e) {
+                        // Usually ClassNotFoundException or NoClassDefFoundError
+                        mErrors[i] = e;
+                    }
+                }
+            } else {
+                int mid = (mStart + mEnd) >>> 1;
+                invokeAll(new LoadTask(mClassLoader, mClassNames, mClasses, mErrors, mStart, mid),
+                          new LoadTask(mClassLoader, mClassNames, mClasses, mErrors, mid, mEnd));
+            }
+        }
+    }
+
+    private static String toClassName(String path) {
+        String name = path.substring(0, path.length() - ".class".length());
+        if (name.endsWith("module-info") || name.endsWith("package-info")) {
+            return null;
+        }
+        return name.replace('/', '.').replace(File.separatorChar, '.');
+    }
+
+    private void scanDirectory(File root, File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                scanDirectory(root, file);
+            } else if (file.getName().endsWith(".class")) {
+                String path = file.getPath().substring(root.getPath().length() + 1);
+                String className = toClassName(path);
+                if (className != null) {
+                    mClassNames.add(className);
+                }
+            }
+        }
+    }
+
+    private void scanJar(File file) throws IOException {
+        JarFile jarFile = new JarFile(file);
+        try {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String path = entry.getName();
+                // Skip multi-release variants; the base version is loaded
+                if (!entry.isDirectory() && path.endsWith(".class") && !path.startsWith("META-INF/")) {
+                    String className = toClassName(path);
+                    if (className != null) {
+                        mClassNames.add(className);
+                    }
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+    }
+
+    private void scan() throws IOException {
+        for (File file : mClasspath) {
+            if (file.isDirectory()) {
+                scanDirectory(file, file);
+            } else if (file.isFile()) {
+                scanJar(file);
+            } else {
+                throw new IOException("Classpath entry does not exist: " + file);
+            }
+        }
+        // Keep the report stable across builds
+        Collections.sort(mClassNames);
+    }
+
+    private URLClassLoader createClassLoader() throws MalformedURLException {
+        URL[] urls = new URL[mClasspath.size()];
+        for (int i = 0; i < urls.length; ++i) {
+            urls[i] = mClasspath.get(i).toURI().toURL();
+        }
+        // Delegate to our own class loader, so that the scanned
+        // interfaces share ProxyBase and the annotations with us
+        return new URLClassLoader(urls, ProxyVerifier.class.getClassLoader());
+    }
+
+    private List<Class<?>> loadProxyClasses(ClassLoader classLoader) {
+        String[] classNames = mClassNames.toArray(new String[mClassNames.size()]);
+        Class<?>[] classes = new Class<?>[classNames.length];
+        Throwable[] errors = new Throwable[classNames.length];
+        if (classNames.length > 0) {
+            ForkJoinPool.commonPool().invoke(new LoadTask(classLoader, classNames, classes, errors, 0, classNames.length));
+        }
+
+        List<Class<?>> proxyClasses = new ArrayList<Class<?>>();
+        for (int i = 0; i < classNames.length; ++i) {
+            if (errors[i] != null) {
+                mLoadErrors.add(new LoadError(classNames[i], errors[i]));
+            } else if (isProxyClass(classes[i])) {
+                proxyClasses.add(classes[i]);
+            }
+        }
+        return proxyClasses;
+    }
+
+    private static boolean isProxyClass(Class<?> cls) {
+        return cls.isInterface() && cls != ProxyBase.class && ProxyBase.class.isAssignableFrom(cls) &&
+            (cls.isAnnotationPresent(ProxyTarget.class) || cls.isAnnotationPresent(ProxyTargetName.class));
+    }
+
+    private static void appendString(StringBuilder sb, String str) {
+        if (str == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < str.length(); ++i) {
+            char c = str.charAt(i);
+            switch (c) {
+            case '"': sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int)c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    private static String getMessage(Throwable e) {
+        String message = e.getMessage();
+        return message != null ? message : e.toString();
+    }
+
+    private String toJson(ProxyBindingReport report) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"interfaces\": ").append(report.getInterfaceCount()).append(",\n");
+        sb.append("  \"bindings\": ").append(report.getBindingCount()).append(",\n");
+        sb.append("  \"failures\": [");
+        List<ProxyBindingReport.Failure> failures = report.getFailures();
+        for (int i = 0; i < failures.size(); ++i) {
+            ProxyBindingReport.Failure failure = failures.get(i);
+            sb.append(i == 0 ? "\n" : ",\n").append("    {\"interface\": ");
+            appendString(sb, failure.getProxyClass().getName());
+            sb.append(", \"method\": ");
+            appendString(sb, failure.getProxyMethod() != null ? failure.getProxyMethod().toString() : null);
+            sb.append(", \"message\": ");
+            appendString(sb, getMessage(failure.getException()));
+            sb.append('}');
+        }
+        sb.append(failures.isEmpty() ? "],\n" : "\n  ],\n");
+        sb.append("  \"loadErrors\": [");
+        for (int i = 0; i < mLoadErrors.size(); ++i) {
+            LoadError loadError = mLoadErrors.get(i);
+            sb.append(i == 0 ? "\n" : ",\n").append("    {\"class\": ");
+            appendString(sb, loadError.mClassName);
+            sb.append(", \"message\": ");
+            appendString(sb, loadError.mError.toString());
+            sb.append('}');
+        }
+        sb.append(mLoadErrors.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void writeReport(File file, String json) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+        try {
+            writer.write(json);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: ProxyVerifier [-o report.json] <classpath>...");
+    }
+
+    /**
+     * Runs the verifier with the specified command line arguments.
+     *
+     * @param args The command line arguments.
+     * @param out The stream to print the summary and errors to.
+     * @return The exit status.
+     */
+    public static int run(String[] args, PrintStream out) {
+        File reportFile = null;
+        List<File> classpath = new ArrayList<File>();
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-o")) {
+                if (++i == args.length) {
+                    printUsage(out);
+                    return EXIT_USAGE;
+                }
+                reportFile = new File(args[i]);
+            } else {
+                for (String path : args[i].split(File.pathSeparator)) {
+                    if (!path.isEmpty()) {
+                        classpath.add(new File(path));
+                    }
+                }
+            }
+        }
+        if (classpath.isEmpty()) {
+            printUsage(out);
+            return EXIT_USAGE;
+        }
+
+        ProxyVerifier verifier = new ProxyVerifier(classpath);
+        ProxyBindingReport report;
+        try {
+            verifier.scan();
+            URLClassLoader classLoader = verifier.createClassLoader();
+            try {
+                report = ProxyFactory.bind(verifier.loadProxyClasses(classLoader));
+            } catch (Error e) {
+                // Binding errors are normally reported per method, but a
+                // broken class can still throw an error (e.g. a LinkageError)
+                // where the binder does not expect it; fail the verification
+                // instead of crashing
+                out.println("Error: Binding was aborted: " + e);
+                return EXIT_FAILURE;
+            } finally {
+                classLoader.close();
+            }
+            if (reportFile != null) {
+                writeReport(reportFile, verifier.toJson(report));
+            }
+        } catch (IOException e) {
+            out.println("Error: " + getMessage(e));
+            return EXIT_USAGE;
+        }
+
+        out.println(report);
+        if (!verifier.mLoadErrors.isEmpty()) {
+            out.println(verifier.mLoadErrors.size() + " classes could not be loaded");
+        }
+        return report.isSuccessful() ? EXIT_SUCCESS : EXIT_FAILURE;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out));
+    }
+}
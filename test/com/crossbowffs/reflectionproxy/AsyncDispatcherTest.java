@@ -0,0 +1,173 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that async proxy methods call their target on the async
+ * executor, and complete their future with the converted result.
+ */
+public class AsyncDispatcherTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static class Node {
+        private int mValue;
+        private Thread mLastThread;
+
+        private Node(int value) {
+            mValue = value;
+        }
+
+        private int get() {
+            mLastThread = Thread.currentThread();
+            return mValue;
+        }
+
+        private void set(int value) {
+            mLastThread = Thread.currentThread();
+            mValue = value;
+        }
+
+        private Node self() {
+            return this;
+        }
+
+        private int fail() {
+            throw new IllegalStateException("failed");
+        }
+
+        private static String name() {
+            return "node";
+        }
+    }
+
+    @ProxyTarget(Node.class)
+    private interface NodeProxy extends ProxyBase {
+        CompletableFuture<Integer> get();
+        CompletableFuture<Void> set(int value);
+        CompletableFuture<NodeProxy> self();
+        CompletableFuture<Integer> fail();
+        @ProxyStatic CompletableFuture<String> name();
+    }
+
+    /**
+     * Runs tasks on the calling thread, and counts them.
+     */
+    private static final class CountingExecutor implements Executor {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public void execute(Runnable command) {
+            mCount.incrementAndGet();
+            command.run();
+        }
+    }
+
+    @AfterEach
+    public void restoreExecutor() {
+        ProxyFactory.setAsyncExecutor(null);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void defaultExecutorRunsOnAnotherThread() throws Exception {
+        Node node = new Node(3);
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        assertEquals(3, (int)await(proxy.get()));
+        assertNotSame(Thread.currentThread(), node.mLastThread);
+        assertNull(await(proxy.set(5)));
+        assertEquals(5, node.mValue);
+        assertSame(proxy, await(proxy.self()));
+        assertEquals("node", await(ProxyFactory.createStaticProxy(NodeProxy.class).name()));
+    }
+
+    @Test
+    public void customExecutorIsUsed() throws Exception {
+        CountingExecutor executor = new CountingExecutor();
+        ProxyFactory.setAsyncExecutor(executor);
+        Node node = new Node(3);
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        // Enough calls to also cover the method handle path
+        for (int i = 0; i < 40; ++i) {
+            CompletableFuture<Void> future = proxy.set(i);
+            assertTrue(future.isDone());
+            assertSame(Thread.currentThread(), node.mLastThread);
+            assertEquals(i, (int)await(proxy.get()));
+        }
+        assertEquals(80, executor.mCount.get());
+
+        // Restoring the default executor affects methods that are already bound
+        ProxyFactory.setAsyncExecutor(null);
+        await(proxy.get());
+        assertNotSame(Thread.currentThread(), node.mLastThread);
+        assertEquals(80, executor.mCount.get());
+    }
+
+    @Test
+    public void targetExceptionsCompleteExceptionally() {
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, new Node(0));
+        for (int i = 0; i < 40; ++i) {
+            final CompletableFuture<Integer> future = proxy.fail();
+            ExecutionException e = assertThrows(ExecutionException.class, new Executable() {
+                @Override
+                public void execute() throws Exception {
+                    await(future);
+                }
+            });
+            assertTrue(e.getCause() instanceof ProxyException);
+            assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void rejectedCallsCompleteExceptionally() {
+        ProxyFactory.setAsyncExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+        final CompletableFuture<Integer> future = ProxyFactory.createProxy(NodeProxy.class, new Node(0)).get();
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, new Executable() {
+            @Override
+            public void execute() throws Exception {
+                await(future);
+            }
+        });
+        assertTrue(e.getCause() instanceof ProxyException);
+        assertTrue(e.getCause().getCause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    public void staticProxiesFailOnCallingThread() {
+        CountingExecutor executor = new CountingExecutor();
+        ProxyFactory.setAsyncExecutor(executor);
+        final NodeProxy proxy = ProxyFactory.createStaticProxy(NodeProxy.class);
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                proxy.get();
+            }
+        });
+        assertEquals(0, executor.mCount.get());
+    }
+}
@@ -0,0 +1,230 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that {@link ProxyCached} methods return cached results when
+ * they should, and discard them when they should not.
+ */
+public class CachedDispatcherTest {
+    private static final int GC_ATTEMPTS = 50;
+
+    private static class Squarer {
+        private int mCalls;
+        private int mFailures;
+
+        private int square(int value) {
+            mCalls++;
+            return value * value;
+        }
+
+        private int squareAsync(int value) {
+            mCalls++;
+            if (mFailures > 0) {
+                mFailures--;
+                throw new IllegalStateException("failed");
+            }
+            return value * value;
+        }
+    }
+
+    @ProxyTarget(Squarer.class)
+    private interface SquarerProxy extends ProxyBase {
+        @ProxyCached int square(int value);
+    }
+
+    @ProxyTarget(Squarer.class)
+    private interface SmallSquarerProxy extends ProxyBase {
+        @ProxyCached(maxSize = 2) int square(int value);
+    }
+
+    @ProxyTarget(Squarer.class)
+    private interface ExpiringSquarerProxy extends ProxyBase {
+        @ProxyCached(expireAfterMillis = 50) int square(int value);
+    }
+
+    @ProxyTarget(Squarer.class)
+    private interface WeakSquarerProxy extends ProxyBase {
+        @ProxyCached(weakTargets = true) int square(int value);
+    }
+
+    @ProxyTarget(Squarer.class)
+    private interface AsyncSquarerProxy extends ProxyBase {
+        @ProxyCached CompletableFuture<Integer> squareAsync(int value);
+    }
+
+    @ProxyTarget(Squarer.class)
+    private interface DirectSquarerProxy extends ProxyBase {
+        @ProxyCached CompletableFuture<Integer> squareAsync(int value);
+    }
+
+    /**
+     * Holds tasks until they are run explicitly.
+     */
+    private static final class QueueExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        private void runAll() {
+            for (Runnable task : mTasks) {
+                task.run();
+            }
+            mTasks.clear();
+        }
+    }
+
+    @AfterEach
+    public void restoreExecutor() {
+        ProxyFactory.setAsyncExecutor(null);
+    }
+
+    private static ProxyCacheStats getStats(Class<?> proxyClass) {
+        for (ProxyCacheStats stats : ProxyFactory.getCacheStats()) {
+            if (stats.getProxyClass() == proxyClass) {
+                return stats;
+            }
+        }
+        fail("No cache stats for " + proxyClass);
+        return null;
+    }
+
+    private static void assertStats(Class<?> proxyClass, long hits, long misses, long evictions, int size) {
+        ProxyCacheStats stats = getStats(proxyClass);
+        assertEquals(hits, stats.getHitCount(), "hits");
+        assertEquals(misses, stats.getMissCount(), "misses");
+        assertEquals(evictions, stats.getEvictionCount(), "evictions");
+        assertEquals(size, stats.getSize(), "size");
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        Squarer squarer = new Squarer();
+        SquarerProxy proxy = ProxyFactory.createProxy(SquarerProxy.class, squarer);
+        for (int i = 0; i < 40; ++i) {
+            assertEquals(4, proxy.square(2));
+            assertEquals(9, proxy.square(3));
+        }
+        assertEquals(2, squarer.mCalls);
+        assertStats(SquarerProxy.class, 78, 2, 0, 2);
+
+        // Targets are compared by identity
+        Squarer other = new Squarer();
+        assertEquals(4, ProxyFactory.createProxy(SquarerProxy.class, other).square(2));
+        assertEquals(1, other.mCalls);
+        assertStats(SquarerProxy.class, 78, 3, 0, 3);
+    }
+
+    @Test
+    public void leastRecentlyUsedResultsAreEvicted() {
+        Squarer squarer = new Squarer();
+        SmallSquarerProxy proxy = ProxyFactory.createProxy(SmallSquarerProxy.class, squarer);
+        proxy.square(1);
+        proxy.square(2);
+        proxy.square(1);
+        proxy.square(3);
+        assertStats(SmallSquarerProxy.class, 1, 3, 1, 2);
+        proxy.square(1);
+        proxy.square(2);
+        assertEquals(4, squarer.mCalls);
+        assertStats(SmallSquarerProxy.class, 2, 4, 2, 2);
+    }
+
+    @Test
+    public void expiredResultsAreRecomputed() throws InterruptedException {
+        Squarer squarer = new Squarer();
+        ExpiringSquarerProxy proxy = ProxyFactory.createProxy(ExpiringSquarerProxy.class, squarer);
+        proxy.square(2);
+        Thread.sleep(100);
+        assertEquals(4, proxy.square(2));
+        assertEquals(2, squarer.mCalls);
+        assertStats(ExpiringSquarerProxy.class, 0, 2, 1, 1);
+    }
+
+    @Test
+    public void collectedTargetsArePurged() throws InterruptedException {
+        Squarer squarer = new Squarer();
+        WeakSquarerProxy proxy = ProxyFactory.createProxy(WeakSquarerProxy.class, squarer);
+        proxy.square(2);
+        proxy.square(2);
+        assertStats(WeakSquarerProxy.class, 1, 1, 0, 1);
+        squarer = null;
+        proxy = null;
+
+        for (int i = 0; i < GC_ATTEMPTS && getStats(WeakSquarerProxy.class).getSize() != 0; ++i) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertStats(WeakSquarerProxy.class, 1, 1, 1, 0);
+    }
+
+    @Test
+    public void failedFuturesAreRemoved() throws Exception {
+        QueueExecutor executor = new QueueExecutor();
+        ProxyFactory.setAsyncExecutor(executor);
+        Squarer squarer = new Squarer();
+        squarer.mFailures = 1;
+        AsyncSquarerProxy proxy = ProxyFactory.createProxy(AsyncSquarerProxy.class, squarer);
+
+        // The pending future is cached until it fails
+        final CompletableFuture<Integer> failed = proxy.squareAsync(2);
+        assertSame(failed, proxy.squareAsync(2));
+        executor.runAll();
+        ExecutionException e = assertThrows(ExecutionException.class, new Executable() {
+            @Override
+            public void execute() throws Exception {
+                failed.get();
+            }
+        });
+        assertTrue(e.getCause() instanceof ProxyException);
+        assertStats(AsyncSquarerProxy.class, 1, 1, 0, 0);
+
+        // Successful futures stay cached
+        CompletableFuture<Integer> succeeded = proxy.squareAsync(2);
+        assertNotSame(failed, succeeded);
+        executor.runAll();
+        assertEquals(4, (int)succeeded.get());
+        assertSame(succeeded, proxy.squareAsync(2));
+        assertEquals(2, squarer.mCalls);
+        assertStats(AsyncSquarerProxy.class, 2, 2, 0, 1);
+    }
+
+    @Test
+    public void futuresThatAlreadyFailedAreNotCached() {
+        ProxyFactory.setAsyncExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        Squarer squarer = new Squarer();
+        squarer.mFailures = 1;
+        DirectSquarerProxy proxy = ProxyFactory.createProxy(DirectSquarerProxy.class, squarer);
+        CompletableFuture<Integer> failed = proxy.squareAsync(3);
+        assertTrue(failed.isCompletedExceptionally());
+        CompletableFuture<Integer> succeeded = proxy.squareAsync(3);
+        assertFalse(succeeded.isCompletedExceptionally());
+        assertEquals(9, (int)succeeded.join());
+        assertEquals(2, squarer.mCalls);
+        assertStats(DirectSquarerProxy.class, 0, 2, 0, 1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that binding proxies in a class loader does not keep the
+ * loader alive once it is discarded.
+ */
+public class ClassLoaderEvictionTest {
+    private static final String PLUGIN_PACKAGE = "com.crossbowffs.reflectionproxy.plugin.";
+    private static final int GC_ATTEMPTS = 50;
+
+    /**
+     * Runs the plugin in a new class loader, and returns a weak
+     * reference to the loader once nothing else refers to it.
+     */
+    private static WeakReference<ClassLoader> runPlugin(boolean evict) throws Exception {
+        ClassLoader classLoader = new PluginClassLoader(PLUGIN_PACKAGE);
+        Class<?> pluginClass = classLoader.loadClass(PLUGIN_PACKAGE + "Plugin");
+        assertEquals(classLoader, pluginClass.getClassLoader());
+        Callable<?> plugin = (Callable<?>)pluginClass.getDeclaredConstructor().newInstance();
+        assertNotNull(plugin.call());
+        if (evict) {
+            assertTrue(ProxyFactory.evict(classLoader) > 0);
+        }
+        return new WeakReference<ClassLoader>(classLoader);
+    }
+
+    private static boolean isCollected(WeakReference<ClassLoader> ref) throws InterruptedException {
+        for (int i = 0; i < GC_ATTEMPTS && ref.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ref.get() == null;
+    }
+
+    @Test
+    public void evictedClassLoaderIsCollected() throws Exception {
+        WeakReference<ClassLoader> ref = runPlugin(true);
+        assertTrue(isCollected(ref), "Class loader was not collected after evict");
+    }
+
+    @Test
+    public void unreachableClassLoaderIsCollected() throws Exception {
+        // Bindings within a single loader never need to be evicted
+        WeakReference<ClassLoader> ref = runPlugin(false);
+        assertTrue(isCollected(ref), "Class loader was not collected");
+    }
+
+    @Test
+    public void evictUnknownClassLoader() {
+        assertEquals(0, ProxyFactory.evict(new PluginClassLoader(PLUGIN_PACKAGE)));
+    }
+}
@@ -0,0 +1,162 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the coercion plans chosen at bind time, both directly and
+ * through proxy calls.
+ */
+public class CoercionTest {
+    private static class Node {
+        private long mValue;
+        private Node mNext;
+
+        private Node(long value) {
+            mValue = value;
+        }
+
+        private int add(int a, char b) {
+            return (int)mValue + a + b;
+        }
+
+        private int count() {
+            return 7;
+        }
+
+        private Node self() {
+            return this;
+        }
+
+        private Node next() {
+            return mNext;
+        }
+
+        private long sum(Node[] nodes) {
+            long sum = 0;
+            for (Node node : nodes) {
+                sum += node.mValue;
+            }
+            return sum;
+        }
+
+        private Node[] pair() {
+            return new Node[] {this, mNext};
+        }
+    }
+
+    private static class Other {
+
+    }
+
+    @ProxyTarget(Node.class)
+    private interface NodeProxy extends ProxyBase {
+        long add(int a, char b);
+        long count();
+        NodeProxy self();
+        NodeProxy next();
+        long sum(NodeProxy[] nodes);
+        NodeProxy[] pair();
+        @ProxyField void set_mValue(int value);
+        @ProxyField long get_mValue();
+        @ProxyField void set_mNext(NodeProxy next);
+    }
+
+    @ProxyTarget(Other.class)
+    private interface OtherProxy extends ProxyBase {
+
+    }
+
+    @Test
+    public void identityPlans() {
+        assertSame(Coercion.IDENTITY, Coercion.forInput(String.class, String.class));
+        assertSame(Coercion.IDENTITY, Coercion.forInput(String.class, Object.class));
+        assertSame(Coercion.IDENTITY, Coercion.forOutput(Object.class, String.class));
+        assertSame(Coercion.IDENTITY, Coercion.forInput(int.class, int.class));
+        assertNull(Coercion.forInputs(new Class<?>[] {int.class, String.class}, new Class<?>[] {int.class, Object.class}));
+    }
+
+    @Test
+    public void wideningPrimitivePlans() {
+        assertTrue(Coercion.isWideningPrimitive(int.class, long.class));
+        assertTrue(Coercion.isWideningPrimitive(char.class, int.class));
+        assertTrue(Coercion.isWideningPrimitive(float.class, double.class));
+        assertFalse(Coercion.isWideningPrimitive(long.class, int.class));
+        assertFalse(Coercion.isWideningPrimitive(byte.class, char.class));
+        assertFalse(Coercion.isWideningPrimitive(boolean.class, int.class));
+
+        assertEquals(5L, Coercion.forInput(int.class, long.class).coerce(5, null));
+        assertEquals(97, Coercion.forInput(char.class, int.class).coerce('a', null));
+        assertEquals(2.5, Coercion.forInput(float.class, double.class).coerce(2.5f, null));
+        assertEquals(7L, Coercion.forOutput(long.class, int.class).coerce(7, null));
+    }
+
+    @Test
+    public void proxyPlans() {
+        Node node = new Node(1);
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        final Coercion unwrap = Coercion.forInput(NodeProxy.class, Node.class);
+        assertSame(node, unwrap.coerce(proxy, null));
+        assertSame(node, unwrap.coerce(node, null));
+        assertNull(unwrap.coerce(null, null));
+        final OtherProxy other = ProxyFactory.createProxy(OtherProxy.class, new Other());
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                unwrap.coerce(other, null);
+            }
+        });
+
+        Coercion wrap = Coercion.forOutput(NodeProxy.class, Node.class);
+        assertSame(node, ProxyFactory.getProxyTarget((ProxyBase)wrap.coerce(node, null)));
+        assertSame(proxy, wrap.coerce(node, proxy));
+        assertNull(wrap.coerce(null, proxy));
+    }
+
+    @Test
+    public void proxyCalls() {
+        Node node = new Node(1);
+        Node next = new Node(10);
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        NodeProxy nextProxy = ProxyFactory.createProxy(NodeProxy.class, next);
+
+        assertEquals(1 + 2 + 'a', proxy.add(2, 'a'));
+        assertEquals(7, proxy.count());
+        proxy.set_mValue(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, node.mValue);
+        assertEquals(Integer.MAX_VALUE, proxy.get_mValue());
+
+        proxy.set_mNext(nextProxy);
+        assertSame(next, node.mNext);
+        assertSame(next, ProxyFactory.getProxyTarget(proxy.next()));
+        assertSame(proxy, proxy.self());
+
+        assertEquals(Integer.MAX_VALUE + 10L, proxy.sum(new NodeProxy[] {proxy, nextProxy}));
+        NodeProxy[] pair = proxy.pair();
+        assertEquals(2, pair.length);
+        assertArrayEquals(new Object[] {node, next},
+            new Object[] {ProxyFactory.getProxyTarget(pair[0]), ProxyFactory.getProxyTarget(pair[1])});
+    }
+
+    @Test
+    public void proxyCallsAfterHandleSwitch() {
+        // Dispatchers switch to method handles after a number of calls,
+        // which must convert values the same way
+        Node node = new Node(0);
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        for (int i = 0; i < 100; ++i) {
+            proxy.set_mValue(i);
+            assertEquals(i, proxy.get_mValue());
+            assertEquals(i + i + 'b', proxy.add(i, 'b'));
+            assertSame(proxy, proxy.self());
+        }
+    }
+}
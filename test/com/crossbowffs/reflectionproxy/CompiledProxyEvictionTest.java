@@ -0,0 +1,159 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that proxy classes generated by the annotation processor
+ * release their bindings when their interface is evicted, with the
+ * interface in a host class loader and the target in a plugin loader.
+ */
+public class CompiledProxyEvictionTest {
+    private static final int GC_ATTEMPTS = 50;
+
+    /**
+     * Defines the host classes itself, but loads plugin classes through
+     * the plugin loader, like a host application that loads plugins.
+     * Since the JVM records every class a loader resolves, this keeps
+     * the plugin loader alive for as long as the host loader.
+     */
+    private static final class HostClassLoader extends URLClassLoader {
+        private final ClassLoader mPluginClassLoader;
+
+        public HostClassLoader(File classDir, ClassLoader pluginClassLoader) throws Exception {
+            super(new URL[] {classDir.toURI().toURL()}, CompiledProxyEvictionTest.class.getClassLoader());
+            mPluginClassLoader = pluginClassLoader;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (name.startsWith("gen.plugin.")) {
+                return mPluginClassLoader.loadClass(name);
+            }
+            return super.loadClass(name, resolve);
+        }
+    }
+
+    private static final class CountingInterceptor implements ProxyInterceptor {
+        private final AtomicInteger mCount;
+
+        public CountingInterceptor(AtomicInteger count) {
+            mCount = count;
+        }
+
+        @Override
+        public Object intercept(ProxyInvocation invocation) {
+            mCount.incrementAndGet();
+            return invocation.proceed();
+        }
+    }
+
+    private static File compile() throws Exception {
+        ProxyCompiler compiler = new ProxyCompiler()
+            .addSource("gen.plugin.Target",
+                "package gen.plugin;",
+                "public class Target {",
+                "    private int mValue;",
+                "    private Target(int value) { mValue = value; }",
+                "    private int add(int delta) { mValue += delta; return mValue; }",
+                "}")
+            .addSource("gen.host.TargetProxy",
+                "package gen.host;",
+                "import com.crossbowffs.reflectionproxy.*;",
+                "@ProxyTarget(gen.plugin.Target.class)",
+                "public interface TargetProxy extends ProxyBase {",
+                "    int add(int delta);",
+                "    @ProxyConstructor TargetProxy create(int value);",
+                "}");
+        File classDir = compiler.compile();
+        assertNotNull(classDir, String.valueOf(compiler.getErrors()));
+        return classDir;
+    }
+
+    private static int add(ProxyBase proxy, int delta) throws Exception {
+        Method method = proxy.getClass().getInterfaces()[0].getMethod("add", int.class);
+        return (Integer)method.invoke(proxy, delta);
+    }
+
+    private static WeakReference<ProxyInterceptor> addInterceptor(Class<? extends ProxyBase> proxyClass, AtomicInteger count) {
+        ProxyInterceptor interceptor = new CountingInterceptor(count);
+        ProxyFactory.addInterceptor(proxyClass, interceptor);
+        return new WeakReference<ProxyInterceptor>(interceptor);
+    }
+
+    private static boolean isCollected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < GC_ATTEMPTS && ref.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ref.get() == null;
+    }
+
+    /**
+     * Runs the host with a new plugin, and returns weak references
+     * to both loaders once nothing else refers to them.
+     */
+    private static WeakReference<?>[] runHost(File classDir) throws Exception {
+        URLClassLoader pluginClassLoader = new URLClassLoader(new URL[] {classDir.toURI().toURL()},
+            CompiledProxyEvictionTest.class.getClassLoader());
+        HostClassLoader hostClassLoader = new HostClassLoader(classDir, pluginClassLoader);
+        @SuppressWarnings("unchecked")
+        Class<? extends ProxyBase> proxyClass = (Class<? extends ProxyBase>)hostClassLoader.loadClass("gen.host.TargetProxy");
+        assertSame(hostClassLoader, proxyClass.getClassLoader());
+        assertSame(pluginClassLoader, ProxyUtils.getTargetClass(proxyClass).getClassLoader());
+
+        ProxyBase staticProxy = ProxyFactory.createStaticProxy(proxyClass);
+        assertEquals("gen.host.TargetProxy$$Proxy", staticProxy.getClass().getName());
+        Method create = proxyClass.getMethod("create", int.class);
+        ProxyBase proxy = (ProxyBase)create.invoke(staticProxy, 0);
+        assertEquals(1, add(proxy, 1));
+
+        // The proxy class is already initialized, so its methods must
+        // be bound again for the interceptor to see the next calls
+        AtomicInteger count = new AtomicInteger();
+        WeakReference<ProxyInterceptor> interceptorRef = addInterceptor(proxyClass, count);
+        for (int i = 0; i < 20; ++i) {
+            add(proxy, 1);
+        }
+        assertEquals(21, add(proxy, 0));
+        assertEquals(21, count.get());
+
+        // Removing the interceptor releases it, even though the old
+        // binding was compiled into the proxy class
+        assertTrue(ProxyFactory.removeInterceptor(proxyClass, interceptorRef.get()));
+        assertEquals(22, add(proxy, 1));
+        assertEquals(21, count.get());
+        assertTrue(isCollected(interceptorRef), "Interceptor was not released");
+
+        // Evicting the plugin loader releases the bindings of the host
+        // interface, and existing proxies bind again
+        assertTrue(ProxyFactory.evict(pluginClassLoader) > 0);
+        assertEquals(23, add(proxy, 1));
+        assertEquals(24, add((ProxyBase)create.invoke(staticProxy, 23), 1));
+
+        pluginClassLoader.close();
+        hostClassLoader.close();
+        return new WeakReference<?>[] {
+            new WeakReference<ClassLoader>(hostClassLoader),
+            new WeakReference<ClassLoader>(pluginClassLoader),
+        };
+    }
+
+    @Test
+    public void compiledProxiesBindAgainAfterEviction() throws Exception {
+        WeakReference<?>[] refs = runHost(compile());
+        assertTrue(isCollected(refs[0]), "Host class loader was not collected");
+        assertTrue(isCollected(refs[1]), "Plugin class loader was not collected");
+    }
+}
@@ -0,0 +1,123 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that cursor proxies follow their target, check the target
+ * type, and leave regular proxies unaffected.
+ */
+public class CursorProxyTest {
+    private static class Item {
+        private int mValue;
+
+        private Item(int value) {
+            mValue = value;
+        }
+
+        private int doubled() {
+            return mValue * 2;
+        }
+
+        private Item self() {
+            return this;
+        }
+
+        private static int staticValue() {
+            return 42;
+        }
+    }
+
+    @ProxyTarget(Item.class)
+    private interface ItemProxy extends ProxyBase {
+        @ProxyField int get_mValue();
+        @ProxyField void set_mValue(int value);
+        int doubled();
+        ItemProxy self();
+        @ProxyStatic int staticValue();
+    }
+
+    @Test
+    public void cursorFollowsTarget() {
+        List<Item> items = new ArrayList<Item>();
+        for (int i = 0; i < 100; ++i) {
+            items.add(new Item(i));
+        }
+        ItemProxy cursor = ProxyFactory.createCursorProxy(ItemProxy.class);
+        int sum = 0;
+        for (Item item : items) {
+            assertSame(cursor, ProxyFactory.setCursorTarget(cursor, item));
+            assertSame(item, ProxyFactory.getProxyTarget(cursor));
+            sum += cursor.doubled();
+            cursor.set_mValue(cursor.get_mValue() + 1);
+        }
+        assertEquals(99 * 100, sum);
+        for (int i = 0; i < items.size(); ++i) {
+            assertEquals(i + 1, items.get(i).mValue);
+        }
+    }
+
+    @Test
+    public void cursorReturnsItselfForThis() {
+        Item first = new Item(1);
+        Item second = new Item(2);
+        ItemProxy cursor = ProxyFactory.setCursorTarget(ProxyFactory.createCursorProxy(ItemProxy.class), first);
+        ItemProxy self = cursor.self();
+        assertSame(cursor, self);
+        ProxyFactory.setCursorTarget(cursor, second);
+        assertEquals(2, self.get_mValue());
+    }
+
+    @Test
+    public void cursorWithoutTargetIsStatic() {
+        final ItemProxy cursor = ProxyFactory.createCursorProxy(ItemProxy.class);
+        assertNull(ProxyFactory.getProxyTarget(cursor));
+        assertEquals(42, cursor.staticValue());
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                cursor.doubled();
+            }
+        });
+
+        ProxyFactory.setCursorTarget(cursor, new Item(3));
+        assertEquals(6, cursor.doubled());
+        ProxyFactory.setCursorTarget(cursor, null);
+        assertNull(ProxyFactory.getProxyTarget(cursor));
+    }
+
+    @Test
+    public void cursorChecksTargetType() {
+        final ItemProxy cursor = ProxyFactory.createCursorProxy(ItemProxy.class);
+        ProxyFactory.setCursorTarget(cursor, new Item(1));
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                ProxyFactory.setCursorTarget(cursor, "not an item");
+            }
+        });
+        assertEquals(1, cursor.get_mValue());
+    }
+
+    @Test
+    public void regularProxiesAreNotCursors() {
+        final ItemProxy proxy = ProxyFactory.createProxy(ItemProxy.class, new Item(1));
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                ProxyFactory.setCursorTarget(proxy, new Item(2));
+            }
+        });
+        assertEquals(1, proxy.get_mValue());
+        assertNotSame(ProxyFactory.createCursorProxy(ItemProxy.class), ProxyFactory.createCursorProxy(ItemProxy.class));
+    }
+}
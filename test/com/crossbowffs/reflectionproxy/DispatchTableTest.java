@@ -0,0 +1,185 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests for the lock-free dispatcher publication and slot index
+ * of {@link DispatchTable}. Every round starts all threads at once on a
+ * fresh table, so that they race to bind the same slots.
+ */
+public class DispatchTableTest {
+    private static final int THREAD_COUNT = 16;
+    private static final int ROUNDS = 200;
+    private static final int CALLS_PER_THREAD = 20000;
+
+    private static class Target {
+        private int mValue;
+
+        private Target(int value) {
+            mValue = value;
+        }
+
+        private int add(int a, int b) {
+            return a + b + mValue;
+        }
+
+        private String describe(String prefix) {
+            return prefix + mValue;
+        }
+
+        private Target self() {
+            return this;
+        }
+    }
+
+    @ProxyTarget(Target.class)
+    private interface TargetProxy extends ProxyBase {
+        int add(int a, int b);
+        String describe(String prefix);
+        TargetProxy self();
+        @ProxyField int get_mValue();
+        @ProxyField void set_mValue(int value);
+    }
+
+    /**
+     * Runs a task on every thread at the same time, and returns the
+     * results in thread order. Rethrows the first failure.
+     */
+    private static <T> List<T> runConcurrently(ExecutorService executor, final Callable<T> task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (int i = 0; i < THREAD_COUNT; ++i) {
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    start.await();
+                    return task.call();
+                }
+            }));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<T>();
+        for (Future<T> future : futures) {
+            results.add(future.get(1, TimeUnit.MINUTES));
+        }
+        return results;
+    }
+
+    @Test
+    public void concurrentBindingPublishesOneDispatcherPerSlot() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            for (int round = 0; round < ROUNDS; ++round) {
+                final DispatchTable table = new DispatchTable(TargetProxy.class, Target.class);
+                List<ProxyDispatcherBase[]> results = runConcurrently(executor, new Callable<ProxyDispatcherBase[]>() {
+                    @Override
+                    public ProxyDispatcherBase[] call() {
+                        ProxyDispatcherBase[] dispatchers = new ProxyDispatcherBase[table.getSlotCount()];
+                        for (int i = 0; i < dispatchers.length; ++i) {
+                            dispatchers[i] = table.getDispatcher(i);
+                        }
+                        return dispatchers;
+                    }
+                });
+                ProxyDispatcherBase[] expected = results.get(0);
+                for (ProxyDispatcherBase[] dispatchers : results) {
+                    for (int i = 0; i < dispatchers.length; ++i) {
+                        assertSame(expected[i], dispatchers[i], "slot " + i + " in round " + round);
+                    }
+                }
+                for (int i = 0; i < expected.length; ++i) {
+                    assertSame(expected[i], table.getDispatcher(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentSlotLookupsWithDistinctMethodInstances() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            for (int round = 0; round < ROUNDS; ++round) {
+                final DispatchTable table = new DispatchTable(TargetProxy.class, Target.class);
+                List<Method[]> results = runConcurrently(executor, new Callable<Method[]>() {
+                    @Override
+                    public Method[] call() {
+                        // getMethods() returns new Method instances on every call,
+                        // so every thread adds its own keys to the slot index
+                        Method[] methods = TargetProxy.class.getMethods();
+                        for (Method method : methods) {
+                            int slot = table.getSlot(method);
+                            assertEquals(method, table.getMethod(slot));
+                        }
+                        return methods;
+                    }
+                });
+                assertNotSame(results.get(0)[0], results.get(1)[0]);
+
+                // No key may be lost by a failed compare-and-set
+                for (Method[] methods : results) {
+                    for (Method method : methods) {
+                        assertEquals(method, table.getMethod(table.getSlot(method)));
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentProxyCalls() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            final List<Target> targets = new ArrayList<Target>();
+            for (int i = 0; i < THREAD_COUNT; ++i) {
+                targets.add(new Target(i));
+            }
+            final Object lock = new Object();
+            final int[] nextIndex = new int[1];
+            List<Boolean> results = runConcurrently(executor, new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    int index;
+                    synchronized (lock) {
+                        index = nextIndex[0]++;
+                    }
+                    Target target = targets.get(index);
+                    TargetProxy proxy = ProxyFactory.createProxy(TargetProxy.class, target);
+                    for (int i = 0; i < CALLS_PER_THREAD; ++i) {
+                        proxy.set_mValue(index + i);
+                        assertEquals(index + i, proxy.get_mValue());
+                        assertEquals(1 + i + index + i, proxy.add(1, i));
+                        assertSame(target, ProxyFactory.getProxyTarget(proxy.self()));
+                        if (i % 1000 == 0) {
+                            assertEquals("v" + (index + i), proxy.describe("v"));
+                        }
+                    }
+                    return true;
+                }
+            });
+            for (Boolean result : results) {
+                assertTrue(result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
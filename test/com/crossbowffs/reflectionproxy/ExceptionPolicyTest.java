@@ -0,0 +1,182 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks how exceptions thrown by target members are reported, on both
+ * the reflective path and the method handle path of each proxy method.
+ */
+public class ExceptionPolicyTest {
+    // Enough calls to switch to method handles
+    private static final int CALLS = 40;
+
+    private static class Thrower {
+        private Thrower() { }
+
+        private Thrower(Throwable e) throws Throwable {
+            throw e;
+        }
+
+        private void raise(Throwable e) throws Throwable {
+            throw e;
+        }
+
+        private static void raiseStatic(Throwable e) throws Throwable {
+            throw e;
+        }
+    }
+
+    @ProxyTarget(Thrower.class)
+    private interface WrappingProxy extends ProxyBase {
+        void raise(Throwable e) throws IOException;
+        @ProxyStatic void raiseStatic(Throwable e) throws IOException;
+        @ProxyConstructor WrappingProxy create(Throwable e) throws IOException;
+    }
+
+    @ProxyTarget(Thrower.class)
+    @ProxyTransparentExceptions
+    private interface TransparentProxy extends ProxyBase {
+        void raise(Throwable e) throws IOException;
+        @ProxyStatic void raiseStatic(Throwable e) throws IOException;
+        @ProxyConstructor TransparentProxy create(Throwable e) throws IOException;
+        @ProxyMethod("raise") @ProxyTransparentExceptions(false) void raiseWrapped(Throwable e) throws IOException;
+    }
+
+    /**
+     * Calls one of the proxy methods with the exception to throw.
+     */
+    private interface Call {
+        void call(Throwable e) throws Exception;
+    }
+
+    private static Throwable callAndCatch(Call call, Throwable e) {
+        try {
+            call.call(e);
+        } catch (Throwable t) {
+            return t;
+        }
+        fail("Expected an exception");
+        return null;
+    }
+
+    private static void assertPassesThrough(Call call, Throwable e) {
+        for (int i = 0; i < CALLS; ++i) {
+            assertSame(e, callAndCatch(call, e), "call " + i);
+        }
+    }
+
+    private static void assertWrapped(Call call, Throwable e) {
+        for (int i = 0; i < CALLS; ++i) {
+            Throwable thrown = callAndCatch(call, e);
+            assertEquals(ProxyException.class, thrown.getClass(), "call " + i);
+            assertSame(e, thrown.getCause(), "call " + i);
+        }
+    }
+
+    private static Call[] wrappingCalls() {
+        final WrappingProxy proxy = ProxyFactory.createProxy(WrappingProxy.class, new Thrower());
+        final WrappingProxy staticProxy = ProxyFactory.createStaticProxy(WrappingProxy.class);
+        return new Call[] {
+            new Call() {
+                @Override
+                public void call(Throwable e) throws Exception {
+                    proxy.raise(e);
+                }
+            },
+            new Call() {
+                @Override
+                public void call(Throwable e) throws Exception {
+                    staticProxy.raiseStatic(e);
+                }
+            },
+            new Call() {
+                @Override
+                public void call(Throwable e) throws Exception {
+                    staticProxy.create(e);
+                }
+            },
+        };
+    }
+
+    private static Call[] transparentCalls() {
+        final TransparentProxy proxy = ProxyFactory.createProxy(TransparentProxy.class, new Thrower());
+        final TransparentProxy staticProxy = ProxyFactory.createStaticProxy(TransparentProxy.class);
+        return new Call[] {
+            new Call() {
+                @Override
+                public void call(Throwable e) throws Exception {
+                    proxy.raise(e);
+                }
+            },
+            new Call() {
+                @Override
+                public void call(Throwable e) throws Exception {
+                    staticProxy.raiseStatic(e);
+                }
+            },
+            new Call() {
+                @Override
+                public void call(Throwable e) throws Exception {
+                    staticProxy.create(e);
+                }
+            },
+        };
+    }
+
+    @Test
+    public void everyExceptionIsWrappedByDefault() {
+        for (Call call : wrappingCalls()) {
+            assertWrapped(call, new IOException());
+            assertWrapped(call, new TimeoutException());
+            assertWrapped(call, new IllegalStateException());
+            assertWrapped(call, new AssertionError());
+        }
+    }
+
+    @Test
+    public void declaredCheckedExceptionsPassThrough() {
+        for (Call call : transparentCalls()) {
+            assertPassesThrough(call, new IOException());
+            assertPassesThrough(call, new FileNotFoundException());
+        }
+    }
+
+    @Test
+    public void undeclaredCheckedExceptionsAreWrapped() {
+        for (Call call : transparentCalls()) {
+            assertWrapped(call, new TimeoutException());
+            assertWrapped(call, new Exception());
+        }
+    }
+
+    @Test
+    public void uncheckedExceptionsPassThrough() {
+        for (Call call : transparentCalls()) {
+            assertPassesThrough(call, new IllegalStateException());
+            assertPassesThrough(call, new ProxyException("target"));
+            assertPassesThrough(call, new AssertionError());
+            assertPassesThrough(call, new StackOverflowError());
+        }
+    }
+
+    @Test
+    public void methodsCanOptOut() {
+        final TransparentProxy proxy = ProxyFactory.createProxy(TransparentProxy.class, new Thrower());
+        Call call = new Call() {
+            @Override
+            public void call(Throwable e) throws Exception {
+                proxy.raiseWrapped(e);
+            }
+        };
+        assertWrapped(call, new IOException());
+        assertWrapped(call, new IllegalStateException());
+    }
+}
@@ -0,0 +1,146 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that member lookups find inherited members, and that declared
+ * members shadow inherited ones, both in the index and through proxies.
+ */
+public class MemberIndexTest {
+    private interface Named {
+        String name();
+    }
+
+    private static class Base implements Named {
+        private int mHidden = 1;
+        protected int mShared = 2;
+        private int mShadowed = 3;
+
+        private Base() { }
+
+        private Base(int shared) {
+            mShared = shared;
+        }
+
+        private int value() {
+            return 10;
+        }
+
+        private int baseOnly() {
+            return mHidden;
+        }
+
+        private int overloaded(int a) {
+            return a;
+        }
+
+        @Override
+        public String name() {
+            return "base";
+        }
+    }
+
+    private static class Derived extends Base implements Callable<Derived> {
+        private int mShadowed = 30;
+
+        private Derived() { }
+
+        private int value() {
+            return 20;
+        }
+
+        private int overloaded(long a) {
+            return (int)a * 2;
+        }
+
+        @Override
+        public Derived call() {
+            return this;
+        }
+    }
+
+    @ProxyTarget(Derived.class)
+    private interface DerivedProxy extends ProxyBase {
+        int value();
+        int baseOnly();
+        int overloaded(int a);
+        int overloaded(long a);
+        String name();
+        DerivedProxy call();
+        @ProxyField int get_mHidden();
+        @ProxyField int get_mShared();
+        @ProxyField int get_mShadowed();
+    }
+
+    @Test
+    public void declaredMembersShadowInheritedMembers() throws Exception {
+        MemberIndex index = MemberIndex.get(Derived.class);
+        assertEquals(Derived.class.getDeclaredMethod("value"), index.findMethod("value", new Class<?>[0]));
+        assertEquals(Derived.class.getDeclaredField("mShadowed"), index.findField("mShadowed"));
+        assertEquals(Base.class.getDeclaredMethod("value"), MemberIndex.get(Base.class).findMethod("value", new Class<?>[0]));
+    }
+
+    @Test
+    public void inheritedMembersAreFound() throws Exception {
+        MemberIndex index = MemberIndex.get(Derived.class);
+        assertEquals(Base.class.getDeclaredMethod("baseOnly"), index.findMethod("baseOnly", new Class<?>[0]));
+        assertEquals(Base.class.getDeclaredField("mHidden"), index.findField("mHidden"));
+        assertEquals(Base.class.getDeclaredField("mShared"), index.findField("mShared"));
+        assertEquals(Base.class.getDeclaredMethod("overloaded", int.class), index.findMethod("overloaded", new Class<?>[] {int.class}));
+        assertEquals(Derived.class.getDeclaredMethod("overloaded", long.class), index.findMethod("overloaded", new Class<?>[] {long.class}));
+        assertEquals(Object.class.getDeclaredMethod("hashCode"), index.findMethod("hashCode", new Class<?>[0]));
+        assertNull(index.findMethod("value", new Class<?>[] {int.class}));
+        assertNull(index.findField("mMissing"));
+    }
+
+    @Test
+    public void interfaceMembersAreFound() throws Exception {
+        // Interfaces inherit the Object methods
+        MemberIndex index = MemberIndex.get(Named.class);
+        assertEquals(Named.class.getDeclaredMethod("name"), index.findMethod("name", new Class<?>[0]));
+        assertEquals(Object.class.getDeclaredMethod("toString"), index.findMethod("toString", new Class<?>[0]));
+    }
+
+    @Test
+    public void bridgeMethodsArePassedOver() {
+        MemberIndex index = MemberIndex.get(Derived.class);
+        assertEquals(Derived.class, index.findMethod("call", new Class<?>[0]).getReturnType());
+        assertFalse(index.findMethod("call", new Class<?>[0]).isBridge());
+    }
+
+    @Test
+    public void constructorsAreNotInherited() throws Exception {
+        assertNotNull(MemberIndex.get(Derived.class).findConstructor(new Class<?>[0]));
+        assertNull(MemberIndex.get(Derived.class).findConstructor(new Class<?>[] {int.class}));
+        assertEquals(Base.class.getDeclaredConstructor(int.class), MemberIndex.get(Base.class).findConstructor(new Class<?>[] {int.class}));
+    }
+
+    @Test
+    public void indexesAreCached() {
+        assertSame(MemberIndex.get(Derived.class), MemberIndex.get(Derived.class));
+    }
+
+    @Test
+    public void proxiesUseTheIndex() {
+        DerivedProxy proxy = ProxyFactory.createProxy(DerivedProxy.class, new Derived());
+        for (int i = 0; i < 20; ++i) {
+            assertEquals(20, proxy.value());
+            assertEquals(1, proxy.baseOnly());
+            assertEquals(5, proxy.overloaded(5));
+            assertEquals(10, proxy.overloaded(5L));
+            assertEquals("base", proxy.name());
+            assertSame(proxy, proxy.call());
+            assertEquals(1, proxy.get_mHidden());
+            assertEquals(2, proxy.get_mShared());
+            assertEquals(30, proxy.get_mShadowed());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.crossbowffs.reflectionproxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Class loader that defines the classes of a package itself (instead
+ * of delegating to its parent), like a plugin or web application loader.
+ * Classes can be hidden from it, to simulate missing dependencies.
+ */
+/* package */ final class PluginClassLoader extends ClassLoader {
+    private final String mPackagePrefix;
+    private final Set<String> mHiddenClassNames;
+
+    public PluginClassLoader(String packagePrefix, String... hiddenClassNames) {
+        super(PluginClassLoader.class.getClassLoader());
+        mPackagePrefix = packagePrefix;
+        mHiddenClassNames = new HashSet<String>(Arrays.asList(hiddenClassNames));
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (mHiddenClassNames.contains(name)) {
+            throw new ClassNotFoundException(name);
+        }
+        if (!name.startsWith(mPackagePrefix)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> cls = findLoadedClass(name);
+            if (cls == null) {
+                byte[] bytes = readClass(name);
+                cls = defineClass(name, bytes, 0, bytes.length);
+            }
+            if (resolve) {
+                resolveClass(cls);
+            }
+            return cls;
+        }
+    }
+
+    private byte[] readClass(String name) throws ClassNotFoundException {
+        InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class");
+        if (in == null) {
+            throw new ClassNotFoundException(name);
+        }
+        try {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int count;
+                while ((count = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, count);
+                }
+                return out.toByteArray();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+}
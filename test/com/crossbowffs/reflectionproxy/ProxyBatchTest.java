@@ -0,0 +1,203 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that batches return the same results as calling the proxy
+ * method on each target, both sequentially and in parallel.
+ */
+public class ProxyBatchTest {
+    // Large enough to be split across the pool
+    private static final int LARGE_BATCH = 10000;
+
+    private static class Item {
+        private final int mId;
+        private final long mSize;
+        private final double mWeight;
+        private Thread mLastThread;
+
+        private Item(int id) {
+            mId = id;
+            mSize = id * 10000000000L;
+            mWeight = id * 0.5;
+        }
+
+        private int scaled(int factor) {
+            mLastThread = Thread.currentThread();
+            if (factor < 0) {
+                throw new IllegalArgumentException("factor");
+            }
+            return mId * factor;
+        }
+    }
+
+    private static class OtherItem { }
+
+    @ProxyTarget(Item.class)
+    private interface ItemProxy extends ProxyBase {
+        @ProxyField int get_mId();
+        @ProxyField long get_mSize();
+        @ProxyField double get_mWeight();
+        int scaled(int factor);
+    }
+
+    private static Item[] createItems(int count) {
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; ++i) {
+            items[i] = new Item(i);
+        }
+        return items;
+    }
+
+    private static void checkResults(Item[] items, ProxyBatch ids, ProxyBatch sizes,
+                                     ProxyBatch weights, ProxyBatch scaled) {
+        int[] idResults = ids.invokeInt(items);
+        long[] sizeResults = sizes.invokeLong(items);
+        double[] weightResults = weights.invokeDouble(items);
+        int[] scaledResults = scaled.invokeInt(items, 3);
+        long[] widenedResults = ids.invokeLong(items);
+        Object[] boxedResults = ids.invoke(items);
+        assertEquals(items.length, idResults.length);
+        for (int i = 0; i < items.length; ++i) {
+            assertEquals(items[i].mId, idResults[i]);
+            assertEquals(items[i].mSize, sizeResults[i]);
+            assertEquals(items[i].mWeight, weightResults[i]);
+            assertEquals(items[i].mId * 3, scaledResults[i]);
+            assertEquals(items[i].mId, widenedResults[i]);
+            assertEquals(items[i].mId, boxedResults[i]);
+        }
+    }
+
+    private static void checkResults(Item[] items, boolean parallel) {
+        ProxyBatch ids = ProxyFactory.getBatch(ItemProxy.class, "get_mId");
+        ProxyBatch sizes = ProxyFactory.getBatch(ItemProxy.class, "get_mSize");
+        ProxyBatch weights = ProxyFactory.getBatch(ItemProxy.class, "get_mWeight");
+        ProxyBatch scaled = ProxyFactory.getBatch(ItemProxy.class, "scaled", int.class);
+        if (parallel) {
+            checkResults(items, ids.parallel(), sizes.parallel(), weights.parallel(), scaled.parallel());
+        } else {
+            checkResults(items, ids, sizes, weights, scaled);
+        }
+    }
+
+    @Test
+    public void sequentialResultsMatchTargets() {
+        checkResults(createItems(0), false);
+        checkResults(createItems(10), false);
+        checkResults(createItems(LARGE_BATCH), false);
+    }
+
+    @Test
+    public void parallelResultsMatchTargets() {
+        checkResults(createItems(0), true);
+        checkResults(createItems(10), true);
+        checkResults(createItems(LARGE_BATCH), true);
+    }
+
+    @Test
+    public void largeParallelBatchesUseThePool() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ProxyBatch scaled = ProxyFactory.getBatch(ItemProxy.class, "scaled", int.class);
+            Item[] items = createItems(LARGE_BATCH);
+            scaled.parallel(pool).invokeInt(items, 2);
+            for (Item item : items) {
+                Thread thread = item.mLastThread;
+                assertTrue(thread instanceof ForkJoinWorkerThread);
+                assertSame(pool, ((ForkJoinWorkerThread)thread).getPool());
+            }
+
+            // Small batches stay on the calling thread
+            Item[] smallItems = createItems(10);
+            scaled.parallel(pool).invokeInt(smallItems, 2);
+            for (Item item : smallItems) {
+                assertSame(Thread.currentThread(), item.mLastThread);
+            }
+            scaled.parallel(pool).sequential().invokeInt(items, 2);
+            for (Item item : items) {
+                assertSame(Thread.currentThread(), item.mLastThread);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void collectionsAreAccepted() {
+        List<Item> items = Arrays.asList(createItems(100));
+        ProxyBatch batch = ProxyFactory.getBatch(ItemProxy.class, "get_mId").parallel();
+        int[] ids = batch.invokeInt(items);
+        assertArrayEquals(ids, batch.sequential().invokeInt(items));
+        assertEquals(99, ids[99]);
+        assertEquals(99.0, batch.invokeDouble(items)[99]);
+        assertEquals(99L, batch.invokeLong(items)[99]);
+    }
+
+    @Test
+    public void invalidCallsAreRejected() {
+        final ProxyBatch scaled = ProxyFactory.getBatch(ItemProxy.class, "scaled", int.class);
+        final ProxyBatch weights = ProxyFactory.getBatch(ItemProxy.class, "get_mWeight");
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                scaled.invokeInt(new Object[] {new Item(1), null}, 1);
+            }
+        });
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                scaled.invokeInt(new Object[] {new Item(1), new OtherItem()}, 1);
+            }
+        });
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                scaled.invokeInt(createItems(1));
+            }
+        });
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                weights.invokeInt(createItems(1));
+            }
+        });
+    }
+
+    @Test
+    public void targetExceptionsAreRethrown() {
+        final Item[] items = createItems(LARGE_BATCH);
+        final ProxyBatch scaled = ProxyFactory.getBatch(ItemProxy.class, "scaled", int.class);
+        ProxyException e = assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                scaled.invokeInt(items, -1);
+            }
+        });
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        e = assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                scaled.parallel().invokeInt(items, -1);
+            }
+        });
+        // The fork-join pool may wrap the exception in a copy of itself
+        // that has the stack trace of the calling thread
+        Throwable cause = e.getCause();
+        while (cause instanceof ProxyException) {
+            cause = cause.getCause();
+        }
+        assertTrue(cause instanceof IllegalArgumentException);
+    }
+}
@@ -0,0 +1,137 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link ProxyFactory#bind(Class[])} reports every kind of
+ * binding error instead of throwing it.
+ */
+public class ProxyBinderTest {
+    private static final String BROKEN_PACKAGE = "com.crossbowffs.reflectionproxy.broken.";
+
+    private static class Target {
+        private int mValue;
+
+        private int add(int a, int b) {
+            return a + b + mValue;
+        }
+    }
+
+    @ProxyTarget(Target.class)
+    private interface TargetProxy extends ProxyBase {
+        int add(int a, int b);
+        @ProxyField int get_mValue();
+    }
+
+    @ProxyTarget(Target.class)
+    private interface BrokenTargetProxy extends ProxyBase {
+        int add(int a, int b);
+        int subtract(int a, int b);
+        @ProxyField String get_mValue();
+    }
+
+    @ProxyTargetName("com.crossbowffs.reflectionproxy.DoesNotExist")
+    private interface MissingTargetProxy extends ProxyBase {
+        int add(int a, int b);
+    }
+
+    private interface NotAProxy {
+        int add(int a, int b);
+    }
+
+    /**
+     * Gets the number of proxy methods of an interface, including
+     * the {@link Object} methods that every proxy implements.
+     */
+    private static int getMethodCount(Class<?> proxyClass) {
+        return ProxyClassInfo.get(proxyClass).getDispatchTable().getSlotCount();
+    }
+
+    private static List<String> getFailedMethodNames(ProxyBindingReport report) {
+        List<String> names = new ArrayList<String>();
+        for (ProxyBindingReport.Failure failure : report.getFailures()) {
+            names.add(failure.getProxyMethod() != null ? failure.getProxyMethod().getName() : null);
+        }
+        return names;
+    }
+
+    @Test
+    public void validBindings() {
+        ProxyBindingReport report = ProxyFactory.bind(TargetProxy.class);
+        assertTrue(report.isSuccessful());
+        assertEquals(1, report.getInterfaceCount());
+        assertEquals(getMethodCount(TargetProxy.class), report.getBindingCount());
+
+        Target target = new Target();
+        target.mValue = 3;
+        TargetProxy proxy = ProxyFactory.createProxy(TargetProxy.class, target);
+        assertEquals(6, proxy.add(1, 2));
+        assertEquals(3, proxy.get_mValue());
+    }
+
+    @Test
+    public void brokenBindingsAreReported() {
+        ProxyBindingReport report = ProxyFactory.bind(BrokenTargetProxy.class);
+        assertFalse(report.isSuccessful());
+        assertEquals(getMethodCount(BrokenTargetProxy.class) - 2, report.getBindingCount());
+        List<String> names = getFailedMethodNames(report);
+        assertEquals(2, names.size());
+        assertTrue(names.contains("subtract"));
+        assertTrue(names.contains("get_mValue"));
+        for (ProxyBindingReport.Failure failure : report.getFailures()) {
+            assertTrue(failure.getException() instanceof ProxyException);
+        }
+
+        // The valid method of a broken interface still works
+        BrokenTargetProxy proxy = ProxyFactory.createProxy(BrokenTargetProxy.class, new Target());
+        assertEquals(3, proxy.add(1, 2));
+    }
+
+    @Test
+    public void invalidInterfacesAreReported() {
+        ProxyBindingReport report = ProxyFactory.bind(MissingTargetProxy.class, NotAProxy.class, TargetProxy.class);
+        assertEquals(3, report.getInterfaceCount());
+        assertEquals(getMethodCount(TargetProxy.class), report.getBindingCount());
+        assertEquals(2, report.getFailures().size());
+        for (ProxyBindingReport.Failure failure : report.getFailures()) {
+            assertNull(failure.getProxyMethod());
+            assertTrue(failure.getException() instanceof ProxyException);
+        }
+    }
+
+    @Test
+    public void missingDependencyIsReported() throws Exception {
+        ClassLoader classLoader = new PluginClassLoader(BROKEN_PACKAGE, BROKEN_PACKAGE + "Missing");
+        Class<?> proxyClass = classLoader.loadClass(BROKEN_PACKAGE + "DependentProxy");
+        ProxyBindingReport report = ProxyFactory.bind(proxyClass);
+        assertFalse(report.isSuccessful());
+        assertTrue(getFailedMethodNames(report).contains("get_mValue"));
+        for (ProxyBindingReport.Failure failure : report.getFailures()) {
+            assertEquals(proxyClass, failure.getProxyClass());
+            assertTrue(failure.getException() instanceof ProxyException);
+            assertTrue(failure.getException().getCause() instanceof NoClassDefFoundError);
+        }
+    }
+
+    @Test
+    public void manyInterfacesAreBoundInParallel() {
+        List<Class<?>> proxyClasses = new ArrayList<Class<?>>();
+        for (int i = 0; i < 10; ++i) {
+            proxyClasses.add(TargetProxy.class);
+            proxyClasses.add(BrokenTargetProxy.class);
+        }
+        ProxyBindingReport report = ProxyFactory.bind(proxyClasses);
+        assertEquals(20, report.getInterfaceCount());
+        int bindingCount = getMethodCount(TargetProxy.class) + getMethodCount(BrokenTargetProxy.class) - 2;
+        assertEquals(10 * bindingCount, report.getBindingCount());
+        assertEquals(20, report.getFailures().size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.crossbowffs.reflectionproxy;
+
+import com.crossbowffs.reflectionproxy.processor.ProxyProcessor;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles Java sources with {@link ProxyProcessor} at test time, so that
+ * the generated {@code $$Proxy} classes can be loaded and used.
+ */
+/* package */ final class ProxyCompiler {
+    private final Map<String, String> mSources = new LinkedHashMap<String, String>();
+    private final List<Diagnostic<? extends JavaFileObject>> mErrors = new ArrayList<Diagnostic<? extends JavaFileObject>>();
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String mSource;
+
+        public SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            mSource = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return mSource;
+        }
+    }
+
+    /**
+     * Adds a compilation unit declaring the specified top-level class.
+     */
+    public ProxyCompiler addSource(String className, String... lines) {
+        StringBuilder source = new StringBuilder();
+        for (String line : lines) {
+            source.append(line).append('\n');
+        }
+        mSources.put(className, source.toString());
+        return this;
+    }
+
+    /**
+     * Compiles all sources into a new temporary directory, and returns it.
+     * Returns null if the sources do not compile, in which case the errors
+     * are available from {@link #getErrors()}.
+     */
+    public File compile() throws IOException {
+        File outputDir = Files.createTempDirectory("proxy-compiler").toFile();
+        outputDir.deleteOnExit();
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            List<JavaFileObject> files = new ArrayList<JavaFileObject>();
+            for (Map.Entry<String, String> entry : mSources.entrySet()) {
+                files.add(new SourceFile(entry.getKey(), entry.getValue()));
+            }
+            List<String> options = Arrays.asList(
+                "-classpath", getLibraryPath().getPath(),
+                "-d", outputDir.getPath());
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, files);
+            task.setProcessors(Collections.singletonList(new ProxyProcessor()));
+            boolean success = task.call();
+            mErrors.clear();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    mErrors.add(diagnostic);
+                }
+            }
+            return success ? outputDir : null;
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    /**
+     * Gets the errors reported by the last call to {@link #compile()}.
+     */
+    public List<Diagnostic<? extends JavaFileObject>> getErrors() {
+        return mErrors;
+    }
+
+    private static File getLibraryPath() {
+        try {
+            return new File(ProxyBase.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that handles returned by {@link ProxyFactory#getHandle} have
+ * the documented type, and behave like the proxy methods they are for.
+ */
+public class ProxyHandleTest {
+    private static class Node {
+        private static int sCount;
+
+        private int mValue;
+        private Node mNext;
+
+        private Node(int value) {
+            mValue = value;
+        }
+
+        private int add(int a) {
+            return mValue + a;
+        }
+
+        private Node next() {
+            return mNext;
+        }
+
+        private void link(Node next) {
+            mNext = next;
+        }
+
+        private void fail() throws Exception {
+            throw new Exception("failed");
+        }
+
+        private static int count() {
+            return ++sCount;
+        }
+    }
+
+    @ProxyTarget(Node.class)
+    private interface NodeProxy extends ProxyBase {
+        int add(int a);
+        NodeProxy next();
+        void link(NodeProxy next);
+        void fail();
+        int subtract(int a);
+        @ProxyStatic int count();
+        @ProxyConstructor NodeProxy create(int value);
+        @ProxyField long get_mValue();
+        @ProxyField void set_mValue(int value);
+    }
+
+    @Test
+    public void methodHandles() throws Throwable {
+        MethodHandle add = ProxyFactory.getHandle(NodeProxy.class, "add", int.class);
+        assertEquals(MethodType.methodType(int.class, Object.class, int.class), add.type());
+        Node node = new Node(3);
+        assertEquals(5, (int)add.invokeExact((Object)node, 2));
+        // Also after the dispatcher of the proxy method switches to a method handle
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(proxy.add(i), (int)add.invokeExact((Object)node, i));
+        }
+    }
+
+    @Test
+    public void proxyTypesAreCoerced() throws Throwable {
+        MethodHandle link = ProxyFactory.getHandle(NodeProxy.class, "link", NodeProxy.class);
+        MethodHandle next = ProxyFactory.getHandle(NodeProxy.class, "next");
+        assertEquals(MethodType.methodType(void.class, Object.class, NodeProxy.class), link.type());
+        assertEquals(MethodType.methodType(NodeProxy.class, Object.class), next.type());
+
+        Node node = new Node(1);
+        Node other = new Node(2);
+        link.invokeExact((Object)node, ProxyFactory.createProxy(NodeProxy.class, other));
+        assertSame(other, node.mNext);
+        NodeProxy nextProxy = (NodeProxy)next.invokeExact((Object)node);
+        assertSame(other, ProxyFactory.getProxyTarget(nextProxy));
+        assertNull((NodeProxy)next.invokeExact((Object)other));
+    }
+
+    @Test
+    public void fieldHandles() throws Throwable {
+        MethodHandle getter = ProxyFactory.getHandle(NodeProxy.class, "get_mValue");
+        MethodHandle setter = ProxyFactory.getHandle(NodeProxy.class, "set_mValue", int.class);
+        assertEquals(MethodType.methodType(long.class, Object.class), getter.type());
+        Node node = new Node(1);
+        setter.invokeExact((Object)node, 42);
+        assertEquals(42, node.mValue);
+        assertEquals(42L, (long)getter.invokeExact((Object)node));
+    }
+
+    @Test
+    public void staticHandlesIgnoreTarget() throws Throwable {
+        MethodHandle count = ProxyFactory.getHandle(NodeProxy.class, "count");
+        int first = (int)count.invokeExact((Object)null);
+        assertEquals(first + 1, (int)count.invokeExact((Object)new Node(0)));
+
+        MethodHandle create = ProxyFactory.getHandle(NodeProxy.class, "create", int.class);
+        NodeProxy proxy = (NodeProxy)create.invokeExact((Object)null, 7);
+        assertEquals(7, ((Node)ProxyFactory.getProxyTarget(proxy)).mValue);
+    }
+
+    @Test
+    public void targetExceptionsAreWrapped() {
+        final MethodHandle fail = ProxyFactory.getHandle(NodeProxy.class, "fail");
+        ProxyException e = assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() throws Throwable {
+                fail.invokeExact((Object)new Node(0));
+            }
+        });
+        assertEquals("failed", e.getCause().getMessage());
+    }
+
+    @Test
+    public void bindingErrorsAreThrownImmediately() {
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                ProxyFactory.getHandle(NodeProxy.class, "subtract", int.class);
+            }
+        });
+        ProxyException e = assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                ProxyFactory.getHandle(NodeProxy.class, "multiply", int.class);
+            }
+        });
+        assertTrue(e.getMessage().contains("multiply"));
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                ProxyFactory.getHandle(NodeProxy.class, "add", long.class);
+            }
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that interceptors see the converted arguments of every kind
+ * of binding, and that arguments are only converted once.
+ */
+public class ProxyInterceptorTest {
+    private static class Target {
+        private int mValue;
+        private Target mNext;
+
+        private Target(int value) {
+            mValue = value;
+        }
+
+        private int add(Target other) {
+            return mValue + other.mValue;
+        }
+    }
+
+    public static class Snapshot {
+        public int mValue;
+    }
+
+    @ProxyTarget(Target.class)
+    private interface TargetProxy extends ProxyBase {
+        int add(TargetProxy other);
+        @ProxyMethod("add") CompletableFuture<Integer> addAsync(TargetProxy other);
+        @ProxyPath("mNext.mValue") int getNextValue();
+        @ProxySnapshot Snapshot snapshot(Snapshot into);
+    }
+
+    /**
+     * Records the arguments of every call, as seen by the interceptor.
+     */
+    private static final class RecordingInterceptor implements ProxyInterceptor {
+        private final List<Object[]> mArguments = new ArrayList<Object[]>();
+
+        @Override
+        public synchronized Object intercept(ProxyInvocation invocation) {
+            mArguments.add(invocation.getArguments().clone());
+            return invocation.proceed();
+        }
+
+        private synchronized Object[] getArguments(int index) {
+            return mArguments.get(index);
+        }
+    }
+
+    /**
+     * Registers the interceptor (for all methods if the name is null),
+     * and creates a proxy whose methods are bound with it.
+     */
+    private static TargetProxy createProxy(RecordingInterceptor interceptor, String methodName, Target target) {
+        if (methodName == null) {
+            ProxyFactory.addInterceptor(TargetProxy.class, interceptor);
+        } else {
+            ProxyFactory.addInterceptor(TargetProxy.class, methodName, interceptor);
+        }
+        return ProxyFactory.createProxy(TargetProxy.class, target);
+    }
+
+    @Test
+    public void methodArgumentsAreConverted() {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        Target other = new Target(2);
+        TargetProxy proxy = createProxy(interceptor, "add", new Target(1));
+        try {
+            assertEquals(3, proxy.add(ProxyFactory.createProxy(TargetProxy.class, other)));
+            assertSame(other, interceptor.getArguments(0)[0]);
+        } finally {
+            ProxyFactory.removeInterceptor(TargetProxy.class, interceptor);
+        }
+    }
+
+    @Test
+    public void asyncArgumentsAreConvertedOnce() throws Exception {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        Target other = new Target(2);
+        TargetProxy proxy = createProxy(interceptor, "addAsync", new Target(1));
+        try {
+            CompletableFuture<Integer> future = proxy.addAsync(ProxyFactory.createProxy(TargetProxy.class, other));
+            assertEquals(3, (int)future.get(1, TimeUnit.MINUTES));
+            assertSame(other, interceptor.getArguments(0)[0]);
+        } finally {
+            ProxyFactory.removeInterceptor(TargetProxy.class, interceptor);
+        }
+    }
+
+    @Test
+    public void pathAndSnapshotArgumentsArePassedThrough() {
+        RecordingInterceptor interceptor = new RecordingInterceptor();
+        Target target = new Target(1);
+        target.mNext = new Target(5);
+        TargetProxy proxy = createProxy(interceptor, null, target);
+        try {
+            assertEquals(5, proxy.getNextValue());
+            assertEquals(0, interceptor.getArguments(0).length);
+
+            Snapshot snapshot = new Snapshot();
+            assertSame(snapshot, proxy.snapshot(snapshot));
+            assertEquals(1, snapshot.mValue);
+            assertSame(snapshot, interceptor.getArguments(1)[0]);
+        } finally {
+            ProxyFactory.removeInterceptor(TargetProxy.class, interceptor);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that interned proxies keep their identity, and that the
+ * intern table releases both targets and proxies.
+ */
+public class ProxyInternTableTest {
+    private static final int GC_ATTEMPTS = 50;
+
+    private static class Node {
+        private final String mName;
+        private Node mNext;
+
+        private Node(String name) {
+            mName = name;
+        }
+
+        @Override
+        public String toString() {
+            return mName;
+        }
+    }
+
+    @ProxyInterned
+    @ProxyTarget(Node.class)
+    private interface NodeProxy extends ProxyBase {
+        @ProxyField NodeProxy get_mNext();
+    }
+
+    @ProxyTarget(Node.class)
+    private interface PlainNodeProxy extends ProxyBase {
+        @ProxyField PlainNodeProxy get_mNext();
+    }
+
+    private static boolean isCollected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < GC_ATTEMPTS && ref.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return ref.get() == null;
+    }
+
+    @Test
+    public void internedProxiesAreIdentical() {
+        Node node = new Node("a");
+        node.mNext = new Node("b");
+        node.mNext.mNext = node;
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        assertSame(proxy, ProxyFactory.createProxy(NodeProxy.class, node));
+        assertSame(proxy, proxy.get_mNext().get_mNext());
+        assertSame(proxy.get_mNext(), proxy.get_mNext());
+        assertNotSame(proxy, proxy.get_mNext());
+        assertNotSame(proxy, ProxyFactory.createProxy(NodeProxy.class, new Node("a")));
+    }
+
+    @Test
+    public void plainProxiesAreNotInterned() {
+        Node node = new Node("a");
+        node.mNext = new Node("b");
+        PlainNodeProxy proxy = ProxyFactory.createProxy(PlainNodeProxy.class, node);
+        assertNotSame(proxy, ProxyFactory.createProxy(PlainNodeProxy.class, node));
+        assertNotSame(proxy.get_mNext(), proxy.get_mNext());
+    }
+
+    @Test
+    public void objectMethodsAreRoutedToTarget() {
+        Node node = new Node("a");
+        NodeProxy proxy = ProxyFactory.createProxy(NodeProxy.class, node);
+        assertEquals(node.hashCode(), proxy.hashCode());
+        assertEquals("a", proxy.toString());
+        assertTrue(proxy.equals(ProxyFactory.createProxy(PlainNodeProxy.class, node)));
+    }
+
+    private static WeakReference<Object> internUnreachableTarget(ProxyInternTable table) {
+        Object target = new Object();
+        ProxyBase proxy = ProxyFactory.createProxy(PlainNodeProxy.class, new Node("a"));
+        assertSame(proxy, table.intern(target, proxy));
+        assertSame(proxy, table.get(target));
+        return new WeakReference<Object>(target);
+    }
+
+    @Test
+    public void targetsAreReleased() throws Exception {
+        ProxyInternTable table = new ProxyInternTable();
+        WeakReference<Object> ref = internUnreachableTarget(table);
+        assertTrue(isCollected(ref), "Interned target was not collected");
+    }
+
+    private static WeakReference<ProxyBase> internUnreachableProxy(ProxyInternTable table, Object target) {
+        ProxyBase proxy = ProxyFactory.createProxy(PlainNodeProxy.class, new Node("a"));
+        assertSame(proxy, table.intern(target, proxy));
+        return new WeakReference<ProxyBase>(proxy);
+    }
+
+    @Test
+    public void proxiesAreReleased() throws Exception {
+        ProxyInternTable table = new ProxyInternTable();
+        Object target = new Object();
+        WeakReference<ProxyBase> ref = internUnreachableProxy(table, target);
+        assertTrue(isCollected(ref), "Interned proxy was not collected");
+        assertNull(table.get(target));
+
+        // A new proxy replaces the collected one
+        ProxyBase proxy = ProxyFactory.createProxy(PlainNodeProxy.class, new Node("b"));
+        assertSame(proxy, table.intern(target, proxy));
+        assertSame(proxy, table.get(target));
+    }
+}
@@ -0,0 +1,172 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that instrumented proxy methods are counted, and that the
+ * counts of released bindings are retired rather than lost.
+ */
+public class ProxyMetricsTest {
+    private static final int GC_ATTEMPTS = 50;
+
+    private static class Counter {
+        private int mValue;
+
+        private int increment() {
+            return ++mValue;
+        }
+
+        private void fail() {
+            throw new IllegalStateException();
+        }
+    }
+
+    @ProxyTarget(Counter.class)
+    private interface CounterProxy extends ProxyBase {
+        int increment();
+        void fail();
+    }
+
+    @ProxyTarget(Counter.class)
+    private interface RetiredCounterProxy extends ProxyBase {
+        int increment();
+    }
+
+    @BeforeEach
+    public void enableMetrics() {
+        ProxyMetrics.setEnabled(true);
+        ProxyMetrics.reset();
+    }
+
+    @AfterEach
+    public void disableMetrics() {
+        ProxyMetrics.setEnabled(false);
+        ProxyFactory.evict(CounterProxy.class.getClassLoader());
+    }
+
+    private static ProxyMetricsSnapshot findSnapshot(String methodName) {
+        for (ProxyMetricsSnapshot snapshot : ProxyMetrics.getSnapshot()) {
+            if (snapshot.getProxyClass() == CounterProxy.class && snapshot.getProxyMethod().getName().equals(methodName)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    private static void callCounter(int calls, int failures) {
+        CounterProxy proxy = ProxyFactory.createProxy(CounterProxy.class, new Counter());
+        for (int i = 0; i < calls; ++i) {
+            proxy.increment();
+        }
+        for (int i = 0; i < failures; ++i) {
+            try {
+                proxy.fail();
+                fail("Expected an exception");
+            } catch (ProxyException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void callsAreCounted() {
+        callCounter(20, 3);
+        ProxyMetricsSnapshot increment = findSnapshot("increment");
+        assertEquals(20, increment.getCallCount());
+        assertEquals(0, increment.getErrorCount());
+        long histogramCount = 0;
+        for (long count : increment.getLatencyHistogram()) {
+            histogramCount += count;
+        }
+        assertEquals(20, histogramCount);
+        assertTrue(increment.getLatencyPercentile(50) <= increment.getLatencyPercentile(99));
+
+        ProxyMetricsSnapshot fail = findSnapshot("fail");
+        assertEquals(3, fail.getCallCount());
+        assertEquals(3, fail.getErrorCount());
+
+        ProxyMetrics.reset();
+        assertEquals(0, findSnapshot("increment").getCallCount());
+        assertEquals(0, findSnapshot("fail").getErrorCount());
+    }
+
+    @Test
+    public void rebindingsAreCombined() {
+        callCounter(5, 0);
+        ProxyFactory.evict(CounterProxy.class.getClassLoader());
+        callCounter(7, 0);
+        assertEquals(12, findSnapshot("increment").getCallCount());
+    }
+
+    @Test
+    public void disabledMetricsAreNotCounted() {
+        // Bindings of earlier tests may not have been collected yet,
+        // but their counters have been reset
+        ProxyMetrics.setEnabled(false);
+        callCounter(5, 0);
+        ProxyMetricsSnapshot increment = findSnapshot("increment");
+        assertTrue(increment == null || increment.getCallCount() == 0);
+    }
+
+    private static void callRetiredCounter(int calls) {
+        RetiredCounterProxy proxy = ProxyFactory.createProxy(RetiredCounterProxy.class, new Counter());
+        for (int i = 0; i < calls; ++i) {
+            proxy.increment();
+        }
+    }
+
+    @Test
+    public void releasedBindingsAreRetired() throws Exception {
+        callRetiredCounter(9);
+        ProxyFactory.evict(RetiredCounterProxy.class.getClassLoader());
+        for (int i = 0; i < GC_ATTEMPTS && ProxyMetrics.getRetiredSnapshot().getCallCount() < 9; ++i) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        ProxyMetricsSnapshot retired = ProxyMetrics.getRetiredSnapshot();
+        assertNull(retired.getProxyMethod());
+        assertEquals(9, retired.getCallCount());
+        for (ProxyMetricsSnapshot snapshot : ProxyMetrics.getSnapshot()) {
+            assertTrue(snapshot.getProxyClass() != RetiredCounterProxy.class || snapshot.getCallCount() == 0);
+        }
+
+        ProxyMetrics.reset();
+        assertEquals(0, ProxyMetrics.getRetiredSnapshot().getCallCount());
+    }
+
+    @Test
+    public void mbeanTotalsIncludeRetiredBindings() throws Exception {
+        ProxyMetrics.registerMBean();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(ProxyMetrics.OBJECT_NAME);
+            callRetiredCounter(4);
+            callCounter(6, 2);
+            assertEquals(12L, server.getAttribute(name, "CallCount"));
+            assertEquals(2L, server.getAttribute(name, "ErrorCount"));
+
+            // Both interfaces are in the same class loader
+            ProxyFactory.evict(RetiredCounterProxy.class.getClassLoader());
+            for (int i = 0; i < GC_ATTEMPTS && ProxyMetrics.getRetiredSnapshot().getCallCount() < 12; ++i) {
+                System.gc();
+                Thread.sleep(20);
+            }
+            assertEquals(12, ProxyMetrics.getRetiredSnapshot().getCallCount());
+            assertEquals(12L, server.getAttribute(name, "CallCount"));
+            assertEquals(2L, server.getAttribute(name, "ErrorCount"));
+        } finally {
+            ProxyMetrics.unregisterMBean();
+        }
+    }
+}
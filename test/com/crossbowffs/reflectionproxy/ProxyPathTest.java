@@ -0,0 +1,187 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that path accessors follow their path, and handle null values
+ * according to their null policy, on both the reflective path and the
+ * method handle path.
+ */
+public class ProxyPathTest {
+    // Enough calls to make the dispatchers switch to method handles
+    private static final int CALLS = 40;
+
+    private static class Owner {
+        private int mId;
+        private String mName;
+
+        private Owner(int id, String name) {
+            mId = id;
+            mName = name;
+        }
+    }
+
+    private static class Data {
+        private Owner mOwner;
+
+        private Owner getOwner() {
+            return mOwner;
+        }
+    }
+
+    private static class Widget {
+        private Data mData;
+    }
+
+    @ProxyTarget(Owner.class)
+    private interface OwnerProxy extends ProxyBase {
+        @ProxyField int get_mId();
+    }
+
+    @ProxyTarget(Widget.class)
+    private interface WidgetProxy extends ProxyBase {
+        @ProxyPath("mData.getOwner().mId")
+        int getOwnerId();
+
+        @ProxyPath("mData.mOwner.mName")
+        String getOwnerName();
+
+        @ProxyPath(value = "mData.getOwner().mId", nullPolicy = ProxyPath.NullPolicy.RETURN_DEFAULT)
+        int getOwnerIdOrZero();
+
+        @ProxyPath(value = "mData.mOwner.mId", nullPolicy = ProxyPath.NullPolicy.RETURN_DEFAULT)
+        long getOwnerIdOrZeroLong();
+
+        @ProxyPath(value = "mData.mOwner.mName", nullPolicy = ProxyPath.NullPolicy.RETURN_DEFAULT)
+        String getOwnerNameOrNull();
+
+        @ProxyPath("mData.mOwner")
+        OwnerProxy getOwner();
+    }
+
+    @ProxyTarget(Widget.class)
+    private interface BrokenWidgetProxy extends ProxyBase {
+        @ProxyPath("mData.mMissing")
+        int getMissing();
+
+        @ProxyPath("mData.mOwner.mId.mValue")
+        int getPrimitiveSegment();
+
+        @ProxyPath("mData.mOwner.mName")
+        int getWrongType();
+    }
+
+    private static Widget createWidget(Owner owner) {
+        Widget widget = new Widget();
+        widget.mData = new Data();
+        widget.mData.mOwner = owner;
+        return widget;
+    }
+
+    @Test
+    public void pathsAreFollowed() {
+        Owner owner = new Owner(42, "owner");
+        WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, createWidget(owner));
+        for (int i = 0; i < CALLS; ++i) {
+            owner.mId = i;
+            assertEquals(i, proxy.getOwnerId());
+            assertEquals(i, proxy.getOwnerIdOrZero());
+            assertEquals(i, proxy.getOwnerIdOrZeroLong());
+            assertEquals("owner", proxy.getOwnerName());
+            assertEquals("owner", proxy.getOwnerNameOrNull());
+            assertSame(owner, ProxyFactory.getProxyTarget(proxy.getOwner()));
+            assertEquals(i, proxy.getOwner().get_mId());
+        }
+    }
+
+    private static void assertThrowsNull(final String segment, final Executable executable) {
+        for (int i = 0; i < CALLS; ++i) {
+            ProxyException e = assertThrows(ProxyException.class, executable);
+            assertTrue(e.getMessage().contains(segment), e.getMessage());
+        }
+    }
+
+    @Test
+    public void throwPolicyThrowsOnNull() {
+        Widget widget = createWidget(null);
+        final WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, widget);
+        assertThrowsNull("getOwner()", new Executable() {
+            @Override
+            public void execute() {
+                proxy.getOwnerId();
+            }
+        });
+        assertThrowsNull("mOwner", new Executable() {
+            @Override
+            public void execute() {
+                proxy.getOwnerName();
+            }
+        });
+
+        widget.mData = null;
+        assertThrowsNull("mData", new Executable() {
+            @Override
+            public void execute() {
+                proxy.getOwnerId();
+            }
+        });
+
+        // A null final value is not a null intermediate value
+        widget.mData = new Data();
+        widget.mData.mOwner = new Owner(1, null);
+        for (int i = 0; i < CALLS; ++i) {
+            assertNull(proxy.getOwnerName());
+        }
+    }
+
+    @Test
+    public void returnDefaultPolicyReturnsDefaultOnNull() {
+        Widget widget = createWidget(null);
+        WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, widget);
+        for (int i = 0; i < CALLS; ++i) {
+            assertEquals(0, proxy.getOwnerIdOrZero());
+            assertEquals(0L, proxy.getOwnerIdOrZeroLong());
+            assertNull(proxy.getOwnerNameOrNull());
+            assertNull(proxy.getOwner());
+        }
+
+        widget.mData = null;
+        for (int i = 0; i < CALLS; ++i) {
+            assertEquals(0, proxy.getOwnerIdOrZero());
+            assertEquals(0L, proxy.getOwnerIdOrZeroLong());
+            assertNull(proxy.getOwnerNameOrNull());
+        }
+    }
+
+    @Test
+    public void staticProxiesCannotFollowPaths() {
+        final WidgetProxy proxy = ProxyFactory.createStaticProxy(WidgetProxy.class);
+        for (int i = 0; i < CALLS; ++i) {
+            // Even with the default value policy, since there is no target at all
+            assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.getOwnerIdOrZero();
+                }
+            });
+        }
+    }
+
+    @Test
+    public void invalidPathsAreBindingErrors() {
+        ProxyBindingReport report = ProxyFactory.bind(BrokenWidgetProxy.class);
+        assertFalse(report.isSuccessful());
+        assertEquals(3, report.getFailures().size());
+        for (ProxyBindingReport.Failure failure : report.getFailures()) {
+            assertTrue(failure.getException() instanceof ProxyException);
+        }
+    }
+}
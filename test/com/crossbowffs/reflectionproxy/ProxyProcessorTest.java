@@ -0,0 +1,204 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Compiles proxy interfaces with the annotation processor, and checks
+ * that the generated classes are used, and behave like other proxies.
+ */
+public class ProxyProcessorTest {
+    private static final String[] WIDGET_SOURCE = {
+        "package gen;",
+        "public class Widget {",
+        "    private int mValue;",
+        "    private Widget(int value) { mValue = value; }",
+        "    private int add(int a) { return mValue + a; }",
+        "    private long scale(int factor) { return (long)mValue * factor; }",
+        "    private Widget self() { return this; }",
+        "    private void fail() throws java.io.IOException { throw new java.io.IOException(\"failed\"); }",
+        "    private static String name() { return \"widget\"; }",
+        "}",
+    };
+
+    private static final String[] WIDGET_PROXY_SOURCE = {
+        "package gen;",
+        "import com.crossbowffs.reflectionproxy.*;",
+        "@ProxyTarget(Widget.class)",
+        "public interface WidgetProxy extends ProxyBase {",
+        "    int add(int a);",
+        "    long scale(int factor);",
+        "    WidgetProxy self();",
+        "    @ProxyTransparentExceptions void fail() throws java.io.IOException;",
+        "    @ProxyStatic String name();",
+        "    @ProxyConstructor WidgetProxy create(int value);",
+        "    @ProxyField int get_mValue();",
+        "    @ProxyField void set_mValue(int value);",
+        "}",
+    };
+
+    private static Object call(Object proxy, String methodName, Class<?>[] parameterTypes, Object... args) throws Throwable {
+        Method method = proxy.getClass().getInterfaces()[0].getMethod(methodName, parameterTypes);
+        try {
+            return method.invoke(proxy, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Object call(Object proxy, String methodName) throws Throwable {
+        return call(proxy, methodName, new Class<?>[0]);
+    }
+
+    private static Object call(Object proxy, String methodName, int arg) throws Throwable {
+        return call(proxy, methodName, new Class<?>[] {int.class}, arg);
+    }
+
+    @Test
+    public void generatedClassIsUsed() throws Throwable {
+        ProxyCompiler compiler = new ProxyCompiler()
+            .addSource("gen.Widget", WIDGET_SOURCE)
+            .addSource("gen.WidgetProxy", WIDGET_PROXY_SOURCE);
+        File outputDir = compiler.compile();
+        assertNotNull(outputDir, String.valueOf(compiler.getErrors()));
+        assertTrue(new File(outputDir, "gen/WidgetProxy$$Proxy.class").isFile());
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {outputDir.toURI().toURL()}, getClass().getClassLoader());
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends ProxyBase> proxyClass = (Class<? extends ProxyBase>)classLoader.loadClass("gen.WidgetProxy");
+            ProxyBase staticProxy = ProxyFactory.createStaticProxy(proxyClass);
+            assertEquals("gen.WidgetProxy$$Proxy", staticProxy.getClass().getName());
+            assertEquals("widget", call(staticProxy, "name"));
+
+            ProxyBase proxy = (ProxyBase)call(staticProxy, "create", 3);
+            assertEquals("gen.WidgetProxy$$Proxy", proxy.getClass().getName());
+            assertEquals(classLoader.loadClass("gen.Widget"), ProxyFactory.getProxyTarget(proxy).getClass());
+
+            // Enough calls to also go through the method handle path
+            for (int i = 0; i < 50; ++i) {
+                call(proxy, "set_mValue", new Class<?>[] {int.class}, i);
+                assertEquals(i, call(proxy, "get_mValue"));
+                assertEquals(i + 2, call(proxy, "add", 2));
+                assertEquals(i * 1000L, call(proxy, "scale", 1000));
+                assertSame(proxy, call(proxy, "self"));
+            }
+
+            try {
+                call(proxy, "fail");
+                fail("Expected an exception");
+            } catch (java.io.IOException e) {
+                assertEquals("failed", e.getMessage());
+            }
+
+            Object target = ProxyFactory.getProxyTarget(proxy);
+            assertEquals(target.hashCode(), proxy.hashCode());
+            assertTrue(proxy.equals(ProxyFactory.createProxy(proxyClass, target)));
+            assertNull(ProxyFactory.getProxyTarget(staticProxy));
+        } finally {
+            ProxyFactory.evict(classLoader);
+            classLoader.close();
+        }
+    }
+
+    @Test
+    public void invalidMethodsAreCompileErrors() throws Exception {
+        ProxyCompiler compiler = new ProxyCompiler()
+            .addSource("gen.Widget", WIDGET_SOURCE)
+            .addSource("gen.BrokenWidgetProxy",
+                "package gen;",
+                "import com.crossbowffs.reflectionproxy.*;",
+                "@ProxyTarget(Widget.class)",
+                "public interface BrokenWidgetProxy extends ProxyBase {",
+                "    int add(int a);",
+                "    int subtract(int a);",
+                "    @ProxyField String get_mValue();",
+                "}");
+        assertNull(compiler.compile());
+        assertEquals(2, compiler.getErrors().size());
+        for (int i = 0; i < 2; ++i) {
+            assertFalse(compiler.getErrors().get(i).getMessage(null).isEmpty());
+        }
+    }
+
+    @Test
+    public void viewElementTypesAreChecked() throws Exception {
+        String[] librarySource = {
+            "package gen;",
+            "import java.util.*;",
+            "public class Library {",
+            "    private List<Widget> mWidgets;",
+            "    private List<String> mNames;",
+            "    @SuppressWarnings(\"rawtypes\") private List mRaw;",
+            "    private Map<String, Widget> mByName;",
+            "    private Map<String, String> mNamesByName;",
+            "    private ArrayList<Widget> mArrayList;",
+            "    private int count(List<Widget> widgets) { return widgets.size(); }",
+            "    private int countNames(List<String> names) { return names.size(); }",
+            "}",
+        };
+        ProxyCompiler valid = new ProxyCompiler()
+            .addSource("gen.Widget", WIDGET_SOURCE)
+            .addSource("gen.WidgetProxy", WIDGET_PROXY_SOURCE)
+            .addSource("gen.Library", librarySource)
+            .addSource("gen.LibraryProxy",
+                "package gen;",
+                "import com.crossbowffs.reflectionproxy.*;",
+                "import java.util.*;",
+                "@ProxyTarget(Library.class)",
+                "public interface LibraryProxy extends ProxyBase {",
+                "    @ProxyField List<WidgetProxy> get_mWidgets();",
+                "    @ProxyField void set_mWidgets(List<WidgetProxy> widgets);",
+                "    @ProxyField List<WidgetProxy> get_mRaw();",
+                "    @ProxyField Map<String, WidgetProxy> get_mByName();",
+                "    @ProxyField Collection<WidgetProxy> get_mArrayList();",
+                "    int count(List<WidgetProxy> widgets);",
+                "}");
+        assertNotNull(valid.compile(), String.valueOf(valid.getErrors()));
+
+        ProxyCompiler broken = new ProxyCompiler()
+            .addSource("gen.Widget", WIDGET_SOURCE)
+            .addSource("gen.WidgetProxy", WIDGET_PROXY_SOURCE)
+            .addSource("gen.Library", librarySource)
+            .addSource("gen.BrokenLibraryProxy",
+                "package gen;",
+                "import com.crossbowffs.reflectionproxy.*;",
+                "import java.util.*;",
+                "@ProxyTarget(Library.class)",
+                "public interface BrokenLibraryProxy extends ProxyBase {",
+                "    @ProxyField List<WidgetProxy> get_mNames();",
+                "    @ProxyField void set_mNames(List<WidgetProxy> names);",
+                "    @ProxyField Map<String, WidgetProxy> get_mNamesByName();",
+                "    int countNames(List<WidgetProxy> names);",
+                "}");
+        assertNull(broken.compile());
+        assertEquals(4, broken.getErrors().size());
+    }
+
+    @Test
+    public void interfacesMustExtendProxyBase() throws Exception {
+        ProxyCompiler compiler = new ProxyCompiler()
+            .addSource("gen.Widget", WIDGET_SOURCE)
+            .addSource("gen.NotAProxy",
+                "package gen;",
+                "@com.crossbowffs.reflectionproxy.ProxyTarget(Widget.class)",
+                "public interface NotAProxy {",
+                "    int add(int a);",
+                "}");
+        assertNull(compiler.compile());
+        assertEquals(1, compiler.getErrors().size());
+    }
+}
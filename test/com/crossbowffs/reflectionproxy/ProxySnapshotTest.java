@@ -0,0 +1,217 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that snapshot accessors copy every field, for records, created
+ * and filled snapshots, and snapshots too large for a single method handle,
+ * on both the reflective path and the method handle path.
+ */
+public class ProxySnapshotTest {
+    // Enough calls to make the dispatchers switch to method handles
+    private static final int CALLS = 40;
+
+    private static class Widget {
+        private int mId;
+        private String mName;
+        private Widget mParent;
+        private static int sCount = 3;
+
+        private Widget(int id, String name) {
+            mId = id;
+            mName = name;
+        }
+    }
+
+    @ProxyTarget(Widget.class)
+    private interface WidgetProxy extends ProxyBase {
+        @ProxyField int get_mId();
+        @ProxySnapshot WidgetRecord toRecord();
+        @ProxySnapshot WidgetData toData();
+        @ProxySnapshot void fill(WidgetData into);
+        @ProxySnapshot WidgetData fillAndReturn(WidgetData into);
+    }
+
+    private record WidgetRecord(@ProxyField("mId") long id, @ProxyField("mName") String name) {
+        private WidgetRecord {
+            if (id < 0) {
+                throw new IllegalArgumentException("Negative ID");
+            }
+        }
+    }
+
+    private static class WidgetBase {
+        private long mId;
+    }
+
+    private static class WidgetData extends WidgetBase {
+        private String mName;
+        private WidgetProxy mParent;
+        @ProxyField("sCount") private int mCount;
+        private transient int mIgnored = -1;
+    }
+
+    private static void assertData(Widget widget, WidgetData data) {
+        assertEquals(widget.mId, ((WidgetBase)data).mId);
+        assertEquals(widget.mName, data.mName);
+        if (widget.mParent == null) {
+            assertNull(data.mParent);
+        } else {
+            assertSame(widget.mParent, ProxyFactory.getProxyTarget(data.mParent));
+        }
+        assertEquals(3, data.mCount);
+        assertEquals(-1, data.mIgnored);
+    }
+
+    @Test
+    public void recordSnapshots() {
+        Widget widget = new Widget(1, "widget");
+        WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, widget);
+        for (int i = 0; i < CALLS; ++i) {
+            widget.mId = i;
+            assertEquals(new WidgetRecord(i, "widget"), proxy.toRecord());
+        }
+    }
+
+    @Test
+    public void recordConstructorFailuresAreReported() {
+        final WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, new Widget(-1, "widget"));
+        for (int i = 0; i < CALLS; ++i) {
+            ProxyException e = assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.toRecord();
+                }
+            });
+            assertEquals("Snapshot constructor threw an exception", e.getMessage());
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    @Test
+    public void createdSnapshots() {
+        Widget widget = new Widget(1, "widget");
+        widget.mParent = new Widget(0, "parent");
+        WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, widget);
+        for (int i = 0; i < CALLS; ++i) {
+            widget.mId = i;
+            assertData(widget, proxy.toData());
+        }
+    }
+
+    @Test
+    public void filledSnapshots() {
+        Widget widget = new Widget(1, "widget");
+        final WidgetProxy proxy = ProxyFactory.createProxy(WidgetProxy.class, widget);
+        WidgetData data = new WidgetData();
+        for (int i = 0; i < CALLS; ++i) {
+            widget.mId = i;
+            widget.mName = "widget" + i;
+            widget.mParent = i % 2 == 0 ? null : new Widget(-i, "parent");
+            proxy.fill(data);
+            assertData(widget, data);
+            assertSame(data, proxy.fillAndReturn(data));
+            assertData(widget, data);
+        }
+        for (int i = 0; i < CALLS; ++i) {
+            assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.fill(null);
+                }
+            });
+        }
+    }
+
+    @Test
+    public void staticProxiesCannotSnapshot() {
+        final WidgetProxy proxy = ProxyFactory.createStaticProxy(WidgetProxy.class);
+        for (int i = 0; i < CALLS; ++i) {
+            assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.toData();
+                }
+            });
+        }
+    }
+
+    private static String[] lines(List<String> lines) {
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    @Test
+    public void largeSnapshots() throws Exception {
+        // More fields than fit in a single method handle, so
+        // the dispatcher keeps using reflection
+        int fieldCount = 200;
+        List<String> target = new ArrayList<String>();
+        List<String> snapshot = new ArrayList<String>();
+        target.add("package gen;");
+        target.add("public class Large {");
+        snapshot.add("package gen;");
+        snapshot.add("public class LargeSnapshot {");
+        for (int i = 0; i < fieldCount; ++i) {
+            target.add("    private int mField" + i + " = " + i + ";");
+            snapshot.add("    public long mField" + i + ";");
+        }
+        target.add("    public Large() { }");
+        target.add("}");
+        snapshot.add("}");
+        ProxyCompiler compiler = new ProxyCompiler()
+            .addSource("gen.Large", lines(target))
+            .addSource("gen.LargeSnapshot", lines(snapshot))
+            .addSource("gen.LargeProxy",
+                "package gen;",
+                "import com.crossbowffs.reflectionproxy.*;",
+                "@ProxyTarget(Large.class)",
+                "public interface LargeProxy extends ProxyBase {",
+                "    @ProxySnapshot LargeSnapshot snapshot();",
+                "    @ProxySnapshot void fill(LargeSnapshot into);",
+                "}");
+        File classDir = compiler.compile();
+        assertNotNull(classDir, String.valueOf(compiler.getErrors()));
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {classDir.toURI().toURL()}, getClass().getClassLoader());
+        try {
+            @SuppressWarnings("unchecked")
+            Class<? extends ProxyBase> proxyClass = (Class<? extends ProxyBase>)classLoader.loadClass("gen.LargeProxy");
+            Class<?> snapshotClass = classLoader.loadClass("gen.LargeSnapshot");
+            ProxyBase proxy = ProxyFactory.createProxy(proxyClass,
+                classLoader.loadClass("gen.Large").getConstructor().newInstance());
+            Method snapshotMethod = proxyClass.getMethod("snapshot");
+            Method fillMethod = proxyClass.getMethod("fill", snapshotClass);
+            Field lastField = snapshotClass.getField("mField" + (fieldCount - 1));
+            for (int i = 0; i < CALLS; ++i) {
+                Object created = snapshotMethod.invoke(proxy);
+                Object filled = snapshotClass.getConstructor().newInstance();
+                fillMethod.invoke(proxy, filled);
+                for (int j = 0; j < fieldCount; ++j) {
+                    Field field = snapshotClass.getField("mField" + j);
+                    assertEquals((long)j, field.getLong(created));
+                    assertEquals((long)j, field.getLong(filled));
+                }
+                assertEquals(fieldCount - 1L, lastField.getLong(created));
+            }
+        } finally {
+            ProxyFactory.evict(classLoader);
+            classLoader.close();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.crossbowffs.reflectionproxy;
+
+import com.crossbowffs.reflectionproxy.verifier.ProxyVerifier;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the verifier on compiled proxy interfaces, and checks its exit
+ * status and report.
+ */
+public class ProxyVerifierTest {
+    private static final String[] GOOD_SOURCE = {
+        "package gen.verify;",
+        "public class Good {",
+        "    private int value() { return 1; }",
+        "}",
+    };
+
+    private static final String[] GOOD_PROXY_SOURCE = {
+        "package gen.verify;",
+        "import com.crossbowffs.reflectionproxy.*;",
+        "@ProxyTarget(Good.class)",
+        "public interface GoodProxy extends ProxyBase {",
+        "    int value();",
+        "}",
+    };
+
+    // Fails if the verifier initializes it
+    private static final String[] EAGER_SOURCE = {
+        "package gen.verify;",
+        "public class Eager {",
+        "    static { if (true) throw new IllegalStateException(\"initialized\"); }",
+        "    private int value() { return 1; }",
+        "}",
+    };
+
+    private static final String[] EAGER_PROXY_SOURCE = {
+        "package gen.verify;",
+        "import com.crossbowffs.reflectionproxy.*;",
+        "@ProxyTargetName(\"gen.verify.Eager\")",
+        "public interface EagerProxy extends ProxyBase {",
+        "    int value();",
+        "}",
+    };
+
+    private static final String[] DEPENDENCY_SOURCE = {
+        "package gen.verify;",
+        "public class Dependency { }",
+    };
+
+    private static final String[] DEPENDENT_SOURCE = {
+        "package gen.verify;",
+        "public class Dependent extends Dependency { }",
+    };
+
+    private static final String[] USER_SOURCE = {
+        "package gen.verify;",
+        "public class User {",
+        "    private int value() { return 1; }",
+        "    private Dependency dependency() { return null; }",
+        "}",
+    };
+
+    private static final String[] USER_PROXY_SOURCE = {
+        "package gen.verify;",
+        "import com.crossbowffs.reflectionproxy.*;",
+        "@ProxyTarget(User.class)",
+        "public interface UserProxy extends ProxyBase {",
+        "    int value();",
+        "}",
+    };
+
+    // Replaces Good once GoodProxy has been compiled against it
+    private static final String[] CHANGED_GOOD_SOURCE = {
+        "package gen.verify;",
+        "public class Good {",
+        "    private int renamedValue() { return 1; }",
+        "}",
+    };
+
+    private static File compile(ProxyCompiler compiler) throws IOException {
+        File outputDir = compiler.compile();
+        assertNotNull(outputDir, String.valueOf(compiler.getErrors()));
+        return outputDir;
+    }
+
+    private static void deleteClass(File outputDir, String className) {
+        File classFile = new File(outputDir, className.replace('.', '/') + ".class");
+        assertTrue(classFile.delete());
+    }
+
+    private static void replaceClass(File outputDir, File newOutputDir, String className) throws IOException {
+        String path = className.replace('.', '/') + ".class";
+        Files.copy(new File(newOutputDir, path).toPath(), new File(outputDir, path).toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String readReport(File reportFile) throws IOException {
+        return new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static int runVerifier(File reportFile, File... classpath) {
+        String[] args = new String[classpath.length + 2];
+        args[0] = "-o";
+        args[1] = reportFile.getPath();
+        for (int i = 0; i < classpath.length; ++i) {
+            args[i + 2] = classpath[i].getPath();
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        return ProxyVerifier.run(args, new PrintStream(output, true));
+    }
+
+    private static File createReportFile() throws IOException {
+        File reportFile = File.createTempFile("proxy-verifier", ".json");
+        reportFile.deleteOnExit();
+        return reportFile;
+    }
+
+    @Test
+    public void validClassesPass() throws IOException {
+        File outputDir = compile(new ProxyCompiler()
+            .addSource("gen.verify.Good", GOOD_SOURCE)
+            .addSource("gen.verify.GoodProxy", GOOD_PROXY_SOURCE)
+            .addSource("gen.verify.Eager", EAGER_SOURCE)
+            .addSource("gen.verify.EagerProxy", EAGER_PROXY_SOURCE));
+        File reportFile = createReportFile();
+        assertEquals(0, runVerifier(reportFile, outputDir));
+        String report = readReport(reportFile);
+        assertTrue(report.contains("\"interfaces\": 2,"), report);
+        assertTrue(report.contains("\"failures\": [],"), report);
+        assertTrue(report.contains("\"loadErrors\": []"), report);
+    }
+
+    @Test
+    public void failedBindingsFail() throws IOException {
+        File outputDir = compile(new ProxyCompiler()
+            .addSource("gen.verify.Good", GOOD_SOURCE)
+            .addSource("gen.verify.GoodProxy", GOOD_PROXY_SOURCE));
+        File changedOutputDir = compile(new ProxyCompiler()
+            .addSource("gen.verify.Good", CHANGED_GOOD_SOURCE));
+        replaceClass(outputDir, changedOutputDir, "gen.verify.Good");
+        File reportFile = createReportFile();
+        assertEquals(1, runVerifier(reportFile, outputDir));
+        String report = readReport(reportFile);
+        assertTrue(report.contains("\"interface\": \"gen.verify.GoodProxy\""), report);
+        assertTrue(report.contains("value()"), report);
+    }
+
+    @Test
+    public void missingDependenciesAreReported() throws IOException {
+        File outputDir = compile(new ProxyCompiler()
+            .addSource("gen.verify.Dependency", DEPENDENCY_SOURCE)
+            .addSource("gen.verify.Dependent", DEPENDENT_SOURCE)
+            .addSource("gen.verify.Good", GOOD_SOURCE)
+            .addSource("gen.verify.GoodProxy", GOOD_PROXY_SOURCE));
+        deleteClass(outputDir, "gen.verify.Dependency");
+
+        // Classes that cannot be loaded are listed, but do not fail on their own
+        File reportFile = createReportFile();
+        assertEquals(0, runVerifier(reportFile, outputDir));
+        String report = readReport(reportFile);
+        assertTrue(report.contains("\"class\": \"gen.verify.Dependent\""), report);
+        assertTrue(report.contains("gen/verify/Dependency"), report);
+        assertTrue(report.contains("\"failures\": [],"), report);
+
+        // Targets that cannot be bound without the dependency fail
+        File userOutputDir = compile(new ProxyCompiler()
+            .addSource("gen.verify.Dependency", DEPENDENCY_SOURCE)
+            .addSource("gen.verify.User", USER_SOURCE)
+            .addSource("gen.verify.UserProxy", USER_PROXY_SOURCE));
+        deleteClass(userOutputDir, "gen.verify.Dependency");
+        assertEquals(1, runVerifier(reportFile, userOutputDir));
+        report = readReport(reportFile);
+        assertTrue(report.contains("\"interface\": \"gen.verify.UserProxy\""), report);
+        assertTrue(report.contains("gen/verify/Dependency"), report);
+        assertFalse(report.contains("\"class\": \"gen.verify.UserProxy\""), report);
+    }
+}
@@ -0,0 +1,179 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that list, collection and map views convert their elements,
+ * and that views are only bound to targets with matching element types.
+ */
+public class ProxyViewsTest {
+    private static class Book {
+        private final String mTitle;
+
+        private Book(String title) {
+            mTitle = title;
+        }
+    }
+
+    private static class BookList extends ArrayList<Book> {
+
+    }
+
+    private static class Library {
+        private List<Book> mBooks = new ArrayList<Book>();
+        private Map<String, Book> mByTitle = new HashMap<String, Book>();
+        private Collection<? extends Book> mCollection;
+        private Book[] mArray;
+        private BookList mBookList = new BookList();
+        @SuppressWarnings("rawtypes")
+        private List mRaw = new ArrayList();
+        private List<Object> mObjects = new ArrayList<Object>();
+        private List<String> mTitles = new ArrayList<String>();
+        private Map<String, String> mTitlesByAuthor = new HashMap<String, String>();
+
+        private int count(List<Book> books) {
+            return books.size();
+        }
+
+        private int countTitles(List<String> titles) {
+            return titles.size();
+        }
+
+        private List<String> getTitles() {
+            return mTitles;
+        }
+    }
+
+    @ProxyTarget(Book.class)
+    private interface BookProxy extends ProxyBase {
+        @ProxyField String get_mTitle();
+    }
+
+    @ProxyTarget(Library.class)
+    private interface LibraryProxy extends ProxyBase {
+        @ProxyField List<BookProxy> get_mBooks();
+        @ProxyField void set_mBooks(List<BookProxy> books);
+        @ProxyField Map<String, BookProxy> get_mByTitle();
+        @ProxyField Collection<BookProxy> get_mCollection();
+        @ProxyField List<BookProxy> get_mArray();
+        @ProxyField List<BookProxy> get_mBookList();
+        @ProxyField List<BookProxy> get_mRaw();
+        @ProxyField List<BookProxy> get_mObjects();
+        int count(List<BookProxy> books);
+    }
+
+    @ProxyTarget(Library.class)
+    private interface BrokenLibraryProxy extends ProxyBase {
+        @ProxyField List<BookProxy> get_mTitles();
+        @ProxyField void set_mTitles(List<BookProxy> titles);
+        @ProxyField Map<String, BookProxy> get_mTitlesByAuthor();
+        @ProxyMethod("getTitles") List<BookProxy> getTitlesAsBooks();
+        int countTitles(List<BookProxy> titles);
+    }
+
+    private static List<String> getTitles(Collection<BookProxy> books) {
+        List<String> titles = new ArrayList<String>();
+        for (BookProxy book : books) {
+            titles.add(book.get_mTitle());
+        }
+        return titles;
+    }
+
+    @Test
+    public void viewsConvertElements() {
+        Library library = new Library();
+        Book a = new Book("a");
+        Book b = new Book("b");
+        library.mBooks.add(a);
+        library.mByTitle.put("b", b);
+        library.mCollection = Arrays.asList(a, b);
+        library.mArray = new Book[] {b, a};
+        library.mBookList.add(b);
+        LibraryProxy proxy = ProxyFactory.createProxy(LibraryProxy.class, library);
+
+        assertEquals(Arrays.asList("a"), getTitles(proxy.get_mBooks()));
+        assertEquals("b", proxy.get_mByTitle().get("b").get_mTitle());
+        assertEquals(Arrays.asList("a", "b"), getTitles(proxy.get_mCollection()));
+        assertEquals(Arrays.asList("b", "a"), getTitles(proxy.get_mArray()));
+        assertEquals(Arrays.asList("b"), getTitles(proxy.get_mBookList()));
+
+        // Writes go through to the target, unwrapping proxies
+        List<BookProxy> books = proxy.get_mBooks();
+        books.add(ProxyFactory.createProxy(BookProxy.class, b));
+        assertSame(b, library.mBooks.get(1));
+        assertTrue(books.contains(ProxyFactory.createProxy(BookProxy.class, a)));
+        proxy.get_mArray().set(0, books.get(0));
+        assertSame(a, library.mArray[0]);
+    }
+
+    @Test
+    public void viewsArePassedToTargets() {
+        Library library = new Library();
+        library.mBooks.add(new Book("a"));
+        LibraryProxy proxy = ProxyFactory.createProxy(LibraryProxy.class, library);
+
+        // A view passed back to the target is unwrapped
+        List<Book> books = library.mBooks;
+        proxy.set_mBooks(proxy.get_mBooks());
+        assertSame(books, library.mBooks);
+
+        List<BookProxy> bookProxies = new ArrayList<BookProxy>();
+        bookProxies.add(ProxyFactory.createProxy(BookProxy.class, new Book("b")));
+        proxy.set_mBooks(bookProxies);
+        assertEquals("b", library.mBooks.get(0).mTitle);
+        assertEquals(1, proxy.count(bookProxies));
+    }
+
+    @Test
+    public void erasedElementsAreCheckedOnAccess() {
+        Library library = new Library();
+        @SuppressWarnings("unchecked")
+        List<Object> raw = library.mRaw;
+        raw.add(new Book("a"));
+        raw.add("not a book");
+        library.mObjects.add(new Book("b"));
+        library.mObjects.add(42);
+        LibraryProxy proxy = ProxyFactory.createProxy(LibraryProxy.class, library);
+
+        final List<BookProxy> rawView = proxy.get_mRaw();
+        assertEquals("a", rawView.get(0).get_mTitle());
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                rawView.get(1);
+            }
+        });
+        final List<BookProxy> objectView = proxy.get_mObjects();
+        assertEquals("b", objectView.get(0).get_mTitle());
+        assertThrows(ProxyException.class, new Executable() {
+            @Override
+            public void execute() {
+                objectView.get(1);
+            }
+        });
+    }
+
+    @Test
+    public void mismatchedElementTypesAreBindingErrors() {
+        ProxyBindingReport report = ProxyFactory.bind(BrokenLibraryProxy.class);
+        assertFalse(report.isSuccessful());
+        assertEquals(5, report.getFailures().size());
+        for (ProxyBindingReport.Failure failure : report.getFailures()) {
+            assertTrue(failure.getException() instanceof ProxyException);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.crossbowffs.reflectionproxy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that static target members ignore the target of the proxy,
+ * and that instance members cannot be called on a static proxy, both
+ * before and after proxy methods switch to method handles.
+ */
+public class StaticDispatchTest {
+    // Enough calls to switch to method handles
+    private static final int CALLS = 40;
+
+    private static class Registry {
+        private static int sCount;
+        private int mId;
+
+        private Registry(int id) {
+            mId = id;
+        }
+
+        private static int next() {
+            return ++sCount;
+        }
+
+        private int getId() {
+            return mId;
+        }
+    }
+
+    @ProxyTarget(Registry.class)
+    private interface RegistryProxy extends ProxyBase {
+        @ProxyStatic int next();
+        @ProxyStatic @ProxyField int get_sCount();
+        @ProxyStatic @ProxyField void set_sCount(int count);
+        @ProxyConstructor RegistryProxy create(int id);
+        int getId();
+        @ProxyField int get_mId();
+        @ProxyField void set_mId(int id);
+    }
+
+    @BeforeEach
+    public void resetCount() {
+        Registry.sCount = 0;
+    }
+
+    private static void checkStaticMembers(RegistryProxy proxy) {
+        for (int i = 0; i < CALLS; ++i) {
+            assertEquals(i + 1, proxy.next());
+            assertEquals(i + 1, proxy.get_sCount());
+            proxy.set_sCount(i + 1);
+            RegistryProxy created = proxy.create(i);
+            assertEquals(i, created.getId());
+            assertEquals(i, ((Registry)ProxyFactory.getProxyTarget(created)).mId);
+        }
+        assertEquals(CALLS, Registry.sCount);
+    }
+
+    @Test
+    public void staticMembersIgnoreTheTarget() {
+        Registry registry = new Registry(7);
+        checkStaticMembers(ProxyFactory.createProxy(RegistryProxy.class, registry));
+        assertEquals(7, registry.mId);
+    }
+
+    @Test
+    public void staticMembersWorkOnStaticProxies() {
+        RegistryProxy proxy = ProxyFactory.createStaticProxy(RegistryProxy.class);
+        assertNull(ProxyFactory.getProxyTarget(proxy));
+        checkStaticMembers(proxy);
+    }
+
+    @Test
+    public void instanceMembersRequireATarget() {
+        final RegistryProxy proxy = ProxyFactory.createStaticProxy(RegistryProxy.class);
+        for (int i = 0; i < CALLS; ++i) {
+            assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.getId();
+                }
+            });
+            assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.get_mId();
+                }
+            });
+            assertThrows(ProxyException.class, new Executable() {
+                @Override
+                public void execute() {
+                    proxy.set_mId(1);
+                }
+            });
+        }
+
+        // Instance proxies of the same interface are unaffected
+        RegistryProxy instanceProxy = ProxyFactory.createProxy(RegistryProxy.class, new Registry(3));
+        instanceProxy.set_mId(4);
+        assertEquals(4, instanceProxy.get_mId());
+        assertEquals(4, instanceProxy.getId());
+    }
+}
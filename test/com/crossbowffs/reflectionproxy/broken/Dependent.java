@@ -0,0 +1,12 @@
+package com.crossbowffs.reflectionproxy.broken;
+
+/**
+ * Target class whose members refer to a class that may be missing.
+ */
+public class Dependent {
+    private int mValue;
+
+    private Missing getMissing() {
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.crossbowffs.reflectionproxy.broken;
+
+import com.crossbowffs.reflectionproxy.ProxyBase;
+import com.crossbowffs.reflectionproxy.ProxyField;
+import com.crossbowffs.reflectionproxy.ProxyTarget;
+
+@ProxyTarget(Dependent.class)
+public interface DependentProxy extends ProxyBase {
+    @ProxyField int get_mValue();
+}
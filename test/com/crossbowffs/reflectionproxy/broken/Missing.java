@@ -0,0 +1,8 @@
+package com.crossbowffs.reflectionproxy.broken;
+
+/**
+ * Hidden from the class loader in tests, to simulate a missing dependency.
+ */
+public class Missing {
+
+}
@@ -0,0 +1,83 @@
+package com.crossbowffs.reflectionproxy.plugin;
+
+import com.crossbowffs.reflectionproxy.ProxyBase;
+import com.crossbowffs.reflectionproxy.ProxyCached;
+import com.crossbowffs.reflectionproxy.ProxyFactory;
+import com.crossbowffs.reflectionproxy.ProxyField;
+import com.crossbowffs.reflectionproxy.ProxyGenerated;
+import com.crossbowffs.reflectionproxy.ProxyInterceptor;
+import com.crossbowffs.reflectionproxy.ProxyInvocation;
+import com.crossbowffs.reflectionproxy.ProxyStatic;
+import com.crossbowffs.reflectionproxy.ProxyTarget;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Code loaded by a throwaway class loader in ClassLoaderEvictionTest.
+ * Uses every kind of binding that is cached per proxy interface.
+ */
+public class Plugin implements Callable<Object> {
+    private static class Target {
+        private static int sCount;
+
+        private int mValue;
+
+        private Target(int value) {
+            mValue = value;
+        }
+
+        private static int next() {
+            return ++sCount;
+        }
+
+        private int add(int delta) {
+            mValue += delta;
+            return mValue;
+        }
+
+        private Target self() {
+            return this;
+        }
+
+        private int compute(int factor) {
+            return mValue * factor;
+        }
+    }
+
+    @ProxyTarget(Target.class)
+    private interface TargetProxy extends ProxyBase {
+        @ProxyStatic int next();
+        @ProxyField int get_mValue();
+        int add(int delta);
+        TargetProxy self();
+        @ProxyCached int compute(int factor);
+    }
+
+    @ProxyGenerated
+    @ProxyTarget(Target.class)
+    private interface GeneratedTargetProxy extends ProxyBase {
+        int add(int delta);
+        GeneratedTargetProxy self();
+    }
+
+    @Override
+    public Object call() {
+        // The interceptor is an instance of a class in this loader,
+        // which the interceptor registry must not keep alive
+        ProxyFactory.addInterceptor(TargetProxy.class, new ProxyInterceptor() {
+            @Override
+            public Object intercept(ProxyInvocation invocation) {
+                return invocation.proceed();
+            }
+        });
+
+        Target target = new Target(1);
+        TargetProxy proxy = ProxyFactory.createProxy(TargetProxy.class, target);
+        GeneratedTargetProxy generatedProxy = ProxyFactory.createProxy(GeneratedTargetProxy.class, target);
+        int result = proxy.add(1) + proxy.self().get_mValue() + generatedProxy.add(1) +
+            ProxyFactory.createStaticProxy(TargetProxy.class).next() + proxy.compute(2);
+        generatedProxy.self();
+        ProxyFactory.bind(TargetProxy.class, GeneratedTargetProxy.class);
+        return result;
+    }
+}